@@ -0,0 +1,57 @@
+package code.pendency;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Linking of the classes of a large jar, already parsed, and grouping of the analysis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalysisBenchmark {
+
+    private Collection<JavaClass> parsed;
+
+    @Setup
+    public void setUp() {
+        Codependency codependency = Codependency.create().withDirectory(Samples.jar().getAbsolutePath());
+        parsed = codependency.createBuilder(codependency.getDirectories()).build();
+    }
+
+    // A new analysis for every grouping, the groups of an analysis are computed once and then cached.
+    @State(Scope.Thread)
+    public static class Linked {
+
+        private Analysis analysis;
+
+        @Setup(Level.Invocation)
+        public void setUp(AnalysisBenchmark benchmark) {
+            analysis = Codependency.link(benchmark.parsed);
+            // The graph is shared with the queries, it's not part of the grouping
+            analysis.graph();
+        }
+
+    }
+
+    @Benchmark
+    public Analysis link() {
+        return Codependency.link(parsed);
+    }
+
+    @Benchmark
+    public Collection<Analysis.GroupByItem<String>> groupByPackage(Linked linked) {
+        return linked.analysis.group(Analysis.BY_PACKAGE);
+    }
+
+    @Benchmark
+    public Collection<Analysis.GroupByItem<String>> groupByJar(Linked linked) {
+        return linked.analysis.group(Analysis.BY_JAR);
+    }
+
+}
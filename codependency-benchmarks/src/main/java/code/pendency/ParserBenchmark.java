@@ -0,0 +1,60 @@
+package code.pendency;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of class files already in memory, with the declared kinds of dependencies, only the inheritance or
+ * also the usages in the method bodies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    private final static int CLASSES = 1000;
+
+    private List<byte[]> classes;
+    private ClassFileParser parser;
+    private ClassFileParser inheritanceParser;
+    private ClassFileParser usagesParser;
+
+    @Setup
+    public void setUp() throws IOException {
+        classes = Samples.classes(CLASSES);
+        parser = Samples.parser();
+        List<ParserListener> listeners = Collections.emptyList();
+        inheritanceParser = new ClassFileParser(Samples.filter(), listeners,
+                EnumSet.of(DependencyKind.SUPERCLASS, DependencyKind.INTERFACE));
+        usagesParser = new ClassFileParser(Samples.filter(), listeners, EnumSet.allOf(DependencyKind.class));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CLASSES)
+    public void parse(Blackhole blackhole) throws IOException {
+        for (byte[] bytes : classes) blackhole.consume(parser.parse(new ByteArrayInputStream(bytes)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CLASSES)
+    public void parseInheritance(Blackhole blackhole) throws IOException {
+        for (byte[] bytes : classes) blackhole.consume(inheritanceParser.parse(new ByteArrayInputStream(bytes)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CLASSES)
+    public void parseUsages(Blackhole blackhole) throws IOException {
+        for (byte[] bytes : classes) blackhole.consume(usagesParser.parse(new ByteArrayInputStream(bytes)));
+    }
+
+}
@@ -0,0 +1,92 @@
+package code.pendency;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+/**
+ * The classes used by the benchmarks: a large jar, the system property <code>codependency.benchmark.jar</code>
+ * or by default the runtime of the JDK, and its classes.
+ */
+class Samples {
+
+    static File jar() {
+        String jar = System.getProperty("codependency.benchmark.jar");
+        if (jar != null) return new File(jar);
+        File javaHome = new File(System.getProperty("java.home"));
+        return new File(new File(javaHome, "lib"), "rt.jar");
+    }
+
+    static Filter filter() {
+        List<String> none = Collections.emptyList();
+        return new Filter(true, none, none);
+    }
+
+    static ClassFileParser parser() {
+        List<ParserListener> listeners = Collections.emptyList();
+        return new ClassFileParser(filter(), listeners);
+    }
+
+    // The bytes of the first classes of the jar.
+    static List<byte[]> classes(int limit) throws IOException {
+        List<byte[]> classes = new ArrayList<byte[]>();
+        JarFile jar = new JarFile(jar());
+        try {
+            Enumeration<? extends ZipEntry> entries = jar.entries();
+            while (entries.hasMoreElements() && classes.size() < limit) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.getName().endsWith(".class")) classes.add(read(jar.getInputStream(entry)));
+            }
+        } finally {
+            jar.close();
+        }
+        return classes;
+    }
+
+    // Extracts the classes of the jar in the directory, keeping the tree of the packages.
+    static void extract(File directory) throws IOException {
+        JarFile jar = new JarFile(jar());
+        try {
+            Enumeration<? extends ZipEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.getName().endsWith(".class")) continue;
+                File file = new File(directory, entry.getName());
+                file.getParentFile().mkdirs();
+                OutputStream os = new FileOutputStream(file);
+                try {
+                    os.write(read(jar.getInputStream(entry)));
+                } finally {
+                    os.close();
+                }
+            }
+        } finally {
+            jar.close();
+        }
+    }
+
+    static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) delete(child);
+        }
+        file.delete();
+    }
+
+    private static byte[] read(InputStream is) throws IOException {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) > 0) bytes.write(buffer, 0, read);
+            return bytes.toByteArray();
+        } finally {
+            is.close();
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package code.pendency;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Walking of a large tree of class files (the classes of the jar extracted in a temporary directory) and
+ * building of the classes of a large jar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScannerBenchmark {
+
+    private File directory;
+    private FileManager directoryManager;
+    private JavaClassBuilder jarBuilder;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = File.createTempFile("classes", "");
+        directory.delete();
+        directory.mkdirs();
+        Samples.extract(directory);
+        directoryManager = new FileManager(Samples.filter(), Collections.singletonList(directory.getAbsolutePath()));
+        FileManager jarManager = new FileManager(Samples.filter(), Collections.singletonList(Samples.jar().getAbsolutePath()));
+        jarBuilder = new JavaClassBuilder(Samples.parser(), jarManager, Samples.filter());
+    }
+
+    @TearDown
+    public void tearDown() {
+        Samples.delete(directory);
+    }
+
+    @Benchmark
+    public Collection<FileManager.ExtractedFile> extractFiles() {
+        return directoryManager.extractFiles();
+    }
+
+    @Benchmark
+    public Collection<JavaClass> buildJar() {
+        return jarBuilder.build();
+    }
+
+}
@@ -0,0 +1,119 @@
+package code.pendency.maven;
+
+import code.pendency.Analysis;
+import code.pendency.AnalysisSnapshot;
+import code.pendency.Codependency;
+import code.pendency.CodependencySession;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Analyzes all the modules of the reactor in a single {@link CodependencySession}: the dependency jars and the
+ * classes of the upstream modules are parsed once, and every module gets its own analysis with its classes
+ * and its compile dependencies. The analysis of a module is stored as a snapshot in its build directory.
+ * <p>
+ * The goal is meant to be invoked from the command line after the build (e.g. mvn install
+ * code.pendency:codependency-maven-plugin:analyze-reactor) and has no default phase: an aggregator bound to a phase runs when the root
+ * project reaches it, before the modules are compiled. A module without classes is skipped with a warning.
+ */
+@Mojo(name = "analyze-reactor", aggregator = true, threadSafe = true,
+        requiresDependencyResolution = ResolutionScope.COMPILE)
+public class ReactorAnalysisMojo extends AbstractMojo {
+
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+
+    // The prefixes of the classes to include, all by default.
+    @Parameter
+    private List<String> includes = Collections.emptyList();
+
+    // The prefixes of the classes to exclude.
+    @Parameter
+    private List<String> excludes = Collections.emptyList();
+
+    @Parameter(defaultValue = "true")
+    private boolean includeInnerClasses;
+
+    // Analyze also the classes of the dependencies, otherwise they are only referenced.
+    @Parameter(defaultValue = "true")
+    private boolean includeDependencies;
+
+    // The name of the snapshot in the build directory of every module.
+    @Parameter(defaultValue = "codependency.snapshot")
+    private String snapshotName;
+
+    @Parameter(defaultValue = "false", property = "codependency.skip")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) return;
+        analyze(session.getProjects());
+    }
+
+    // The analysis of every module with classes, the modules of type pom are skipped silently.
+    void analyze(List<MavenProject> projects) throws MojoExecutionException {
+        CodependencySession codependencySession = codependency().session();
+        long start = System.currentTimeMillis();
+        int modules = 0;
+        for (MavenProject project : projects) {
+            File classes = new File(project.getBuild().getOutputDirectory());
+            if (!classes.isDirectory()) {
+                if ("pom".equals(project.getPackaging())) {
+                    getLog().debug("No classes in " + project.getArtifactId());
+                } else {
+                    getLog().warn("No classes in " + project.getArtifactId() + ", skipped: run the goal after the modules"
+                            + " are compiled (e.g. mvn install code.pendency:codependency-maven-plugin:analyze-reactor)");
+                }
+                continue;
+            }
+            Analysis analysis = codependencySession.analyze(inputs(project, classes));
+            File snapshot = new File(project.getBuild().getDirectory(), snapshotName);
+            try {
+                AnalysisSnapshot.save(analysis, snapshot);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Cannot write " + snapshot, e);
+            }
+            getLog().info(project.getArtifactId() + ": " + analysis.numberOfClasses() + " classes");
+            modules++;
+        }
+        getLog().info(modules + " modules analyzed in " + (System.currentTimeMillis() - start) + " ms, "
+                + codependencySession.getParsedInputs() + " directories and archives parsed");
+    }
+
+    private Codependency codependency() {
+        Codependency codependency = Codependency.create();
+        codependency = includeInnerClasses ? codependency.includesInnerClasses() : codependency.excludesInnerClasses();
+        for (String prefix : includes) codependency = codependency.includes(prefix);
+        for (String prefix : excludes) codependency = codependency.excludes(prefix);
+        return codependency;
+    }
+
+    // The classes of the module and its dependencies: the upstream modules are resolved to their classes
+    // directory or their jar, both shared with the other modules.
+    private List<String> inputs(MavenProject project, File classes) {
+        List<String> inputs = new ArrayList<String>();
+        inputs.add(classes.getAbsolutePath());
+        if (includeDependencies) {
+            for (Artifact artifact : project.getArtifacts()) {
+                if (artifact.getFile() != null && artifact.getArtifactHandler().isAddedToClasspath()) {
+                    inputs.add(artifact.getFile().getAbsolutePath());
+                }
+            }
+        }
+        return inputs;
+    }
+
+}
@@ -0,0 +1,78 @@
+package code.pendency.maven
+
+import java.io.File
+import java.nio.file.Files
+
+import code.pendency.AnalysisSnapshot
+import org.apache.maven.model.{Build, Model}
+import org.apache.maven.plugin.logging.SystemStreamLog
+import org.apache.maven.project.MavenProject
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FeatureSpec, Matchers}
+
+import scala.collection.JavaConverters._
+import scala.collection.mutable
+
+@RunWith(classOf[JUnitRunner])
+class TestReactorAnalysisMojo extends FeatureSpec with Matchers {
+
+  // The classes of the plugin itself, as the classes of a compiled module
+  val classes: File = new File(classOf[ReactorAnalysisMojo].getProtectionDomain.getCodeSource.getLocation.toURI)
+
+  class Log extends SystemStreamLog {
+    val warnings: mutable.Buffer[String] = mutable.Buffer()
+    override def warn(content: CharSequence): Unit = warnings += content.toString
+  }
+
+  def project(name: String, packaging: String, outputDirectory: File): MavenProject = {
+    val model = new Model()
+    model.setGroupId("code.pendency")
+    model.setArtifactId(name)
+    model.setVersion("1.0.0")
+    model.setPackaging(packaging)
+    val build = new Build()
+    build.setDirectory(Files.createTempDirectory(name).toFile.getAbsolutePath)
+    build.setOutputDirectory(outputDirectory.getAbsolutePath)
+    model.setBuild(build)
+    new MavenProject(model)
+  }
+
+  def mojo(log: Log): ReactorAnalysisMojo = {
+    val mojo = new ReactorAnalysisMojo()
+    mojo.setLog(log)
+    set(mojo, "includeInnerClasses", true)
+    set(mojo, "includeDependencies", true)
+    set(mojo, "snapshotName", "codependency.snapshot")
+    mojo
+  }
+
+  // The parameters are injected by Maven.
+  def set(mojo: ReactorAnalysisMojo, name: String, value: Any): Unit = {
+    val field = classOf[ReactorAnalysisMojo].getDeclaredField(name)
+    field.setAccessible(true)
+    field.set(mojo, value)
+  }
+
+  feature("analyze the reactor") {
+
+    scenario("a snapshot for every module with classes") {
+      val log = new Log
+      val module = project("module", "jar", classes)
+      mojo(log).analyze(List(module).asJava)
+      val analysis = AnalysisSnapshot.load(new File(module.getBuild.getDirectory, "codependency.snapshot"))
+      analysis.getClasses.asScala.map(_.getClassName) should contain (classOf[ReactorAnalysisMojo].getName)
+      log.warnings shouldBe empty
+    }
+
+    scenario("a module not compiled yet") {
+      val log = new Log
+      val missing = new File(Files.createTempDirectory("missing").toFile, "classes")
+      mojo(log).analyze(List(project("parent", "pom", missing), project("module", "jar", missing)).asJava)
+      log.warnings should have size 1
+      log.warnings.head should startWith ("No classes in module")
+    }
+
+  }
+
+}
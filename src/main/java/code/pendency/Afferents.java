@@ -0,0 +1,49 @@
+package code.pendency;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The afferents of the linked nodes, computed from the efferents the first time a node needs them: the
+ * analyses only reading the efferents never build the reverse graph.
+ */
+class Afferents {
+
+    private final List<? extends HasDependencies<?, ?>> nodes;
+    private volatile boolean computed = false;
+
+    Afferents(List<? extends HasDependencies<?, ?>> nodes) {
+        this.nodes = nodes;
+    }
+
+    void compute() {
+        if (!computed) computeAll();
+    }
+
+    private synchronized void computeAll() {
+        if (computed) return;
+        Map<Object, Integer> ids = new IdentityHashMap<Object, Integer>(nodes.size());
+        for (int id = 0; id < nodes.size(); id++) ids.put(nodes.get(id), id);
+        int[] counts = new int[nodes.size()];
+        for (HasDependencies<?, ?> node : nodes) {
+            for (Object efferent : node.efferentArray()) {
+                Integer id = ids.get(efferent);
+                if (id != null) counts[id]++;
+            }
+        }
+        Object[][] afferents = new Object[nodes.size()][];
+        for (int id = 0; id < nodes.size(); id++) afferents[id] = new Object[counts[id]];
+        int[] positions = new int[nodes.size()];
+        for (HasDependencies<?, ?> node : nodes) {
+            for (Object efferent : node.efferentArray()) {
+                Integer id = ids.get(efferent);
+                if (id != null) afferents[id][positions[id]++] = node;
+            }
+        }
+        for (int id = 0; id < nodes.size(); id++) nodes.get(id).setAfferents(afferents[id]);
+        // The volatile write publishes the afferents to the other threads
+        computed = true;
+    }
+
+}
@@ -4,10 +4,34 @@ import java.util.*;
 
 public class Analysis {
 
-    private final Set<JavaClass> classes;
+    private final Collection<JavaClass> classes;
+    private final MetricsListener metrics;
+    private final List<ClassConflict> conflicts;
+    private final MemberGraph members;
+    private ClassGraph graph;
+    private QueryIndex index;
+    // The groups by extractor, dropped with the extractor
+    private final Map<GroupById<?>, Collection<?>> groups = new WeakHashMap<GroupById<?>, Collection<?>>();
 
     public Analysis(Set<JavaClass> classes) {
-        this.classes = Collections.unmodifiableSet(classes);
+        this(classes, null, Collections.<ClassConflict>emptyList(), MemberGraph.EMPTY);
+    }
+
+    // The grouping is measured if there are metrics.
+    Analysis(Collection<JavaClass> classes, MetricsListener metrics, List<ClassConflict> conflicts, MemberGraph members) {
+        this.classes = Collections.unmodifiableCollection(classes);
+        this.metrics = metrics;
+        this.conflicts = conflicts;
+        this.members = members;
+    }
+
+    // The classes are views on the graph.
+    Analysis(ClassGraph graph) {
+        this.classes = Collections.unmodifiableList(graph.classes());
+        this.graph = graph;
+        this.metrics = null;
+        this.conflicts = Collections.emptyList();
+        this.members = MemberGraph.EMPTY;
     }
 
     public Collection<JavaClass> getClasses() {
@@ -18,83 +42,183 @@ public class Analysis {
         return classes.size();
     }
 
-    public <T> Collection<GroupByItem<T>> group(GroupById<T> extractor) {
-        Map<T, List<JavaClass>> groupBy = groupById(classes, extractor);
-        Map<T, GroupByItem<T>> result = new HashMap<T, GroupByItem<T>>();
-        for (Map.Entry<T, List<JavaClass>> entry : groupBy.entrySet()) {
-            T id = entry.getKey();
-            List<JavaClass> javaClasses = entry.getValue();
-            GroupByItem<T> group = groupClasses(javaClasses, extractor, id);
-            result.put(id, group);
-        }
-        List<GroupByItem<T>> items = new ArrayList<GroupByItem<T>>(result.size());
-        for (GroupByItem<T> item : result.values()) items.add(item.withMap(result));
-        return items;
+    // The classes defined more than once (e.g. in two jars), ordered by name: only one of the copies is analyzed.
+    // The conflicts are found while the classes are parsed, they are not stored in the snapshots.
+    public List<ClassConflict> getConflicts() {
+        return conflicts;
+    }
+
+    // The fields and the methods of the classes and the members they use, empty if the members were not extracted
+    // (see Codependency.withMembers). As the conflicts, the members are not stored in the snapshots.
+    public MemberGraph getMembers() {
+        return members;
+    }
+
+    // Query the classes, the indexes used by the queries are built on first use and shared.
+    public AnalysisQuery query() {
+        return new AnalysisQuery(index());
+    }
+
+    // Find the chains of dependencies between classes or groups, the returned instance is not thread safe.
+    public DependencyPaths paths() {
+        return new DependencyPaths(graph());
+    }
+
+    // Find the classes affected by a change, the returned instance is not thread safe.
+    public ChangeImpact impact() {
+        return new ChangeImpact(graph());
     }
 
-    private <T> Map<T, List<JavaClass>> groupById(Collection<JavaClass> classes, GroupById<T> extractor) {
-        Map<T, List<JavaClass>> groupBy = new HashMap<T, List<JavaClass>>();
-        for (JavaClass javaClass : classes) {
-            T key = extractor.extract(javaClass);
-            List<JavaClass> javaClasses = groupBy.get(key);
-            if (javaClasses == null) {
-                javaClasses = new ArrayList<JavaClass>();
-                groupBy.put(key, javaClasses);
+    // The same classes with only the dependencies of the given kinds, the classes are not parsed again.
+    // The classes only referenced by the dependencies left out are dropped.
+    public Analysis withDependencyKinds(DependencyKind first, DependencyKind... others) {
+        int bits = DependencyKind.bits(EnumSet.of(first, others));
+        ClassGraph graph = graph();
+        List<JavaClass> javaClasses = new ArrayList<JavaClass>(graph.size());
+        for (int id = 0; id < graph.size(); id++) {
+            JavaClass javaClass = graph.get(id);
+            if (javaClass.isReferenceOnly()) continue;
+            Map<String, Integer> efferentIds = new HashMap<String, Integer>();
+            for (int edge = graph.efferentsStart(id); edge < graph.efferentsEnd(id); edge++) {
+                int kinds = graph.kinds(edge) & bits;
+                if (kinds != 0) efferentIds.put(graph.name(graph.efferent(edge)), kinds);
             }
-            javaClasses.add(javaClass);
+            javaClasses.add(javaClass.withEfferentIds(efferentIds));
         }
-        return groupBy;
+        return Codependency.link(javaClasses, metrics, conflicts, members);
     }
 
-    private <T> GroupByItem<T> groupClasses(List<JavaClass> classes, GroupById<T> extractor, T id) {
-        Set<T> efferents = new HashSet<T>();
-        Set<T> afferents = new HashSet<T>();
-        for (JavaClass javaClass : classes) {
-            for (JavaClass afferent : javaClass.getAfferents()) {
-                T afferentKey = extractor.extract(afferent);
-                if (!id.equals(afferentKey)) {
-                    afferents.add(afferentKey);
-                }
+    synchronized ClassGraph graph() {
+        if (graph == null) graph = ClassGraph.of(classes);
+        return graph;
+    }
+
+    private synchronized QueryIndex index() {
+        if (index == null) index = new QueryIndex(graph());
+        return index;
+    }
+
+    // The groups are computed the first time they are requested for an extractor and then shared.
+    @SuppressWarnings("unchecked")
+    public <T> Collection<GroupByItem<T>> group(GroupById<T> extractor) {
+        synchronized (groups) {
+            Collection<GroupByItem<T>> items = (Collection<GroupByItem<T>>) groups.get(extractor);
+            if (items == null) {
+                items = computeGroups(extractor);
+                groups.put(extractor, items);
             }
-            for (JavaClass efferent : javaClass.getEfferents()) {
-                T efferentKey = extractor.extract(efferent);
-                if (!id.equals(efferentKey)) {
-                    efferents.add(efferentKey);
-                }
+            return items;
+        }
+    }
+
+    // The classes and their dependencies counted in a single pass over the ids of the graph, so the classes of a
+    // mapped analysis (created when accessed) are extracted only once.
+    private <T> Collection<GroupByItem<T>> computeGroups(GroupById<T> extractor) {
+        long start = metrics != null ? System.nanoTime() : 0;
+        GroupCounter<T> counter = new GroupCounter<T>();
+        ClassGraph graph = graph();
+        int[] classGroups = new int[graph.size()];
+        for (int id = 0; id < graph.size(); id++) {
+            JavaClass javaClass = graph.get(id);
+            classGroups[id] = counter.group(extractor.extract(javaClass));
+            counter.count(classGroups[id], javaClass.isAbstract() || javaClass.isInterface());
+        }
+        for (int id = 0; id < graph.size(); id++) {
+            for (int edge = graph.efferentsStart(id); edge < graph.efferentsEnd(id); edge++) {
+                int efferent = graph.efferent(edge);
+                counter.add(classGroups[id], id, classGroups[efferent], efferent);
+            }
+        }
+        Collection<GroupByItem<T>> items = counter.link();
+        if (metrics != null) metrics.onPhase(AnalysisPhase.GROUP, System.nanoTime() - start);
+        return items;
+    }
+
+    // The groups linked to each other. The afferents of a group come from the efferents of the others,
+    // the afferents of the classes are not needed.
+    static <T> Collection<GroupByItem<T>> linkGroups(Map<T, GroupByItem<T>> groups) {
+        Map<T, List<WeightedDependency<T>>> efferents = new HashMap<T, List<WeightedDependency<T>>>();
+        Map<T, List<WeightedDependency<T>>> afferents = new HashMap<T, List<WeightedDependency<T>>>();
+        for (GroupByItem<T> group : groups.values()) {
+            for (Map.Entry<T, int[]> efferent : group.efferentCounts.entrySet()) {
+                if (!groups.containsKey(efferent.getKey())) continue;
+                WeightedDependency<T> dependency = new WeightedDependency<T>(group.getName(), efferent.getKey(),
+                        efferent.getValue()[0], efferent.getValue()[1], efferent.getValue()[2]);
+                dependencies(efferents, group.getName()).add(dependency);
+                dependencies(afferents, efferent.getKey()).add(dependency);
             }
         }
-        return new GroupByItem<T>(classes.size(), efferents, afferents, id);
+        List<GroupByItem<T>> items = new ArrayList<GroupByItem<T>>(groups.size());
+        for (GroupByItem<T> group : groups.values()) {
+            items.add(group.withMap(groups, dependencies(efferents, group.getName()), dependencies(afferents, group.getName())));
+        }
+        return Collections.unmodifiableList(items);
     }
 
-    public final static GroupById<String> BY_PACKAGE = new GroupById<String>() {
+    private static <T> List<WeightedDependency<T>> dependencies(Map<T, List<WeightedDependency<T>>> map, T id) {
+        List<WeightedDependency<T>> dependencies = map.get(id);
+        if (dependencies == null) {
+            dependencies = new ArrayList<WeightedDependency<T>>();
+            map.put(id, dependencies);
+        }
+        return dependencies;
+    }
+
+    public final static GroupById<String> BY_PACKAGE = new GroupByName<String>() {
         @Override
         public String extract(JavaClass javaClass) {
             return javaClass.getPackageName();
         }
+
+        @Override
+        public String extractFromName(String className) {
+            return JavaClass.classNameToPackageName(className);
+        }
+    };
+
+    public final static GroupById<String> BY_JAR = new GroupById<String>() {
+        @Override
+        public String extract(JavaClass javaClass) {
+            return javaClass.getJarName();
+        }
     };
 
     public interface GroupById<T> {
         T extract(JavaClass javaClass);
     }
 
+    // A group derived from the name of the class only, so known also for the classes not parsed yet (see GroupAggregator).
+    interface GroupByName<T> extends GroupById<T> {
+        T extractFromName(String className);
+    }
+
     public static class GroupByItem<T> extends HasDependencies<T, GroupByItem<T>> {
 
         private final int count;
-        private final Set<T> efferents;
-        private final Set<T> afferents;
+        private final int abstractCount;
+        // The class dependencies, source classes and target classes by efferent group, only until the group is linked
+        private final Map<T, int[]> efferentCounts;
+        private final List<WeightedDependency<T>> efferentDependencies;
+        private final List<WeightedDependency<T>> afferentDependencies;
 
-        private GroupByItem(int count, Set<T> efferents, Set<T> afferents, T id) {
+        // Not linked yet, see linkGroups.
+        GroupByItem(int count, int abstractCount, Map<T, int[]> efferentCounts, T id) {
             super(id);
             this.count = count;
-            this.efferents = efferents;
-            this.afferents = afferents;
+            this.abstractCount = abstractCount;
+            this.efferentCounts = efferentCounts;
+            this.efferentDependencies = Collections.emptyList();
+            this.afferentDependencies = Collections.emptyList();
         }
 
-        private GroupByItem(int count, T id, Set<GroupByItem<T>> efferents, Set<GroupByItem<T>> afferents) {
+        private GroupByItem(int count, int abstractCount, T id, Set<GroupByItem<T>> efferents, Set<GroupByItem<T>> afferents,
+                            List<WeightedDependency<T>> efferentDependencies, List<WeightedDependency<T>> afferentDependencies) {
             super(id, efferents, afferents);
             this.count = count;
-            this.efferents = Collections.emptySet();
-            this.afferents = Collections.emptySet();
+            this.abstractCount = abstractCount;
+            this.efferentCounts = Collections.emptyMap();
+            this.efferentDependencies = Collections.unmodifiableList(efferentDependencies);
+            this.afferentDependencies = Collections.unmodifiableList(afferentDependencies);
         }
 
         public T getName() {
@@ -105,14 +229,44 @@ public class Analysis {
             return count;
         }
 
-        private GroupByItem<T> withMap(Map<T, GroupByItem<T>> map) {
-            return new GroupByItem<T>(count, id, fromMap(efferents, map), fromMap(afferents, map));
+        // The number of abstract classes and interfaces inside the group.
+        public int getAbstractCount() {
+            return abstractCount;
         }
 
-        private Set<GroupByItem<T>> fromMap(Set<T> ids, Map<T, GroupByItem<T>> map) {
-            Set<GroupByItem<T>> items = new HashSet<GroupByItem<T>>(ids.size());
-            for (T id : ids) if (map.containsKey(id)) items.add(map.get(id));
-            return items;
+        // A = abstract classes / total classes, 0 is completely concrete and 1 completely abstract.
+        public double abstractness() {
+            return count > 0 ? (double) abstractCount / count : 0;
+        }
+
+        // I = Ce / (Ca + Ce), 0 is completely stable and 1 completely unstable.
+        public double instability() {
+            int coupling = afferentCoupling() + efferentCoupling();
+            return coupling > 0 ? (double) efferentCoupling() / coupling : 0;
+        }
+
+        // D = |A + I - 1|, 0 is on the main sequence and 1 as far as possible from it.
+        public double distance() {
+            return Math.abs(abstractness() + instability() - 1);
+        }
+
+        // The dependencies on the efferent groups, weighted by the class dependencies.
+        public List<WeightedDependency<T>> getEfferentDependencies() {
+            return efferentDependencies;
+        }
+
+        // The dependencies of the afferent groups, weighted by the class dependencies.
+        public List<WeightedDependency<T>> getAfferentDependencies() {
+            return afferentDependencies;
+        }
+
+        private GroupByItem<T> withMap(Map<T, GroupByItem<T>> map, List<WeightedDependency<T>> efferents,
+                                       List<WeightedDependency<T>> afferents) {
+            Set<GroupByItem<T>> efferentItems = new HashSet<GroupByItem<T>>(efferents.size());
+            for (WeightedDependency<T> efferent : efferents) efferentItems.add(map.get(efferent.getTarget()));
+            Set<GroupByItem<T>> afferentItems = new HashSet<GroupByItem<T>>(afferents.size());
+            for (WeightedDependency<T> afferent : afferents) afferentItems.add(map.get(afferent.getSource()));
+            return new GroupByItem<T>(count, abstractCount, id, efferentItems, afferentItems, efferents, afferents);
         }
 
     }
@@ -0,0 +1,297 @@
+package code.pendency;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps a warm analysis in memory and answers the queries of the local tools over HTTP on localhost,
+ * e.g. <code>GET /coupling?class=com.acme.Service</code>. The responses are plain text, one result per line
+ * with the columns separated by tabs.
+ * <p>
+ * The analyzed directories and jars are polled for changes: when a file is added, removed or modified the
+ * classes are analyzed again and the new analysis replaces the old one atomically. Every request works on
+ * the analysis it found when it started, so the concurrent clients always see a consistent result.
+ * <p>
+ * Only the requests to 127.0.0.1 or localhost (the Host header) are answered: a web page can't read the
+ * classes through a host name resolved to the loopback address (DNS rebinding).
+ */
+public class AnalysisDaemon {
+
+    private final static Charset UTF8 = Charset.forName("UTF-8");
+    private final static long POLL_INTERVAL = 2000;
+    private final static int THREADS = 4;
+    // The most paths returned by /path
+    private final static int MAX_PATHS = 100;
+
+    private final Codependency codependency;
+    private final int port;
+    private final long pollInterval;
+    private final ArchitectureRules rules;
+
+    private AnalysisDaemon(Codependency codependency, int port, long pollInterval, ArchitectureRules rules) {
+        this.codependency = codependency;
+        this.port = port;
+        this.pollInterval = pollInterval;
+        this.rules = rules;
+    }
+
+    public static AnalysisDaemon create(Codependency codependency) {
+        return new AnalysisDaemon(codependency, 0, POLL_INTERVAL, ArchitectureRules.create());
+    }
+
+    // The port on localhost, by default any free port.
+    public AnalysisDaemon withPort(int port) {
+        return new AnalysisDaemon(codependency, port, pollInterval, rules);
+    }
+
+    // The interval between two checks of the analyzed files (2 seconds by default), 0 to never check.
+    public AnalysisDaemon withPollInterval(long millis) {
+        return new AnalysisDaemon(codependency, port, millis, rules);
+    }
+
+    // The rules checked by the /violations query.
+    public AnalysisDaemon withRules(ArchitectureRules rules) {
+        return new AnalysisDaemon(codependency, port, pollInterval, rules);
+    }
+
+    // Analyzes the classes and starts serving the queries.
+    public Running start() throws IOException {
+        return new Running(this);
+    }
+
+    // Usage: AnalysisDaemon <port> <directory or jar>...
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: AnalysisDaemon <port> <directory or jar>...");
+            System.exit(1);
+        }
+        Codependency codependency = Codependency.create();
+        for (int i = 1; i < args.length; i++) codependency = codependency.withDirectory(args[i]);
+        Running running = create(codependency).withPort(Integer.parseInt(args[0])).start();
+        System.out.println("Listening on http://localhost:" + running.getPort() + "/");
+    }
+
+    public static class Running {
+
+        private final AnalysisDaemon daemon;
+        private final AtomicReference<Analysis> analysis = new AtomicReference<Analysis>();
+        private final HttpServer server;
+        private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor();
+        private long fingerprint;
+
+        private Running(AnalysisDaemon daemon) throws IOException {
+            this.daemon = daemon;
+            this.fingerprint = FileManager.fingerprint(daemon.codependency.getDirectories());
+            this.analysis.set(daemon.codependency.analyze());
+            this.server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), daemon.port), 0);
+            this.server.createContext("/", new QueryHandler(this));
+            this.server.setExecutor(executor);
+            this.server.start();
+            if (daemon.pollInterval > 0) {
+                poller.scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            refresh();
+                        } catch (RuntimeException e) {
+                            // The previous analysis is still served, the next poll tries again.
+                        }
+                    }
+                }, daemon.pollInterval, daemon.pollInterval, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        public int getPort() {
+            return server.getAddress().getPort();
+        }
+
+        // The analysis currently served.
+        public Analysis getAnalysis() {
+            return analysis.get();
+        }
+
+        // Analyzes the classes again if the files changed, returns true if the analysis was replaced.
+        public synchronized boolean refresh() {
+            long current = FileManager.fingerprint(daemon.codependency.getDirectories());
+            if (current == fingerprint) return false;
+            analysis.set(daemon.codependency.analyze());
+            fingerprint = current;
+            return true;
+        }
+
+        public void stop() {
+            poller.shutdownNow();
+            server.stop(0);
+            executor.shutdownNow();
+        }
+
+    }
+
+    private static class QueryHandler implements HttpHandler {
+
+        private final Running running;
+
+        QueryHandler(Running running) {
+            this.running = running;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!isLocalHost(exchange.getRequestHeaders().getFirst("Host"))) {
+                    send(exchange, 403, "Forbidden host\n");
+                    return;
+                }
+                Map<String, List<String>> parameters = parameters(exchange.getRequestURI().getRawQuery());
+                Analysis analysis = running.getAnalysis();
+                StringBuilder response = new StringBuilder();
+                int status = answer(exchange.getRequestURI().getPath(), parameters, analysis, response);
+                send(exchange, status, response.toString());
+            } catch (RuntimeException e) {
+                send(exchange, 500, String.valueOf(e.getMessage()) + "\n");
+            }
+        }
+
+        private int answer(String path, Map<String, List<String>> parameters, Analysis analysis, StringBuilder response) {
+            if ("/status".equals(path)) {
+                line(response, "classes", analysis.numberOfClasses());
+                return 200;
+            } else if ("/classes".equals(path)) {
+                String prefix = first(parameters, "prefix");
+                for (JavaClass javaClass : analysis.query().withPrefix(prefix == null ? "" : prefix).list()) {
+                    line(response, javaClass.getClassName());
+                }
+                return 200;
+            } else if ("/coupling".equals(path) || "/efferents".equals(path) || "/afferents".equals(path)) {
+                String className = first(parameters, "class");
+                if (className == null) return error(response, 400, "Missing parameter: class");
+                ClassGraph graph = analysis.graph();
+                int id = graph.id(className);
+                if (id < 0) return error(response, 404, "Unknown class: " + className);
+                if ("/coupling".equals(path)) {
+                    line(response, className, graph.afferentCoupling(id), graph.efferentCoupling(id));
+                } else if ("/efferents".equals(path)) {
+                    for (int edge = graph.efferentsStart(id); edge < graph.efferentsEnd(id); edge++) line(response, graph.name(graph.efferent(edge)));
+                } else {
+                    for (int edge = graph.afferentsStart(id); edge < graph.afferentsEnd(id); edge++) line(response, graph.name(graph.afferent(edge)));
+                }
+                return 200;
+            } else if ("/groups".equals(path)) {
+                String by = first(parameters, "by");
+                Analysis.GroupById<String> extractor = "jar".equals(by) ? Analysis.BY_JAR : Analysis.BY_PACKAGE;
+                for (Analysis.GroupByItem<String> group : analysis.group(extractor)) {
+                    line(response, group.getName(), group.getCount(), group.afferentCoupling(), group.efferentCoupling(),
+                            group.abstractness(), group.instability(), group.distance());
+                }
+                return 200;
+            } else if ("/path".equals(path)) {
+                String from = first(parameters, "from");
+                String to = first(parameters, "to");
+                if (from == null || to == null) return error(response, 400, "Missing parameters: from, to");
+                int k = positive(first(parameters, "k"), 1);
+                if (k < 1 || k > MAX_PATHS) return error(response, 400, "Invalid parameter: k (from 1 to " + MAX_PATHS + ")");
+                for (List<JavaClass> dependencyPath : analysis.paths().shortestPaths(from, to, k)) {
+                    StringBuilder chain = new StringBuilder();
+                    for (JavaClass javaClass : dependencyPath) {
+                        if (chain.length() > 0) chain.append(" -> ");
+                        chain.append(javaClass.getClassName());
+                    }
+                    line(response, chain);
+                }
+                return 200;
+            } else if ("/impact".equals(path)) {
+                List<String> changed = parameters.get("class");
+                if (changed == null) return error(response, 400, "Missing parameter: class");
+                for (JavaClass javaClass : analysis.impact().affectedBy(changed)) line(response, javaClass.getClassName());
+                return 200;
+            } else if ("/violations".equals(path)) {
+                for (RuleViolation violation : running.daemon.rules.check(analysis)) {
+                    line(response, violation.getRule(), violation.getDependency());
+                }
+                return 200;
+            }
+            return error(response, 404, "Unknown query: " + path);
+        }
+
+        // The host of the request with the port of the server, or without a port.
+        private boolean isLocalHost(String host) {
+            if (host == null) return false;
+            int colon = host.lastIndexOf(':');
+            String name = colon < 0 ? host : host.substring(0, colon);
+            if (colon >= 0 && !host.substring(colon + 1).equals(String.valueOf(running.getPort()))) return false;
+            return "127.0.0.1".equals(name) || "localhost".equalsIgnoreCase(name);
+        }
+
+        // The value of a parameter, the default if missing and -1 if not a positive number.
+        private static int positive(String value, int defaultValue) {
+            if (value == null) return defaultValue;
+            try {
+                return Math.max(Integer.parseInt(value), -1);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        private static int error(StringBuilder response, int status, String message) {
+            line(response, message);
+            return status;
+        }
+
+        private static void line(StringBuilder response, Object... columns) {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) response.append('\t');
+                response.append(columns[i]);
+            }
+            response.append('\n');
+        }
+
+        private static String first(Map<String, List<String>> parameters, String name) {
+            List<String> values = parameters.get(name);
+            return values == null ? null : values.get(0);
+        }
+
+        private static Map<String, List<String>> parameters(String query) throws IOException {
+            Map<String, List<String>> parameters = new HashMap<String, List<String>>();
+            if (query == null) return parameters;
+            for (String parameter : query.split("&")) {
+                if (parameter.length() == 0) continue;
+                int equals = parameter.indexOf('=');
+                String name = URLDecoder.decode(equals < 0 ? parameter : parameter.substring(0, equals), "UTF-8");
+                String value = equals < 0 ? "" : URLDecoder.decode(parameter.substring(equals + 1), "UTF-8");
+                List<String> values = parameters.get(name);
+                if (values == null) {
+                    values = new ArrayList<String>();
+                    parameters.put(name, values);
+                }
+                values.add(value);
+            }
+            return parameters;
+        }
+
+        private static void send(HttpExchange exchange, int status, String response) throws IOException {
+            byte[] bytes = response.getBytes(UTF8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            OutputStream os = exchange.getResponseBody();
+            try {
+                os.write(bytes);
+            } finally {
+                os.close();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,171 @@
+package code.pendency;
+
+import java.util.*;
+
+/**
+ * Differences between two analyses (e.g. the base branch and a change): the classes and the dependencies
+ * added or removed.
+ * <p>
+ * The class ids of both graphs are in name order, so the two id spaces are aligned with a single merge of the
+ * names and the (sorted) adjacency arrays are compared with another merge: the cost is linear in the number
+ * of classes and dependencies.
+ */
+public class AnalysisDiff {
+
+    private final Analysis base;
+    private final Analysis head;
+    private final List<JavaClass> addedClasses;
+    private final List<JavaClass> removedClasses;
+    private final List<Dependency<JavaClass>> addedDependencies;
+    private final List<Dependency<JavaClass>> removedDependencies;
+
+    private AnalysisDiff(Analysis base,
+                         Analysis head,
+                         List<JavaClass> addedClasses,
+                         List<JavaClass> removedClasses,
+                         List<Dependency<JavaClass>> addedDependencies,
+                         List<Dependency<JavaClass>> removedDependencies) {
+        this.base = base;
+        this.head = head;
+        this.addedClasses = Collections.unmodifiableList(addedClasses);
+        this.removedClasses = Collections.unmodifiableList(removedClasses);
+        this.addedDependencies = Collections.unmodifiableList(addedDependencies);
+        this.removedDependencies = Collections.unmodifiableList(removedDependencies);
+    }
+
+    public static AnalysisDiff compare(Analysis base, Analysis head) {
+        ClassGraph baseGraph = base.graph();
+        ClassGraph headGraph = head.graph();
+        // Align the ids: both graphs are sorted by name, the merged position is the common id.
+        int[] baseIds = new int[baseGraph.size()];
+        int[] headIds = new int[headGraph.size()];
+        List<JavaClass> addedClasses = new ArrayList<JavaClass>();
+        List<JavaClass> removedClasses = new ArrayList<JavaClass>();
+        int b = 0, h = 0, common = 0;
+        while (b < baseIds.length || h < headIds.length) {
+            int compare = b == baseIds.length ? 1 : (h == headIds.length ? -1 : baseGraph.name(b).compareTo(headGraph.name(h)));
+            if (compare == 0) {
+                baseIds[b++] = common;
+                headIds[h++] = common;
+            } else if (compare < 0) {
+                removedClasses.add(baseGraph.get(b));
+                baseIds[b++] = common;
+            } else {
+                addedClasses.add(headGraph.get(h));
+                headIds[h++] = common;
+            }
+            common++;
+        }
+        // The edges in the common ids are still sorted, merge them.
+        List<Dependency<JavaClass>> addedDependencies = new ArrayList<Dependency<JavaClass>>();
+        List<Dependency<JavaClass>> removedDependencies = new ArrayList<Dependency<JavaClass>>();
+        EdgeCursor baseEdges = new EdgeCursor(baseGraph, baseIds);
+        EdgeCursor headEdges = new EdgeCursor(headGraph, headIds);
+        while (baseEdges.hasEdge() || headEdges.hasEdge()) {
+            if (!headEdges.hasEdge() || (baseEdges.hasEdge() && baseEdges.key() < headEdges.key())) {
+                removedDependencies.add(baseEdges.dependency());
+                baseEdges.next();
+            } else if (!baseEdges.hasEdge() || headEdges.key() < baseEdges.key()) {
+                addedDependencies.add(headEdges.dependency());
+                headEdges.next();
+            } else {
+                baseEdges.next();
+                headEdges.next();
+            }
+        }
+        return new AnalysisDiff(base, head, addedClasses, removedClasses, addedDependencies, removedDependencies);
+    }
+
+    // The classes only in the second analysis.
+    public List<JavaClass> getAddedClasses() {
+        return addedClasses;
+    }
+
+    // The classes only in the first analysis.
+    public List<JavaClass> getRemovedClasses() {
+        return removedClasses;
+    }
+
+    // The dependencies only in the second analysis.
+    public List<Dependency<JavaClass>> getAddedDependencies() {
+        return addedDependencies;
+    }
+
+    // The dependencies only in the first analysis.
+    public List<Dependency<JavaClass>> getRemovedDependencies() {
+        return removedDependencies;
+    }
+
+    // The dependencies between groups only in the second analysis.
+    public <T> List<Dependency<T>> getAddedDependencies(Analysis.GroupById<T> extractor) {
+        return difference(groupDependencies(head, extractor), groupDependencies(base, extractor));
+    }
+
+    // The dependencies between groups only in the first analysis.
+    public <T> List<Dependency<T>> getRemovedDependencies(Analysis.GroupById<T> extractor) {
+        return difference(groupDependencies(base, extractor), groupDependencies(head, extractor));
+    }
+
+    public boolean isEmpty() {
+        return addedClasses.isEmpty() && removedClasses.isEmpty() && addedDependencies.isEmpty() && removedDependencies.isEmpty();
+    }
+
+    private static <T> Set<Dependency<T>> groupDependencies(Analysis analysis, Analysis.GroupById<T> extractor) {
+        ClassGraph graph = analysis.graph();
+        List<T> groups = new ArrayList<T>(graph.size());
+        for (int id = 0; id < graph.size(); id++) groups.add(extractor.extract(graph.get(id)));
+        Set<Dependency<T>> dependencies = new LinkedHashSet<Dependency<T>>();
+        for (int id = 0; id < graph.size(); id++) {
+            T source = groups.get(id);
+            for (int edge = graph.efferentsStart(id); edge < graph.efferentsEnd(id); edge++) {
+                T target = groups.get(graph.efferent(edge));
+                if (!source.equals(target)) dependencies.add(new Dependency<T>(source, target));
+            }
+        }
+        return dependencies;
+    }
+
+    private static <T> List<Dependency<T>> difference(Set<Dependency<T>> dependencies, Set<Dependency<T>> others) {
+        List<Dependency<T>> difference = new ArrayList<Dependency<T>>();
+        for (Dependency<T> dependency : dependencies) if (!others.contains(dependency)) difference.add(dependency);
+        return difference;
+    }
+
+    // Iterates the edges of a graph, in the order of the common ids.
+    private static class EdgeCursor {
+
+        private final ClassGraph graph;
+        private final int[] ids;
+        private int source = 0;
+        private int edge = 0;
+
+        EdgeCursor(ClassGraph graph, int[] ids) {
+            this.graph = graph;
+            this.ids = ids;
+            skipEmptySources();
+        }
+
+        boolean hasEdge() {
+            return edge < graph.numberOfEdges();
+        }
+
+        long key() {
+            return ((long) ids[source] << 32) | ids[graph.efferent(edge)];
+        }
+
+        Dependency<JavaClass> dependency() {
+            return new Dependency<JavaClass>(graph.get(source), graph.get(graph.efferent(edge)));
+        }
+
+        void next() {
+            edge++;
+            skipEmptySources();
+        }
+
+        private void skipEmptySources() {
+            while (source < graph.size() && edge >= graph.efferentsEnd(source)) source++;
+        }
+
+    }
+
+}
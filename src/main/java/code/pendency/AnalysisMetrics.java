@@ -0,0 +1,195 @@
+package code.pendency;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects the measures of the analyses: the time spent in every phase, the bytes read, the classes parsed,
+ * the errors and the slowest class files or archives. The same metrics can collect many analyses and can be
+ * registered as an MBean, to be read over JMX.
+ */
+public class AnalysisMetrics implements MetricsListener, AnalysisMetricsMBean {
+
+    private final static int SLOWEST = 10;
+
+    private final int slowestCount;
+    private final AtomicLongArray phases = new AtomicLongArray(AnalysisPhase.values().length);
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong classesParsed = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile String lastError;
+    // The slowest inputs, the fastest of them first
+    private final PriorityQueue<Input> slowest = new PriorityQueue<Input>();
+
+    private AnalysisMetrics(int slowestCount) {
+        this.slowestCount = slowestCount;
+    }
+
+    public static AnalysisMetrics create() {
+        return new AnalysisMetrics(SLOWEST);
+    }
+
+    // Keeps the given number of slowest class files or archives (10 by default).
+    public static AnalysisMetrics create(int slowest) {
+        return new AnalysisMetrics(slowest);
+    }
+
+    @Override
+    public void onPhase(AnalysisPhase phase, long nanos) {
+        phases.addAndGet(phase.ordinal(), nanos);
+    }
+
+    @Override
+    public void onInput(String path, long bytes, int classes, long nanos) {
+        bytesRead.addAndGet(bytes);
+        classesParsed.addAndGet(classes);
+        if (slowestCount == 0) return;
+        synchronized (slowest) {
+            if (slowest.size() < slowestCount) {
+                slowest.add(new Input(path, bytes, nanos));
+            } else if (slowest.peek().nanos < nanos) {
+                slowest.poll();
+                slowest.add(new Input(path, bytes, nanos));
+            }
+        }
+    }
+
+    @Override
+    public void onError(String path, IOException error) {
+        errors.incrementAndGet();
+        lastError = path + ": " + error.getMessage();
+    }
+
+    public long getPhaseNanos(AnalysisPhase phase) {
+        return phases.get(phase.ordinal());
+    }
+
+    @Override
+    public long getScanMillis() {
+        return millis(AnalysisPhase.SCAN);
+    }
+
+    @Override
+    public long getReadMillis() {
+        return millis(AnalysisPhase.READ);
+    }
+
+    @Override
+    public long getParseMillis() {
+        return millis(AnalysisPhase.PARSE);
+    }
+
+    @Override
+    public long getLinkMillis() {
+        return millis(AnalysisPhase.LINK);
+    }
+
+    @Override
+    public long getGroupMillis() {
+        return millis(AnalysisPhase.GROUP);
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    @Override
+    public long getClassesParsed() {
+        return classesParsed.get();
+    }
+
+    // The classes parsed per second of reading and parsing.
+    @Override
+    public double getClassesPerSecond() {
+        long nanos = getPhaseNanos(AnalysisPhase.READ) + getPhaseNanos(AnalysisPhase.PARSE);
+        return nanos == 0 ? 0 : classesParsed.get() * 1e9 / nanos;
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.get();
+    }
+
+    // The path and the message of the last error, null if there was no error.
+    @Override
+    public String getLastError() {
+        return lastError;
+    }
+
+    // The slowest class files or archives, the slowest first: path, milliseconds and bytes separated by tabs.
+    @Override
+    public String[] getSlowestInputs() {
+        List<Input> inputs;
+        synchronized (slowest) {
+            inputs = new ArrayList<Input>(slowest);
+        }
+        Collections.sort(inputs, Collections.reverseOrder());
+        String[] result = new String[inputs.size()];
+        for (int i = 0; i < result.length; i++) {
+            Input input = inputs.get(i);
+            result[i] = input.path + "\t" + TimeUnit.NANOSECONDS.toMillis(input.nanos) + "\t" + input.bytes;
+        }
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < phases.length(); i++) phases.set(i, 0);
+        bytesRead.set(0);
+        classesParsed.set(0);
+        errors.set(0);
+        lastError = null;
+        synchronized (slowest) {
+            slowest.clear();
+        }
+    }
+
+    // Registers the metrics in the platform MBean server as code.pendency:type=AnalysisMetrics,name=<name>.
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = objectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    public void unregisterMBean(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = objectName(name);
+        if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("code.pendency:type=AnalysisMetrics,name=" + ObjectName.quote(name));
+    }
+
+    private long millis(AnalysisPhase phase) {
+        return TimeUnit.NANOSECONDS.toMillis(getPhaseNanos(phase));
+    }
+
+    private static class Input implements Comparable<Input> {
+
+        final String path;
+        final long bytes;
+        final long nanos;
+
+        Input(String path, long bytes, long nanos) {
+            this.path = path;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public int compareTo(Input other) {
+            return nanos < other.nanos ? -1 : (nanos == other.nanos ? 0 : 1);
+        }
+
+    }
+
+}
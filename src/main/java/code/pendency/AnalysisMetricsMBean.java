@@ -0,0 +1,32 @@
+package code.pendency;
+
+/**
+ * The attributes of {@link AnalysisMetrics} exposed over JMX.
+ */
+public interface AnalysisMetricsMBean {
+
+    long getScanMillis();
+
+    long getReadMillis();
+
+    long getParseMillis();
+
+    long getLinkMillis();
+
+    long getGroupMillis();
+
+    long getBytesRead();
+
+    long getClassesParsed();
+
+    double getClassesPerSecond();
+
+    long getErrors();
+
+    String getLastError();
+
+    String[] getSlowestInputs();
+
+    void reset();
+
+}
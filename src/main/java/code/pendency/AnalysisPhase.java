@@ -0,0 +1,19 @@
+package code.pendency;
+
+/**
+ * The phases of an analysis measured by a {@link MetricsListener}.
+ */
+public enum AnalysisPhase {
+
+    // Walking the directories to find the class files and the archives
+    SCAN,
+    // Reading the class files and inflating the entries of the archives
+    READ,
+    // Decoding the class files (constant pool, fields, methods and attributes)
+    PARSE,
+    // Linking the classes to their efferents and afferents
+    LINK,
+    // Grouping the classes (see Analysis.group)
+    GROUP
+
+}
@@ -0,0 +1,311 @@
+package code.pendency;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Query over the classes of an analysis. The query is immutable, every condition returns a new query.
+ * The conditions are resolved with the indexes of the analysis (built once, on first use), the most selective
+ * index gives the candidate classes and the remaining conditions are checked on the candidates only.
+ */
+public class AnalysisQuery {
+
+    private final static int NO_VERSION = -1;
+
+    private final QueryIndex index;
+    private final String prefix;
+    private final String jarName;
+    private final int majorVersion;
+    private final boolean onlyInterfaces;
+    private final boolean onlyAbstracts;
+    private final String efferentPrefix;
+    private final String afferentPrefix;
+
+    AnalysisQuery(QueryIndex index) {
+        this(index, null, null, NO_VERSION, false, false, null, null);
+    }
+
+    private AnalysisQuery(QueryIndex index,
+                          String prefix,
+                          String jarName,
+                          int majorVersion,
+                          boolean onlyInterfaces,
+                          boolean onlyAbstracts,
+                          String efferentPrefix,
+                          String afferentPrefix) {
+        this.index = index;
+        this.prefix = prefix;
+        this.jarName = jarName;
+        this.majorVersion = majorVersion;
+        this.onlyInterfaces = onlyInterfaces;
+        this.onlyAbstracts = onlyAbstracts;
+        this.efferentPrefix = efferentPrefix;
+        this.afferentPrefix = afferentPrefix;
+    }
+
+    // Classes with the name starting with the prefix (e.g. a package name).
+    public AnalysisQuery withPrefix(String prefix) {
+        return new AnalysisQuery(index, prefix, jarName, majorVersion, onlyInterfaces, onlyAbstracts, efferentPrefix, afferentPrefix);
+    }
+
+    public AnalysisQuery inJar(String jarName) {
+        return new AnalysisQuery(index, prefix, jarName, majorVersion, onlyInterfaces, onlyAbstracts, efferentPrefix, afferentPrefix);
+    }
+
+    public AnalysisQuery withMajorVersion(int majorVersion) {
+        return new AnalysisQuery(index, prefix, jarName, majorVersion, onlyInterfaces, onlyAbstracts, efferentPrefix, afferentPrefix);
+    }
+
+    public AnalysisQuery interfaces() {
+        return new AnalysisQuery(index, prefix, jarName, majorVersion, true, onlyAbstracts, efferentPrefix, afferentPrefix);
+    }
+
+    public AnalysisQuery abstracts() {
+        return new AnalysisQuery(index, prefix, jarName, majorVersion, onlyInterfaces, true, efferentPrefix, afferentPrefix);
+    }
+
+    // Classes depending on at least one class with the name starting with the prefix.
+    public AnalysisQuery dependingOn(String prefix) {
+        return new AnalysisQuery(index, this.prefix, jarName, majorVersion, onlyInterfaces, onlyAbstracts, prefix, afferentPrefix);
+    }
+
+    // Classes used by at least one class with the name starting with the prefix.
+    public AnalysisQuery usedBy(String prefix) {
+        return new AnalysisQuery(index, this.prefix, jarName, majorVersion, onlyInterfaces, onlyAbstracts, efferentPrefix, prefix);
+    }
+
+    public List<JavaClass> list() {
+        ClassGraph graph = index.graph();
+        Candidates candidates = candidates();
+        Condition condition = condition();
+        List<JavaClass> result = new ArrayList<JavaClass>();
+        for (int i = 0; i < candidates.size(); i++) {
+            int id = candidates.get(i);
+            if (condition.accept(id)) result.add(graph.get(id));
+        }
+        return result;
+    }
+
+    public int count() {
+        Candidates candidates = candidates();
+        Condition condition = condition();
+        int count = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            if (condition.accept(candidates.get(i))) count++;
+        }
+        return count;
+    }
+
+    // The first k classes with the highest afferent coupling.
+    public List<JavaClass> topByAfferentCoupling(int k) {
+        return top(k, index.byAfferentCoupling(), true);
+    }
+
+    // The first k classes with the highest efferent coupling.
+    public List<JavaClass> topByEfferentCoupling(int k) {
+        return top(k, index.byEfferentCoupling(), false);
+    }
+
+    private List<JavaClass> top(int k, int[] sorted, boolean afferent) {
+        ClassGraph graph = index.graph();
+        Candidates candidates = candidates();
+        Condition condition = condition();
+        // Few candidates: keep the best k with a heap, otherwise walk the sorted index until k classes match.
+        if (candidates.size() < sorted.length / 4) {
+            PriorityQueue<Ranked> heap = new PriorityQueue<Ranked>(Math.max(k, 1));
+            for (int i = 0; i < candidates.size(); i++) {
+                int id = candidates.get(i);
+                if (condition.accept(id)) {
+                    heap.add(new Ranked(id, afferent ? graph.afferentCoupling(id) : graph.efferentCoupling(id)));
+                    if (heap.size() > k) heap.poll();
+                }
+            }
+            List<Ranked> ranked = new ArrayList<Ranked>(heap);
+            Collections.sort(ranked, Collections.reverseOrder());
+            List<JavaClass> result = new ArrayList<JavaClass>(ranked.size());
+            for (Ranked item : ranked) result.add(graph.get(item.id));
+            return result;
+        } else {
+            List<JavaClass> result = new ArrayList<JavaClass>(Math.max(k, 0));
+            for (int i = 0; i < sorted.length && result.size() < k; i++) {
+                if (condition.accept(sorted[i])) result.add(graph.get(sorted[i]));
+            }
+            return result;
+        }
+    }
+
+    // The candidates are taken from the smallest index among the conditions.
+    private Candidates candidates() {
+        ClassGraph graph = index.graph();
+        Candidates candidates = Candidates.range(0, graph.size());
+        if (prefix != null) {
+            candidates = Candidates.range(graph.prefixStart(prefix), graph.prefixEnd(prefix));
+        }
+        if (jarName != null) {
+            candidates = Candidates.smallest(candidates, Candidates.ids(index.withJarName(jarName)));
+        }
+        if (majorVersion != NO_VERSION) {
+            candidates = Candidates.smallest(candidates, Candidates.ids(index.withMajorVersion(majorVersion)));
+        }
+        if (onlyInterfaces) {
+            candidates = Candidates.smallest(candidates, Candidates.ids(index.interfaces()));
+        }
+        if (onlyAbstracts) {
+            candidates = Candidates.smallest(candidates, Candidates.ids(index.abstracts()));
+        }
+        return candidates;
+    }
+
+    private Condition condition() {
+        final ClassGraph graph = index.graph();
+        Condition condition = Condition.ALL;
+        if (prefix != null) {
+            final int start = graph.prefixStart(prefix);
+            final int end = graph.prefixEnd(prefix);
+            condition = condition.and(new Condition() {
+                @Override
+                boolean accept(int id) {
+                    return id >= start && id < end;
+                }
+            });
+        }
+        if (jarName != null) {
+            condition = condition.and(new Condition() {
+                @Override
+                boolean accept(int id) {
+                    return jarName.equals(graph.get(id).getJarName());
+                }
+            });
+        }
+        if (majorVersion != NO_VERSION) {
+            condition = condition.and(new Condition() {
+                @Override
+                boolean accept(int id) {
+                    return graph.get(id).getMajorVersion() == majorVersion;
+                }
+            });
+        }
+        if (onlyInterfaces) {
+            condition = condition.and(new Condition() {
+                @Override
+                boolean accept(int id) {
+                    return graph.get(id).isInterface();
+                }
+            });
+        }
+        if (onlyAbstracts) {
+            condition = condition.and(new Condition() {
+                @Override
+                boolean accept(int id) {
+                    return graph.get(id).isAbstract();
+                }
+            });
+        }
+        if (efferentPrefix != null) {
+            final int start = graph.prefixStart(efferentPrefix);
+            final int end = graph.prefixEnd(efferentPrefix);
+            condition = condition.and(new Condition() {
+                @Override
+                boolean accept(int id) {
+                    return graph.hasEfferentIn(id, start, end);
+                }
+            });
+        }
+        if (afferentPrefix != null) {
+            final int start = graph.prefixStart(afferentPrefix);
+            final int end = graph.prefixEnd(afferentPrefix);
+            condition = condition.and(new Condition() {
+                @Override
+                boolean accept(int id) {
+                    return graph.hasAfferentIn(id, start, end);
+                }
+            });
+        }
+        return condition;
+    }
+
+    private static abstract class Condition {
+
+        final static Condition ALL = new Condition() {
+            @Override
+            boolean accept(int id) {
+                return true;
+            }
+        };
+
+        abstract boolean accept(int id);
+
+        Condition and(final Condition other) {
+            if (this == ALL) return other;
+            if (other == ALL) return this;
+            final Condition first = this;
+            return new Condition() {
+                @Override
+                boolean accept(int id) {
+                    return first.accept(id) && other.accept(id);
+                }
+            };
+        }
+
+    }
+
+    private static abstract class Candidates {
+
+        abstract int size();
+
+        abstract int get(int index);
+
+        static Candidates smallest(Candidates first, Candidates second) {
+            return first.size() <= second.size() ? first : second;
+        }
+
+        static Candidates range(final int start, final int end) {
+            return new Candidates() {
+                @Override
+                int size() {
+                    return Math.max(end - start, 0);
+                }
+
+                @Override
+                int get(int index) {
+                    return start + index;
+                }
+            };
+        }
+
+        static Candidates ids(final int[] ids) {
+            return new Candidates() {
+                @Override
+                int size() {
+                    return ids.length;
+                }
+
+                @Override
+                int get(int index) {
+                    return ids[index];
+                }
+            };
+        }
+
+    }
+
+    private static class Ranked implements Comparable<Ranked> {
+        final int id;
+        final int coupling;
+
+        Ranked(int id, int coupling) {
+            this.id = id;
+            this.coupling = coupling;
+        }
+
+        // Lower coupling first, with the same coupling the class with the higher id (name) first.
+        @Override
+        public int compareTo(Ranked other) {
+            if (coupling != other.coupling) return coupling < other.coupling ? -1 : 1;
+            return id > other.id ? -1 : (id < other.id ? 1 : 0);
+        }
+    }
+
+}
@@ -0,0 +1,224 @@
+package code.pendency;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * Stores an analysis in a compact binary format and loads it back, so a baseline can be compared
+ * without scanning the classes again. A snapshot can also be mapped in memory instead of loaded, keeping
+ * the graph off the heap.
+ * <p>
+ * The format is made of big endian integers: a header, the string table (offsets and UTF-8 bytes),
+ * the classes (fixed records of string ids and attributes, in name order), the efferents (with a short for the
+ * dependency kinds of every edge), the afferents and the annotations as adjacency arrays. The byte and short
+ * sections are padded to 4 bytes.
+ */
+public class AnalysisSnapshot {
+
+    final static int MAGIC = 0xC0DE9E4D;
+    final static int VERSION = 5;
+    final static int HEADER_INTS = 6;
+    final static int RECORD_INTS = 7;
+    final static int NO_STRING = -1;
+    final static int FLAG_ABSTRACT = 1;
+    final static int FLAG_INTERFACE = 2;
+    final static int FLAG_MAIN_METHOD = 4;
+
+    private AnalysisSnapshot() {
+    }
+
+    public static void save(Analysis analysis, File file) throws IOException {
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            write(analysis, os);
+        } finally {
+            os.close();
+        }
+    }
+
+    public static Analysis load(File file) throws IOException {
+        InputStream is = new BufferedInputStream(new FileInputStream(file));
+        try {
+            return read(is);
+        } finally {
+            is.close();
+        }
+    }
+
+    // The analysis reads the classes from the file mapped in memory, when they are used. The file must not change
+    // while the analysis is used.
+    public static Analysis map(File file) throws IOException {
+        return new Analysis(MappedClassGraph.map(file));
+    }
+
+    public static void write(Analysis analysis, OutputStream os) throws IOException {
+        ClassGraph graph = analysis.graph();
+        int size = graph.size();
+        // String table
+        StringTable strings = new StringTable();
+        int[] records = new int[size * 4];
+        int[] annotationOffsets = new int[size + 1];
+        IntList annotations = new IntList();
+        for (int id = 0; id < size; id++) {
+            JavaClass javaClass = graph.get(id);
+            records[id * 4] = strings.add(javaClass.getClassName());
+            records[id * 4 + 1] = strings.add(javaClass.getPackageName());
+            records[id * 4 + 2] = strings.add(javaClass.getSourceFile());
+            records[id * 4 + 3] = strings.add(javaClass.getJarName());
+            annotationOffsets[id] = annotations.size();
+            for (String annotation : javaClass.getAnnotations()) annotations.add(strings.add(annotation));
+        }
+        annotationOffsets[size] = annotations.size();
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(size);
+        out.writeInt(graph.numberOfEdges());
+        out.writeInt(strings.size());
+        out.writeInt(strings.bytes.size());
+        for (int i = 0; i < strings.size(); i++) out.writeInt(strings.offsets.get(i));
+        out.writeInt(strings.bytes.size());
+        strings.bytes.writeTo(out);
+        out.write(new byte[padding(strings.bytes.size())]);
+        // Classes
+        for (int id = 0; id < size; id++) {
+            JavaClass javaClass = graph.get(id);
+            out.writeInt(records[id * 4]);
+            out.writeInt(records[id * 4 + 1]);
+            out.writeInt(records[id * 4 + 2]);
+            out.writeInt(records[id * 4 + 3]);
+            out.writeInt(javaClass.getMinorVersion());
+            out.writeInt(javaClass.getMajorVersion());
+            out.writeInt((javaClass.isAbstract() ? FLAG_ABSTRACT : 0) |
+                    (javaClass.isInterface() ? FLAG_INTERFACE : 0) |
+                    (javaClass.hasMainMethod() ? FLAG_MAIN_METHOD : 0));
+        }
+        // Efferents
+        for (int id = 0; id < size; id++) out.writeInt(graph.efferentsStart(id));
+        out.writeInt(graph.numberOfEdges());
+        for (int edge = 0; edge < graph.numberOfEdges(); edge++) out.writeInt(graph.efferent(edge));
+        for (int edge = 0; edge < graph.numberOfEdges(); edge++) out.writeShort(graph.kinds(edge));
+        out.write(new byte[padding(graph.numberOfEdges() * 2)]);
+        // Afferents
+        for (int id = 0; id < size; id++) out.writeInt(graph.afferentsStart(id));
+        out.writeInt(graph.numberOfEdges());
+        for (int edge = 0; edge < graph.numberOfEdges(); edge++) out.writeInt(graph.afferent(edge));
+        // Annotations
+        for (int offset : annotationOffsets) out.writeInt(offset);
+        for (int i = 0; i < annotations.size(); i++) out.writeInt(annotations.get(i));
+        out.flush();
+    }
+
+    public static Analysis read(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Invalid snapshot: does not begin with the snapshot magic code");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+        int size = in.readInt();
+        int edges = in.readInt();
+        // String table
+        int stringCount = in.readInt();
+        int stringBytes = in.readInt();
+        int[] stringOffsets = new int[stringCount + 1];
+        for (int i = 0; i <= stringCount; i++) stringOffsets[i] = in.readInt();
+        byte[] bytes = new byte[stringBytes];
+        in.readFully(bytes);
+        skip(in, padding(stringBytes));
+        String[] strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            strings[i] = new String(bytes, stringOffsets[i], stringOffsets[i + 1] - stringOffsets[i], StringTable.UTF8);
+        }
+        // Classes
+        int[] records = new int[size * RECORD_INTS];
+        for (int i = 0; i < records.length; i++) records[i] = in.readInt();
+        // Efferents
+        int[] offsets = new int[size + 1];
+        for (int id = 0; id <= size; id++) offsets[id] = in.readInt();
+        int[] efferents = new int[edges];
+        for (int edge = 0; edge < edges; edge++) efferents[edge] = in.readInt();
+        int[] kinds = new int[edges];
+        for (int edge = 0; edge < edges; edge++) kinds[edge] = in.readUnsignedShort();
+        skip(in, padding(edges * 2));
+        // Afferents, computed again when the analysis is linked
+        skip(in, (size + 1 + (long) edges) * 4);
+        // Annotations
+        int[] annotationOffsets = new int[size + 1];
+        for (int id = 0; id <= size; id++) annotationOffsets[id] = in.readInt();
+        int[] annotations = new int[annotationOffsets[size]];
+        for (int i = 0; i < annotations.length; i++) annotations[i] = in.readInt();
+        List<JavaClass> javaClasses = new ArrayList<JavaClass>(size);
+        for (int id = 0; id < size; id++) {
+            int record = id * RECORD_INTS;
+            Map<String, Integer> efferentIds = new HashMap<String, Integer>(offsets[id + 1] - offsets[id]);
+            for (int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+                efferentIds.put(strings[records[efferents[edge] * RECORD_INTS]], kinds[edge]);
+            }
+            Set<String> annotationNames = new HashSet<String>(annotationOffsets[id + 1] - annotationOffsets[id]);
+            for (int i = annotationOffsets[id]; i < annotationOffsets[id + 1]; i++) annotationNames.add(strings[annotations[i]]);
+            int flags = records[record + 6];
+            javaClasses.add(new JavaClass(
+                    records[record + 4],
+                    records[record + 5],
+                    string(strings, records[record]),
+                    string(strings, records[record + 1]),
+                    (flags & FLAG_ABSTRACT) != 0,
+                    (flags & FLAG_INTERFACE) != 0,
+                    string(strings, records[record + 2]),
+                    string(strings, records[record + 3]),
+                    (flags & FLAG_MAIN_METHOD) != 0,
+                    Collections.unmodifiableSet(annotationNames),
+                    efferentIds));
+        }
+        return Codependency.link(javaClasses);
+    }
+
+    // The bytes to add after a section of the given length to align the next one to 4 bytes.
+    static int padding(int length) {
+        return (4 - (length & 3)) & 3;
+    }
+
+    private static void skip(DataInputStream in, long length) throws IOException {
+        while (length > 0) {
+            int skipped = in.skipBytes((int) Math.min(length, Integer.MAX_VALUE));
+            if (skipped <= 0) throw new EOFException();
+            length -= skipped;
+        }
+    }
+
+    private static String string(String[] strings, int index) {
+        return index == NO_STRING ? null : strings[index];
+    }
+
+    static class StringTable {
+
+        final static Charset UTF8 = Charset.forName("UTF-8");
+
+        private final Map<String, Integer> ids = new HashMap<String, Integer>();
+        private final IntList offsets = new IntList();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        int add(String value) {
+            if (value == null) return NO_STRING;
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = offsets.size();
+                byte[] encoded = value.getBytes(UTF8);
+                offsets.add(bytes.size());
+                bytes.write(encoded, 0, encoded.length);
+                ids.put(value, id);
+            }
+            return id;
+        }
+
+        int size() {
+            return offsets.size();
+        }
+
+    }
+
+}
@@ -0,0 +1,91 @@
+package code.pendency;
+
+import java.util.concurrent.*;
+
+/**
+ * An analysis running in another thread (see {@link Codependency#analyzeAsync}). The cancellation is
+ * cooperative: the scan of the files stops before the next file and the parsing before the next class, no thread
+ * is interrupted unless requested.
+ * <p>
+ * When the deadline passes the scan and the parsing stop as well, but the classes already parsed are linked and
+ * the task completes with a partial analysis. The linking is never stopped, so the task completes after the
+ * deadline by the time needed to link the classes already parsed.
+ */
+public class AnalysisTask implements Future<Analysis> {
+
+    private final ProgressListener progress;
+    private final long deadline;
+    private final boolean hasDeadline;
+    private final FutureTask<Analysis> future;
+    private volatile boolean cancelled = false;
+    private volatile boolean partial = false;
+
+    AnalysisTask(final Codependency codependency, ProgressListener progress, long timeoutNanos) {
+        this.progress = progress;
+        this.hasDeadline = timeoutNanos > 0;
+        this.deadline = System.nanoTime() + timeoutNanos;
+        this.future = new FutureTask<Analysis>(new Callable<Analysis>() {
+            @Override
+            public Analysis call() {
+                return codependency.analyze(AnalysisTask.this);
+            }
+        });
+    }
+
+    void start() {
+        Thread thread = new Thread(future, "codependency-analysis");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // True if the deadline passed before all the files were scanned and parsed.
+    public boolean isPartial() {
+        return partial;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        cancelled = true;
+        return future.cancel(mayInterruptIfRunning);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return future.isCancelled();
+    }
+
+    @Override
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    @Override
+    public Analysis get() throws InterruptedException, ExecutionException {
+        return future.get();
+    }
+
+    @Override
+    public Analysis get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        return future.get(timeout, unit);
+    }
+
+    // Checked before every scanned file and every parsed class: true if the task is cancelled or late.
+    boolean isStopping() {
+        if (cancelled) return true;
+        if (hasDeadline && System.nanoTime() - deadline > 0) partial = true;
+        return partial;
+    }
+
+    void filesDiscovered(int files) {
+        if (progress != null) progress.onFilesDiscovered(files);
+    }
+
+    void fileParsed(int parsed, int files) {
+        if (progress != null) progress.onFileParsed(parsed, files);
+    }
+
+    void linking(int classes) {
+        if (progress != null) progress.onLinking(classes);
+    }
+
+}
@@ -0,0 +1,197 @@
+package code.pendency;
+
+import java.util.*;
+
+/**
+ * Declarative architecture rules checked against an analysis, e.g. "..domain.." must not depend on "..infrastructure..".
+ * In the package patterns ".." matches any number of packages (also none) and "*" any part of a package name.
+ * <p>
+ * All the patterns are compiled once into a single matcher, every package is matched once against all the
+ * patterns (as a bit set) and the verdict of every pair of packages is computed once: checking a dependency
+ * is then a lookup, whatever the number of rules.
+ */
+public class ArchitectureRules {
+
+    private final List<Rule> rules;
+
+    private ArchitectureRules(List<Rule> rules) {
+        this.rules = Collections.unmodifiableList(rules);
+    }
+
+    public static ArchitectureRules create() {
+        return new ArchitectureRules(Collections.<Rule>emptyList());
+    }
+
+    // The classes in the source packages must not depend on the classes in the target packages.
+    public ArchitectureRules mustNotDependOn(String source, String target) {
+        return with(new Rule(Rule.MUST_NOT_DEPEND, new PackagePattern(source), new PackagePattern[]{new PackagePattern(target)},
+                source + " must not depend on " + target));
+    }
+
+    // The classes in the source packages can depend only on the classes in the target packages.
+    public ArchitectureRules mayOnlyDependOn(String source, String... targets) {
+        PackagePattern[] patterns = new PackagePattern[targets.length];
+        for (int i = 0; i < targets.length; i++) patterns[i] = new PackagePattern(targets[i]);
+        return with(new Rule(Rule.MAY_ONLY_DEPEND, new PackagePattern(source), patterns,
+                source + " may only depend on " + Arrays.toString(targets)));
+    }
+
+    // The classes in the packages can be used from other jars only if they are in the api packages.
+    public ArchitectureRules exposesOnly(String packages, String api) {
+        return with(new Rule(Rule.EXPOSES_ONLY, new PackagePattern(packages), new PackagePattern[]{new PackagePattern(api)},
+                "only " + api + " of " + packages + " may be used from other jars"));
+    }
+
+    private ArchitectureRules with(Rule rule) {
+        List<Rule> rules = new ArrayList<Rule>(this.rules);
+        rules.add(rule);
+        return new ArchitectureRules(rules);
+    }
+
+    public int numberOfRules() {
+        return rules.size();
+    }
+
+    public List<RuleViolation> check(Analysis analysis) {
+        ClassGraph graph = analysis.graph();
+        Matcher matcher = new Matcher(rules);
+        // Package and jar of every class as ids
+        int[] packages = new int[graph.size()];
+        int[] jars = new int[graph.size()];
+        boolean[] resolved = new boolean[graph.size()];
+        Map<String, Integer> packageIds = new HashMap<String, Integer>();
+        Map<String, Integer> jarIds = new HashMap<String, Integer>();
+        List<long[]> packageMasks = new ArrayList<long[]>();
+        for (int id = 0; id < graph.size(); id++) {
+            JavaClass javaClass = graph.get(id);
+            Integer packageId = packageIds.get(javaClass.getPackageName());
+            if (packageId == null) {
+                packageId = packageMasks.size();
+                packageIds.put(javaClass.getPackageName(), packageId);
+                packageMasks.add(matcher.match(javaClass.getPackageName()));
+            }
+            packages[id] = packageId;
+            Integer jarId = jarIds.get(javaClass.getJarName());
+            if (jarId == null) {
+                jarId = jarIds.size();
+                jarIds.put(javaClass.getJarName(), jarId);
+            }
+            jars[id] = jarId;
+            resolved[id] = !javaClass.isReferenceOnly();
+        }
+        // One pass over the dependencies, the verdict is computed once per pair of packages.
+        LongIntMap verdictIds = new LongIntMap(packageMasks.size());
+        List<int[]> verdicts = new ArrayList<int[]>();
+        List<RuleViolation> violations = new ArrayList<RuleViolation>();
+        for (int source = 0; source < graph.size(); source++) {
+            for (int edge = graph.efferentsStart(source); edge < graph.efferentsEnd(source); edge++) {
+                int target = graph.efferent(edge);
+                boolean otherJar = resolved[target] && jars[source] != jars[target];
+                long key = LongIntMap.pair(packages[source], packages[target] * 2 + (otherJar ? 1 : 0));
+                int verdictId = verdictIds.get(key);
+                if (verdictId == LongIntMap.NO_VALUE) {
+                    verdictId = verdicts.size();
+                    verdicts.add(matcher.violations(packageMasks.get(packages[source]), packageMasks.get(packages[target]), otherJar));
+                    verdictIds.put(key, verdictId);
+                }
+                int[] violated = verdicts.get(verdictId);
+                if (violated.length > 0) {
+                    Dependency<JavaClass> dependency = new Dependency<JavaClass>(graph.get(source), graph.get(target));
+                    for (int rule : violated) violations.add(new RuleViolation(rules.get(rule).description, dependency));
+                }
+            }
+        }
+        return violations;
+    }
+
+    private static class Rule {
+
+        final static int MUST_NOT_DEPEND = 0;
+        final static int MAY_ONLY_DEPEND = 1;
+        final static int EXPOSES_ONLY = 2;
+
+        final int type;
+        final PackagePattern source;
+        final PackagePattern[] targets;
+        final String description;
+
+        Rule(int type, PackagePattern source, PackagePattern[] targets, String description) {
+            this.type = type;
+            this.source = source;
+            this.targets = targets;
+            this.description = description;
+        }
+
+    }
+
+    // All the distinct patterns of the rules, a package is matched against all of them at once.
+    private static class Matcher {
+
+        private final List<PackagePattern> patterns = new ArrayList<PackagePattern>();
+        private final int[] sources;
+        private final int[][] targets;
+        private final int[] types;
+
+        Matcher(List<Rule> rules) {
+            Map<PackagePattern, Integer> ids = new HashMap<PackagePattern, Integer>();
+            sources = new int[rules.size()];
+            targets = new int[rules.size()][];
+            types = new int[rules.size()];
+            for (int r = 0; r < rules.size(); r++) {
+                Rule rule = rules.get(r);
+                types[r] = rule.type;
+                sources[r] = id(rule.source, ids);
+                targets[r] = new int[rule.targets.length];
+                for (int t = 0; t < rule.targets.length; t++) targets[r][t] = id(rule.targets[t], ids);
+            }
+        }
+
+        private int id(PackagePattern pattern, Map<PackagePattern, Integer> ids) {
+            Integer id = ids.get(pattern);
+            if (id == null) {
+                id = patterns.size();
+                patterns.add(pattern);
+                ids.put(pattern, id);
+            }
+            return id;
+        }
+
+        long[] match(String packageName) {
+            long[] mask = new long[(patterns.size() + 63) / 64];
+            for (int p = 0; p < patterns.size(); p++) {
+                if (patterns.get(p).matches(packageName)) mask[p >> 6] |= 1L << p;
+            }
+            return mask;
+        }
+
+        int[] violations(long[] source, long[] target, boolean otherJar) {
+            IntList violated = new IntList(0);
+            for (int r = 0; r < types.length; r++) {
+                boolean violation;
+                switch (types[r]) {
+                    case Rule.MUST_NOT_DEPEND:
+                        violation = has(source, sources[r]) && has(target, targets[r][0]);
+                        break;
+                    case Rule.MAY_ONLY_DEPEND:
+                        violation = has(source, sources[r]) && !hasAny(target, targets[r]);
+                        break;
+                    default:
+                        violation = otherJar && has(target, sources[r]) && !has(target, targets[r][0]);
+                }
+                if (violation) violated.add(r);
+            }
+            return violated.toArray();
+        }
+
+        private static boolean has(long[] mask, int pattern) {
+            return (mask[pattern >> 6] & (1L << pattern)) != 0;
+        }
+
+        private static boolean hasAny(long[] mask, int[] patterns) {
+            for (int pattern : patterns) if (has(mask, pattern)) return true;
+            return false;
+        }
+
+    }
+
+}
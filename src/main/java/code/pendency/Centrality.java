@@ -0,0 +1,398 @@
+package code.pendency;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Centrality of the classes (or of the groups) of an analysis, to find the classes that are load bearing also
+ * indirectly: PageRank, transitive fan-in (the number of classes depending on a class directly or not) and
+ * an approximation of the betweenness.
+ * <p>
+ * The computations run on primitive arrays and are split between the threads: PageRank iterates until the
+ * sum of the changes is below the tolerance (or the maximum number of iterations is reached), the fan-in
+ * is computed on the graph of the strongly connected components and the betweenness (Brandes) from a sample
+ * of the classes as sources. The results are ordered by decreasing score.
+ */
+public class Centrality {
+
+    private final static double DAMPING_FACTOR = 0.85;
+    private final static double TOLERANCE = 1e-6;
+    private final static int MAX_ITERATIONS = 100;
+    private final static int ALL_SOURCES = 0;
+
+    private final double dampingFactor;
+    private final double tolerance;
+    private final int maxIterations;
+    private final int threads;
+    private final int samples;
+    private final long seed;
+
+    private Centrality(double dampingFactor, double tolerance, int maxIterations, int threads, int samples, long seed) {
+        this.dampingFactor = dampingFactor;
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+        this.threads = threads;
+        this.samples = samples;
+        this.seed = seed;
+    }
+
+    public static Centrality create() {
+        return new Centrality(DAMPING_FACTOR, TOLERANCE, MAX_ITERATIONS, Runtime.getRuntime().availableProcessors(), ALL_SOURCES, 0);
+    }
+
+    // The probability to follow a dependency instead of jumping to a random class (0.85 by default).
+    public Centrality withDampingFactor(double dampingFactor) {
+        return new Centrality(dampingFactor, tolerance, maxIterations, threads, samples, seed);
+    }
+
+    // PageRank stops when the sum of the changes of an iteration is below the tolerance (1e-6 by default)...
+    public Centrality withTolerance(double tolerance) {
+        return new Centrality(dampingFactor, tolerance, maxIterations, threads, samples, seed);
+    }
+
+    // ... or after the maximum number of iterations (100 by default).
+    public Centrality withMaxIterations(int maxIterations) {
+        return new Centrality(dampingFactor, tolerance, maxIterations, threads, samples, seed);
+    }
+
+    // The number of threads (the number of processors by default).
+    public Centrality withThreads(int threads) {
+        return new Centrality(dampingFactor, tolerance, maxIterations, Math.max(threads, 1), samples, seed);
+    }
+
+    // The betweenness is approximated from the given number of sources chosen randomly (by default all the classes are used).
+    public Centrality withSamples(int samples, long seed) {
+        return new Centrality(dampingFactor, tolerance, maxIterations, threads, samples, seed);
+    }
+
+    public Map<JavaClass, Double> pageRank(Analysis analysis) {
+        ClassGraph graph = analysis.graph();
+        return classScores(graph, pageRank(Digraph.of(graph)));
+    }
+
+    public <T> Map<T, Double> pageRank(Analysis analysis, Analysis.GroupById<T> extractor) {
+        Groups<T> groups = new Groups<T>(analysis.graph(), extractor);
+        return groups.scores(pageRank(groups.digraph));
+    }
+
+    // The number of classes depending on the class, directly or not.
+    public Map<JavaClass, Integer> transitiveFanIn(Analysis analysis) {
+        ClassGraph graph = analysis.graph();
+        return classScores(graph, transitiveFanIn(Digraph.of(graph)));
+    }
+
+    // The number of groups depending on the group, directly or not.
+    public <T> Map<T, Integer> transitiveFanIn(Analysis analysis, Analysis.GroupById<T> extractor) {
+        Groups<T> groups = new Groups<T>(analysis.graph(), extractor);
+        return groups.scores(transitiveFanIn(groups.digraph));
+    }
+
+    public Map<JavaClass, Double> betweenness(Analysis analysis) {
+        ClassGraph graph = analysis.graph();
+        return classScores(graph, betweenness(Digraph.of(graph)));
+    }
+
+    public <T> Map<T, Double> betweenness(Analysis analysis, Analysis.GroupById<T> extractor) {
+        Groups<T> groups = new Groups<T>(analysis.graph(), extractor);
+        return groups.scores(betweenness(groups.digraph));
+    }
+
+    // Pull based: the rank of a node is computed from the ranks of its afferents, so every node is written by
+    // a single thread. The rank of the nodes without efferents is spread on all the nodes.
+    private double[] pageRank(final Digraph digraph) {
+        final int size = digraph.size;
+        if (size == 0) return new double[0];
+        final double[] shares = new double[size];
+        double dangling = 0;
+        for (int id = 0; id < size; id++) {
+            int coupling = digraph.efferentCoupling(id);
+            shares[id] = coupling == 0 ? 0 : 1.0 / coupling;
+            if (coupling == 0) dangling += 1.0 / size;
+        }
+        double[] ranks = new double[size];
+        Arrays.fill(ranks, 1.0 / size);
+        double[] next = new double[size];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int iteration = 0; iteration < maxIterations; iteration++) {
+                final double[] current = ranks;
+                final double[] updated = next;
+                final double base = (1 - dampingFactor) / size + dampingFactor * dangling / size;
+                List<double[]> results = Parallel.run(executor, threads, size, new Parallel.Chunk() {
+                    @Override
+                    public double[] call(int from, int to) {
+                        double change = 0;
+                        double dangling = 0;
+                        for (int id = from; id < to; id++) {
+                            double sum = 0;
+                            for (int edge = digraph.afferentOffsets[id]; edge < digraph.afferentOffsets[id + 1]; edge++) {
+                                int afferent = digraph.afferents[edge];
+                                sum += current[afferent] * shares[afferent];
+                            }
+                            double rank = base + dampingFactor * sum;
+                            updated[id] = rank;
+                            change += Math.abs(rank - current[id]);
+                            if (shares[id] == 0) dangling += rank;
+                        }
+                        return new double[]{change, dangling};
+                    }
+                });
+                double change = 0;
+                dangling = 0;
+                for (double[] result : results) {
+                    change += result[0];
+                    dangling += result[1];
+                }
+                next = ranks;
+                ranks = updated;
+                if (change < tolerance) break;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return ranks;
+    }
+
+    // All the nodes of a strongly connected component have the same afferents, the search runs on the
+    // graph of the components, from every component in parallel.
+    private int[] transitiveFanIn(Digraph digraph) {
+        int size = digraph.size;
+        final int[] components = digraph.components();
+        int numberOfComponents = 0;
+        for (int component : components) numberOfComponents = Math.max(numberOfComponents, component + 1);
+        final int[] sizes = new int[numberOfComponents];
+        for (int component : components) sizes[component]++;
+        final Digraph condensed = digraph.condense(components, numberOfComponents);
+        final int[] fanIns = new int[numberOfComponents];
+        final int count = numberOfComponents;
+        // The search arrays of every thread, the visits are stamped by component so they are never reset
+        final ThreadLocal<int[]> visits = new ThreadLocal<int[]>() {
+            @Override
+            protected int[] initialValue() {
+                return new int[count];
+            }
+        };
+        final ThreadLocal<int[]> queues = new ThreadLocal<int[]>() {
+            @Override
+            protected int[] initialValue() {
+                return new int[count];
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Parallel.run(executor, threads, count, new Parallel.Chunk() {
+                @Override
+                public double[] call(int from, int to) {
+                    int[] visited = visits.get();
+                    int[] queue = queues.get();
+                    for (int component = from; component < to; component++) {
+                        int stamp = component + 1;
+                        int head = 0, tail = 0;
+                        int fanIn = sizes[component] - 1;
+                        visited[component] = stamp;
+                        queue[tail++] = component;
+                        while (head < tail) {
+                            int node = queue[head++];
+                            for (int edge = condensed.afferentOffsets[node]; edge < condensed.afferentOffsets[node + 1]; edge++) {
+                                int afferent = condensed.afferents[edge];
+                                if (visited[afferent] != stamp) {
+                                    visited[afferent] = stamp;
+                                    fanIn += sizes[afferent];
+                                    queue[tail++] = afferent;
+                                }
+                            }
+                        }
+                        fanIns[component] = fanIn;
+                    }
+                    return null;
+                }
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+        int[] scores = new int[size];
+        for (int id = 0; id < size; id++) scores[id] = fanIns[components[id]];
+        return scores;
+    }
+
+    // Brandes algorithm from every source (or from a sample): the chunks of a thread accumulate in the arrays of
+    // the thread, summed at the end, so the memory is a few arrays by thread whatever the number of chunks.
+    private double[] betweenness(final Digraph digraph) {
+        final int size = digraph.size;
+        final int[] sources = sources(size);
+        final List<Brandes> threadBuffers = Collections.synchronizedList(new ArrayList<Brandes>(threads));
+        final ThreadLocal<Brandes> buffers = new ThreadLocal<Brandes>() {
+            @Override
+            protected Brandes initialValue() {
+                Brandes buffer = new Brandes(size);
+                threadBuffers.add(buffer);
+                return buffer;
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Parallel.run(executor, threads, sources.length, new Parallel.Chunk() {
+                @Override
+                public double[] call(int from, int to) {
+                    Brandes buffer = buffers.get();
+                    double[] scores = buffer.scores;
+                    int[] distances = buffer.distances;
+                    double[] paths = buffer.paths;
+                    double[] dependencies = buffer.dependencies;
+                    int[] order = buffer.order;
+                    for (int s = from; s < to; s++) {
+                        int source = sources[s];
+                        int head = 0, tail = 0;
+                        distances[source] = 0;
+                        paths[source] = 1;
+                        order[tail++] = source;
+                        // Breadth first search, the visit order is also the queue
+                        while (head < tail) {
+                            int node = order[head++];
+                            for (int edge = digraph.efferentOffsets[node]; edge < digraph.efferentOffsets[node + 1]; edge++) {
+                                int efferent = digraph.efferents[edge];
+                                if (distances[efferent] < 0) {
+                                    distances[efferent] = distances[node] + 1;
+                                    order[tail++] = efferent;
+                                }
+                                if (distances[efferent] == distances[node] + 1) paths[efferent] += paths[node];
+                            }
+                        }
+                        // Dependencies accumulated in reverse order of distance
+                        for (int i = tail - 1; i >= 0; i--) {
+                            int node = order[i];
+                            for (int edge = digraph.afferentOffsets[node]; edge < digraph.afferentOffsets[node + 1]; edge++) {
+                                int afferent = digraph.afferents[edge];
+                                if (distances[afferent] >= 0 && distances[afferent] == distances[node] - 1) {
+                                    dependencies[afferent] += paths[afferent] / paths[node] * (1 + dependencies[node]);
+                                }
+                            }
+                            if (node != source) scores[node] += dependencies[node];
+                        }
+                        for (int i = 0; i < tail; i++) {
+                            int node = order[i];
+                            distances[node] = -1;
+                            paths[node] = 0;
+                            dependencies[node] = 0;
+                        }
+                    }
+                    return null;
+                }
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+        double[] scores = new double[size];
+        double scale = sources.length == 0 ? 0 : (double) size / sources.length;
+        for (Brandes buffer : threadBuffers) {
+            for (int id = 0; id < size; id++) scores[id] += buffer.scores[id] * scale;
+        }
+        return scores;
+    }
+
+    // The arrays of a thread computing the betweenness: the scores of its sources and the search from a source,
+    // reset after every source.
+    private static class Brandes {
+
+        final double[] scores;
+        final int[] distances;
+        final double[] paths;
+        final double[] dependencies;
+        final int[] order;
+
+        Brandes(int size) {
+            this.scores = new double[size];
+            this.distances = new int[size];
+            this.paths = new double[size];
+            this.dependencies = new double[size];
+            this.order = new int[size];
+            Arrays.fill(distances, -1);
+        }
+
+    }
+
+    private int[] sources(int size) {
+        int[] ids = new int[size];
+        for (int id = 0; id < size; id++) ids[id] = id;
+        if (samples == ALL_SOURCES || samples >= size) return ids;
+        // Partial Fisher-Yates shuffle
+        Random random = new Random(seed);
+        for (int i = 0; i < samples; i++) {
+            int j = i + random.nextInt(size - i);
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+        }
+        return Arrays.copyOf(ids, samples);
+    }
+
+    private static Map<JavaClass, Double> classScores(ClassGraph graph, double[] scores) {
+        return sorted(graph.classes(), scores);
+    }
+
+    private static Map<JavaClass, Integer> classScores(ClassGraph graph, int[] scores) {
+        return sorted(graph.classes(), scores);
+    }
+
+    // The keys ordered by decreasing score.
+    private static <K> Map<K, Double> sorted(List<K> keys, double[] scores) {
+        Map<K, Double> sorted = new LinkedHashMap<K, Double>(scores.length * 2);
+        for (long entry : byDecreasingScore(scores)) {
+            int id = LongIntMap.second(entry);
+            sorted.put(keys.get(id), scores[id]);
+        }
+        return sorted;
+    }
+
+    private static <K> Map<K, Integer> sorted(List<K> keys, int[] scores) {
+        double[] values = new double[scores.length];
+        for (int id = 0; id < scores.length; id++) values[id] = scores[id];
+        Map<K, Integer> sorted = new LinkedHashMap<K, Integer>(scores.length * 2);
+        for (long entry : byDecreasingScore(values)) {
+            int id = LongIntMap.second(entry);
+            sorted.put(keys.get(id), scores[id]);
+        }
+        return sorted;
+    }
+
+    // The ids sorted by decreasing score as pairs (rank of the score, id): the scores are not negative so
+    // the order of the bits of the doubles is the order of the values.
+    private static long[] byDecreasingScore(double[] scores) {
+        long[] bits = new long[scores.length];
+        for (int id = 0; id < scores.length; id++) bits[id] = Double.doubleToLongBits(scores[id]);
+        long[] distinct = bits.clone();
+        Arrays.sort(distinct);
+        int count = 0;
+        for (int i = 0; i < distinct.length; i++) if (count == 0 || distinct[i] != distinct[count - 1]) distinct[count++] = distinct[i];
+        long[] entries = new long[scores.length];
+        for (int id = 0; id < scores.length; id++) {
+            int rank = count - 1 - Arrays.binarySearch(distinct, 0, count, bits[id]);
+            entries[id] = LongIntMap.pair(rank, id);
+        }
+        Arrays.sort(entries);
+        return entries;
+    }
+
+    // The groups of the classes with their graph.
+    private static class Groups<T> {
+
+        final GroupIds<T> ids;
+        final Digraph digraph;
+
+        Groups(ClassGraph graph, Analysis.GroupById<T> extractor) {
+            this.ids = new GroupIds<T>(graph, extractor);
+            this.digraph = Digraph.of(graph).condense(ids.groups, ids.size());
+        }
+
+        Map<T, Double> scores(double[] scores) {
+            return sorted(ids.keys, scores);
+        }
+
+        Map<T, Integer> scores(int[] scores) {
+            return sorted(ids.keys, scores);
+        }
+
+    }
+
+}
@@ -0,0 +1,99 @@
+package code.pendency;
+
+import java.util.*;
+
+/**
+ * The classes affected by a change: the changed classes and all the classes depending on them, directly or not,
+ * e.g. to run only the tests impacted by a commit.
+ * <p>
+ * The afferents are walked breadth first on the adjacency arrays of the graph. The visit marks are stamps
+ * reused between the queries, so a query doesn't allocate in proportion to the size of the graph and the
+ * instance is not meant to be shared between threads.
+ */
+public class ChangeImpact {
+
+    private final static String CLASS_FILE_EXTENSION = ".class";
+
+    private final ClassGraph graph;
+    private final int[] visited;
+    private final int[] queue;
+    private int stamp = 0;
+
+    ChangeImpact(ClassGraph graph) {
+        this.graph = graph;
+        this.visited = new int[graph.size()];
+        this.queue = new int[graph.size()];
+    }
+
+    // The changed classes, given as class names or paths of class files, and the classes depending on them.
+    // The names not found in the analysis are ignored.
+    public List<JavaClass> affectedBy(Collection<String> changed) {
+        int count = visit(changed);
+        List<JavaClass> affected = new ArrayList<JavaClass>(count);
+        for (int i = 0; i < count; i++) affected.add(graph.get(queue[i]));
+        return affected;
+    }
+
+    // The test classes among the affected classes.
+    public List<JavaClass> affectedTests(Collection<String> changed, TestClasses tests) {
+        int count = visit(changed);
+        List<JavaClass> affected = new ArrayList<JavaClass>();
+        for (int i = 0; i < count; i++) {
+            JavaClass javaClass = graph.get(queue[i]);
+            if (tests.accept(javaClass)) affected.add(javaClass);
+        }
+        return affected;
+    }
+
+    // Visits the afferents from the changed classes, returns the number of classes in the queue.
+    private int visit(Collection<String> changed) {
+        stamp++;
+        int tail = 0;
+        for (String name : changed) {
+            int id = find(name);
+            if (id >= 0 && visited[id] != stamp) {
+                visited[id] = stamp;
+                queue[tail++] = id;
+            }
+        }
+        int head = 0;
+        while (head < tail) {
+            int id = queue[head++];
+            for (int edge = graph.afferentsStart(id); edge < graph.afferentsEnd(id); edge++) {
+                int afferent = graph.afferent(edge);
+                if (visited[afferent] != stamp) {
+                    visited[afferent] = stamp;
+                    queue[tail++] = afferent;
+                }
+            }
+        }
+        return tail;
+    }
+
+    // The id of a class name or of a class file path (e.g. "target/classes/com/acme/Foo.class"): the leading
+    // directories not part of the package are removed. An inner class not in the analysis is replaced by
+    // its outer class.
+    private int find(String name) {
+        String className = name;
+        if (className.endsWith(CLASS_FILE_EXTENSION)) {
+            className = className.substring(0, className.length() - CLASS_FILE_EXTENSION.length()).replace('/', '.').replace('\\', '.');
+        }
+        int id = findSuffix(className);
+        while (id < 0 && className.indexOf('$') >= 0) {
+            className = className.substring(0, className.lastIndexOf('$'));
+            id = findSuffix(className);
+        }
+        return id;
+    }
+
+    private int findSuffix(String className) {
+        int id = graph.id(className);
+        int dot = className.indexOf('.');
+        while (id < 0 && dot >= 0) {
+            id = graph.id(className.substring(dot + 1));
+            dot = className.indexOf('.', dot + 1);
+        }
+        return id;
+    }
+
+}
@@ -0,0 +1,52 @@
+package code.pendency;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A class defined more than once, e.g. in two jars of the classpath. The copies are compared by the checksum
+ * of their bytes: identical copies are harmless, different ones depend on the order of the classpath. As the JVM,
+ * the analysis keeps the first copy of the classpath.
+ */
+public class ClassConflict {
+
+    private final String className;
+    private final List<String> locations;
+    private final int versions;
+
+    ClassConflict(String className, List<String> locations, int versions) {
+        this.className = className;
+        this.locations = Collections.unmodifiableList(locations);
+        this.versions = versions;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    // The paths of the jars or of the class directories defining the class, in the order of the classpath.
+    public List<String> getLocations() {
+        return locations;
+    }
+
+    // The path of the copy analyzed: the first one of the classpath, the one loaded by the JVM.
+    public String getAnalyzedLocation() {
+        return locations.get(0);
+    }
+
+    // The number of different copies of the class.
+    public int getVersions() {
+        return versions;
+    }
+
+    // True if all the copies have the same bytes.
+    public boolean isIdentical() {
+        return versions == 1;
+    }
+
+    @Override
+    public String toString() {
+        return className + (isIdentical() ? " (identical) " : " (" + versions + " versions) ") + locations;
+    }
+
+}
@@ -0,0 +1,61 @@
+package code.pendency;
+
+import java.util.*;
+
+/**
+ * The classes found while building an analysis: name, location (the jar or the class directory) and checksum
+ * of the bytes, kept in parallel lists to find the classes defined more than once.
+ */
+class ClassDefinitions {
+
+    private final List<String> names = new ArrayList<String>();
+    private final List<String> locations = new ArrayList<String>();
+    private long[] checksums = new long[16];
+
+    // The size in the high bits and the CRC32 of the bytes in the low bits.
+    static long checksum(long crc, long size) {
+        return (size << 32) | (crc & 0xFFFFFFFFL);
+    }
+
+    void add(String name, String location, long checksum) {
+        if (names.size() == checksums.length) checksums = Arrays.copyOf(checksums, checksums.length * 2);
+        checksums[names.size()] = checksum;
+        names.add(name);
+        locations.add(location);
+    }
+
+    void addAll(ClassDefinitions other) {
+        for (int i = 0; i < other.names.size(); i++) add(other.names.get(i), other.locations.get(i), other.checksums[i]);
+    }
+
+    // The classes defined more than once, by name, with the locations in the order the classes were added.
+    List<ClassConflict> conflicts() {
+        Map<String, Integer> first = new HashMap<String, Integer>(names.size() * 2);
+        Map<String, List<Integer>> duplicates = new TreeMap<String, List<Integer>>();
+        for (int i = 0; i < names.size(); i++) {
+            Integer previous = first.put(names.get(i), i);
+            if (previous == null) continue;
+            first.put(names.get(i), previous);
+            List<Integer> definitions = duplicates.get(names.get(i));
+            if (definitions == null) {
+                definitions = new ArrayList<Integer>();
+                definitions.add(previous);
+                duplicates.put(names.get(i), definitions);
+            }
+            definitions.add(i);
+        }
+        if (duplicates.isEmpty()) return Collections.emptyList();
+        List<ClassConflict> conflicts = new ArrayList<ClassConflict>(duplicates.size());
+        for (Map.Entry<String, List<Integer>> entry : duplicates.entrySet()) {
+            List<String> locations = new ArrayList<String>(entry.getValue().size());
+            Set<Long> versions = new HashSet<Long>();
+            for (int i : entry.getValue()) {
+                locations.add(this.locations.get(i));
+                versions.add(checksums[i]);
+            }
+            conflicts.add(new ClassConflict(entry.getKey(), locations, versions.size()));
+        }
+        return Collections.unmodifiableList(conflicts);
+    }
+
+}
@@ -24,6 +24,41 @@ class ClassFileAnnotationInfo {
         }
     }
 
+    // Adds the type of every annotation of the attribute, the values are skipped without being decoded.
+    static void extractTypes(ClassFileAttributeInfo annotation, IntList types) {
+        if (annotation != null && "RuntimeVisibleAnnotations".equals(annotation.name)) {
+            AnnotationData data = new AnnotationData(annotation.value);
+            int numberOfAnnotations = data.nextInt();
+            for (int i = 0; i < numberOfAnnotations; i++) {
+                types.add(data.nextInt());
+                skipPairs(data);
+            }
+        }
+    }
+
+    // Section 4.7.16.1 of VM Spec - The element value pairs of an annotation.
+    private static void skipPairs(AnnotationData data) {
+        int numberOfPairs = data.nextInt();
+        for (int i = 0; i < numberOfPairs; i++) {
+            data.skipInt();
+            skipValue(data);
+        }
+    }
+
+    private static void skipValue(AnnotationData data) {
+        byte tag = data.nextByte();
+        if (tag == 'e') { // Enum
+            data.skipInt();
+            data.skipInt();
+        } else if (tag == '@') { // Annotation
+            data.skipInt();
+            skipPairs(data);
+        } else if (tag == '[') { // List
+            int numberOfValues = data.nextInt();
+            for (int i = 0; i < numberOfValues; i++) skipValue(data);
+        } else data.skipInt(); // Constant or class
+    }
+
     static class ClassFileAnnotationValues extends ClassFileAnnotationInfo {
         final List<ClassFileAnnotationInfo> values;
 
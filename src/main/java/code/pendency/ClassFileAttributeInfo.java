@@ -1,6 +1,7 @@
 package code.pendency;
 
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 
 class ClassFileAttributeInfo {
@@ -9,18 +10,31 @@ class ClassFileAttributeInfo {
     final byte[] value;
 
     ClassFileAttributeInfo(DataInputStream in, ClassFileConstantsPool constantsPool) throws IOException {
-        String name = null;
-        int nameIndex = in.readUnsignedShort();
-        if (nameIndex != -1) {
-            name = constantsPool.getUTF8Entry(nameIndex);
-        }
+        this(name(in, constantsPool), in);
+    }
+
+    // The attribute whose name has already been read.
+    ClassFileAttributeInfo(String name, DataInputStream in) throws IOException {
         this.name = name;
         int attributeLength = in.readInt();
         byte[] value = new byte[attributeLength];
-        for (int b = 0; b < attributeLength; b++) {
-            value[b] = in.readByte();
-        }
+        in.readFully(value);
         this.value = value;
     }
 
+    // Reads the name of the next attribute, before its value.
+    static String name(DataInputStream in, ClassFileConstantsPool constantsPool) throws IOException {
+        return constantsPool.getUTF8Entry(in.readUnsignedShort());
+    }
+
+    // Reads the value of the attribute whose name has already been read, without keeping it.
+    static void skipValue(DataInputStream in) throws IOException {
+        int attributeLength = in.readInt();
+        while (attributeLength > 0) {
+            int skipped = in.skipBytes(attributeLength);
+            if (skipped <= 0) throw new EOFException();
+            attributeLength -= skipped;
+        }
+    }
+
 }
@@ -0,0 +1,240 @@
+package code.pendency;
+
+import java.io.IOException;
+import java.util.BitSet;
+
+/**
+ * Scans the instructions of the <code>Code</code> attributes of a class for the classes they use, without decoding
+ * them: the instructions referencing a class (invoke, new, checkcast, field access...) are recognized by their
+ * opcode and the others are skipped using a table of their lengths.
+ * <p>
+ * The usages are collected by index of the class constant, so every class name is resolved only once per class.
+ * The member references (the fields accessed and the methods invoked by every method) are collected only if
+ * requested, as pairs of indexes.
+ */
+class ClassFileCodeScanner {
+
+    private final static int TABLESWITCH = 0xaa;
+    private final static int LOOKUPSWITCH = 0xab;
+    private final static int GETSTATIC = 0xb2;
+    private final static int PUTSTATIC = 0xb3;
+    private final static int GETFIELD = 0xb4;
+    private final static int PUTFIELD = 0xb5;
+    private final static int INVOKEVIRTUAL = 0xb6;
+    private final static int INVOKESPECIAL = 0xb7;
+    private final static int INVOKESTATIC = 0xb8;
+    private final static int INVOKEINTERFACE = 0xb9;
+    private final static int INVOKEDYNAMIC = 0xba;
+    private final static int NEW = 0xbb;
+    private final static int ANEWARRAY = 0xbd;
+    private final static int CHECKCAST = 0xc0;
+    private final static int INSTANCEOF = 0xc1;
+    private final static int WIDE = 0xc4;
+    private final static int MULTIANEWARRAY = 0xc5;
+    private final static int IINC = 0x84;
+
+    // The length of every instruction (opcode and operands), 0 for the switches, wide and the invalid opcodes
+    private final static byte[] LENGTHS = new byte[256];
+
+    static {
+        // nop to jsr_w, the opcodes after are reserved
+        for (int opcode = 0x00; opcode <= 0xc9; opcode++) LENGTHS[opcode] = 1;
+        // bipush, ldc, the loads and the stores of the locals, ret and newarray
+        for (int opcode : new int[] {0x10, 0x12, 0x15, 0x16, 0x17, 0x18, 0x19, 0x36, 0x37, 0x38, 0x39, 0x3a, 0xa9, 0xbc}) {
+            LENGTHS[opcode] = 2;
+        }
+        // sipush, ldc_w, ldc2_w, iinc, the jumps and the instructions referencing the constant pool
+        for (int opcode : new int[] {0x11, 0x13, 0x14, IINC, 0xc6, 0xc7, NEW, ANEWARRAY, CHECKCAST, INSTANCEOF}) {
+            LENGTHS[opcode] = 3;
+        }
+        for (int opcode = 0x99; opcode <= 0xa8; opcode++) LENGTHS[opcode] = 3;
+        for (int opcode = GETSTATIC; opcode <= INVOKESTATIC; opcode++) LENGTHS[opcode] = 3;
+        LENGTHS[MULTIANEWARRAY] = 4;
+        // invokeinterface, invokedynamic, goto_w and jsr_w
+        for (int opcode : new int[] {INVOKEINTERFACE, INVOKEDYNAMIC, 0xc8, 0xc9}) LENGTHS[opcode] = 5;
+        LENGTHS[TABLESWITCH] = 0;
+        LENGTHS[LOOKUPSWITCH] = 0;
+        LENGTHS[WIDE] = 0;
+    }
+
+    private final ClassFileConstantsPool constantsPool;
+    // The bits of the usage kinds to extract
+    private final int kinds;
+    // The bits of the usage kinds of every class constant, by index in the constant pool
+    private final int[] usages;
+    // The indexes of the bootstrap methods used by the invokedynamic instructions
+    private final BitSet bootstraps = new BitSet();
+    // The pairs of member (in declaration order) and index of the field or method reference, null if not collected
+    private final IntList references;
+    private int member;
+
+    ClassFileCodeScanner(ClassFileConstantsPool constantsPool, int kinds, boolean members) {
+        this.constantsPool = constantsPool;
+        this.kinds = kinds;
+        this.usages = new int[constantsPool.size()];
+        this.references = members ? new IntList() : null;
+    }
+
+    // The code scanned next is the one of the member at the given position (the fields, then the methods).
+    void startMember(int member) {
+        this.member = member;
+    }
+
+    // Section 4.7.3 of VM Spec - The value of a Code attribute: max stack, max locals, code length and code.
+    void scan(byte[] attribute) throws IOException {
+        int length = s4(attribute, 4);
+        int start = 8;
+        int end = start + length;
+        if (length < 0 || end > attribute.length) throw new IOException("Invalid Code attribute length: " + length);
+        int pc = start;
+        try {
+            while (pc < end) {
+                int opcode = attribute[pc] & 0xFF;
+                switch (opcode) {
+                    case GETSTATIC:
+                    case PUTSTATIC:
+                    case GETFIELD:
+                    case PUTFIELD:
+                        reference(u2(attribute, pc + 1), DependencyKind.FIELD_ACCESS);
+                        break;
+                    case INVOKEVIRTUAL:
+                    case INVOKESPECIAL:
+                    case INVOKESTATIC:
+                    case INVOKEINTERFACE:
+                        reference(u2(attribute, pc + 1), DependencyKind.INVOKE);
+                        break;
+                    case INVOKEDYNAMIC:
+                        if (extracts(DependencyKind.BOOTSTRAP)) bootstraps.set(constantsPool.getEntry(u2(attribute, pc + 1)).nameIndex);
+                        break;
+                    case NEW:
+                    case ANEWARRAY:
+                    case MULTIANEWARRAY:
+                        use(u2(attribute, pc + 1), DependencyKind.INSTANTIATE);
+                        break;
+                    case CHECKCAST:
+                    case INSTANCEOF:
+                        use(u2(attribute, pc + 1), DependencyKind.CAST);
+                        break;
+                    default:
+                        break;
+                }
+                int size = LENGTHS[opcode];
+                pc += size > 0 ? size : variableLength(attribute, opcode, pc, start, end);
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Invalid Code attribute: truncated instruction at " + (pc - start));
+        }
+    }
+
+    // Section 4.7.23 of VM Spec - The bootstrap methods (and their method handle arguments) of the invokedynamic
+    // instructions scanned, so the lambda bodies are dependencies too.
+    void scanBootstrapMethods(ClassFileAttributeInfo[] attributes) throws IOException {
+        if (bootstraps.isEmpty()) return;
+        for (ClassFileAttributeInfo attribute : attributes) {
+            if (!"BootstrapMethods".equals(attribute.name)) continue;
+            byte[] b = attribute.value;
+            int count = u2(b, 0);
+            int position = 2;
+            for (int index = 0; index < count; index++) {
+                int arguments = u2(b, position + 2);
+                if (bootstraps.get(index)) {
+                    useHandle(u2(b, position));
+                    for (int argument = 0; argument < arguments; argument++) {
+                        int entryIndex = u2(b, position + 4 + argument * 2);
+                        if (constantsPool.getEntry(entryIndex).tag == ClassFileConstantsPool.CONSTANT_METHOD_HANDLE) {
+                            useHandle(entryIndex);
+                        }
+                    }
+                }
+                position += 4 + arguments * 2;
+            }
+        }
+    }
+
+    int size() {
+        return usages.length;
+    }
+
+    // The pairs of member and reference index, null if the references are not collected.
+    IntList references() {
+        return references;
+    }
+
+    // The bits of the usage kinds of the class constant at the given index, 0 if not used.
+    int usages(int index) {
+        return usages[index];
+    }
+
+    // The internal name of the class constant at the given index, the element type for the arrays of classes
+    // and null for the arrays of primitives.
+    String className(int index) throws IOException {
+        String name = constantsPool.getUTF8Entry(constantsPool.getEntry(index).nameIndex);
+        if (name.charAt(0) != '[') return name;
+        int dimensions = 0;
+        while (name.charAt(dimensions) == '[') dimensions++;
+        if (name.charAt(dimensions) != ClassFileParser.CLASS_DESCRIPTOR) return null;
+        return name.substring(dimensions + 1, name.length() - 1);
+    }
+
+    private boolean extracts(DependencyKind kind) {
+        return (kinds & kind.bit()) != 0;
+    }
+
+    private void use(int classIndex, DependencyKind kind) {
+        if (extracts(kind)) usages[classIndex] |= kind.bit();
+    }
+
+    private void reference(int memberIndex, DependencyKind kind) throws IOException {
+        use(owner(memberIndex), kind);
+        if (references != null) {
+            references.add(member);
+            references.add(memberIndex);
+        }
+    }
+
+    // The class of a method handle is the owner of the field or the method referenced.
+    private void useHandle(int handleIndex) throws IOException {
+        use(owner(constantsPool.getEntry(handleIndex).typeIndex), DependencyKind.BOOTSTRAP);
+    }
+
+    // The index of the class constant owning the field or method reference at the given index.
+    int owner(int memberIndex) throws IOException {
+        return constantsPool.getEntry(memberIndex).nameIndex;
+    }
+
+    // The instructions without a fixed length: the switches are aligned to 4 bytes from the start of the code.
+    // A length not advancing or past the end of the code (e.g. a tableswitch with high < low) is invalid.
+    private static int variableLength(byte[] code, int opcode, int pc, int start, int end) throws IOException {
+        int padding = 3 - ((pc - start) & 3);
+        long length;
+        switch (opcode) {
+            case TABLESWITCH:
+                long low = s4(code, pc + 1 + padding + 4);
+                long high = s4(code, pc + 1 + padding + 8);
+                length = 1 + padding + 12 + (high - low + 1) * 4;
+                break;
+            case LOOKUPSWITCH:
+                long pairs = s4(code, pc + 1 + padding + 4);
+                length = 1 + padding + 8 + pairs * 8;
+                break;
+            case WIDE:
+                length = (code[pc + 1] & 0xFF) == IINC ? 6 : 4;
+                break;
+            default:
+                throw new IOException("Invalid opcode: " + opcode);
+        }
+        if (length < 1 || pc + length > end) {
+            throw new IOException("Invalid Code attribute: instruction length " + length + " at " + (pc - start));
+        }
+        return (int) length;
+    }
+
+    private static int u2(byte[] b, int offset) {
+        return ((b[offset] & 0xFF) << 8) | (b[offset + 1] & 0xFF);
+    }
+
+    private static int s4(byte[] b, int offset) {
+        return (b[offset] << 24) | ((b[offset + 1] & 0xFF) << 16) | ((b[offset + 2] & 0xFF) << 8) | (b[offset + 3] & 0xFF);
+    }
+
+}
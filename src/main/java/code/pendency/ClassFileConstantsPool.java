@@ -41,6 +41,11 @@ class ClassFileConstantsPool {
         return constants;
     }
 
+    // The number of entries, including the unused first one.
+    int size() {
+        return pool.length;
+    }
+
     Constant getEntry(int entryIndex) throws IOException {
         if (entryIndex < 0 || entryIndex >= pool.length) {
             throw new IOException("Illegal constant pool index : " + entryIndex);
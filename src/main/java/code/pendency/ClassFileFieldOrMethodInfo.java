@@ -6,6 +6,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 class ClassFileFieldOrMethodInfo {
+
+    private final static String[] NO_TYPES = new String[0];
+
     final int accessFlags;
     final int nameIndex;
     final int descriptorIndex;
@@ -13,20 +16,30 @@ class ClassFileFieldOrMethodInfo {
     final ClassFileAttributeInfo runtimeVisibleAnnotations;
 
     ClassFileFieldOrMethodInfo(DataInputStream in, ClassFileConstantsPool constantsPool) throws IOException {
+        this(in, constantsPool, true, null);
+    }
+
+    // The types are decoded only if requested, the code is scanned only if there is a scanner (not null): only
+    // the annotations and the code are read, the other attributes are skipped by name.
+    ClassFileFieldOrMethodInfo(DataInputStream in, ClassFileConstantsPool constantsPool,
+                               boolean decodeTypes, ClassFileCodeScanner code) throws IOException {
         int accessFlags = in.readUnsignedShort();
         int nameIndex = in.readUnsignedShort();
         int descriptionIndex = in.readUnsignedShort();
         this.accessFlags = accessFlags;
         this.nameIndex = nameIndex;
         this.descriptorIndex = descriptionIndex;
-        String descriptor = constantsPool.getUTF8Entry(descriptionIndex);
-        this.types = descriptorToTypes(descriptor);
+        this.types = decodeTypes ? descriptorToTypes(constantsPool.getUTF8Entry(descriptionIndex)) : NO_TYPES;
         int attributesCount = in.readUnsignedShort();
         ClassFileAttributeInfo runtimeVisibleAnnotation = null;
         for (int a = 0; a < attributesCount; a++) {
-            ClassFileAttributeInfo attribute = new ClassFileAttributeInfo(in, constantsPool);
-            if ("RuntimeVisibleAnnotations".equals(attribute.name)) {
-                runtimeVisibleAnnotation = attribute;
+            String name = ClassFileAttributeInfo.name(in, constantsPool);
+            if ("RuntimeVisibleAnnotations".equals(name)) {
+                runtimeVisibleAnnotation = new ClassFileAttributeInfo(name, in);
+            } else if (code != null && "Code".equals(name)) {
+                code.scan(new ClassFileAttributeInfo(name, in).value);
+            } else {
+                ClassFileAttributeInfo.skipValue(in);
             }
         }
         this.runtimeVisibleAnnotations = runtimeVisibleAnnotation;
@@ -3,9 +3,7 @@ package code.pendency;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
 
 class ClassFileParser {
 
@@ -13,13 +11,31 @@ class ClassFileParser {
     public static final char CLASS_DESCRIPTOR = 'L';
     public static final int ACC_INTERFACE = 0x200;
     public static final int ACC_ABSTRACT = 0x400;
+    public static final int ACC_PUBLIC = 0x1;
+    public static final int ACC_STATIC = 0x8;
+    public static final String MAIN_METHOD_NAME = "main";
+    public static final String MAIN_METHOD_DESCRIPTOR = "([Ljava/lang/String;)V";
 
     private final Filter filter;
     private final List<ParserListener> listeners;
+    // The bits of the dependency kinds to extract
+    private final int kinds;
+    // Extracts the members and their references too
+    private final boolean members;
 
     ClassFileParser(Filter filter, List<ParserListener> listeners) {
+        this(filter, listeners, DependencyKind.declared());
+    }
+
+    ClassFileParser(Filter filter, List<ParserListener> listeners, Set<DependencyKind> kinds) {
+        this(filter, listeners, kinds, false);
+    }
+
+    ClassFileParser(Filter filter, List<ParserListener> listeners, Set<DependencyKind> kinds, boolean members) {
         this.filter = filter;
         this.listeners = listeners;
+        this.kinds = DependencyKind.bits(kinds);
+        this.members = members;
     }
 
     JavaClass parse(InputStream is) throws IOException {
@@ -40,32 +56,44 @@ class ClassFileParser {
             // Class name
             String className = parseClassName(in, constantsPool);
             // Super class
-            List<String> importedClasses = new ArrayList<String>();
+            Map<String, Integer> importedClasses = new HashMap<String, Integer>();
             String superClassName = parseSuperClassName(in, constantsPool);
-            importedClasses.add(superClassName);
+            addImports(importedClasses, Collections.singletonList(superClassName), DependencyKind.SUPERCLASS);
             // Interfaces
             List<String> interfaceNames = parseInterfaces(in, constantsPool);
-            importedClasses.addAll(interfaceNames);
-            // Fields
-            ClassFileFieldOrMethodInfo[] fields = parseFields(in, constantsPool);
-            List<String> fieldTypes = extractTypesFromFieldOrMethod(fields);
-            importedClasses.addAll(fieldTypes);
-            // Methods
-            ClassFileFieldOrMethodInfo[] methods = parseMethods(in, constantsPool);
-            List<String> methodTypes = extractTypesFromFieldOrMethod(methods);
-            importedClasses.addAll(methodTypes);
+            addImports(importedClasses, interfaceNames, DependencyKind.INTERFACE);
+            // Fields, the descriptors are decoded only if needed
+            ClassFileFieldOrMethodInfo[] fields = parseFields(in, constantsPool, extracts(DependencyKind.FIELD));
+            addImports(importedClasses, extractTypesFromFieldOrMethod(fields), DependencyKind.FIELD);
+            // Methods, the code is scanned only for the usage kinds and the members
+            ClassFileCodeScanner code = extractsUsages() || members ? new ClassFileCodeScanner(constantsPool, kinds, members) : null;
+            ClassFileFieldOrMethodInfo[] methods = parseMethods(in, constantsPool, extracts(DependencyKind.METHOD), code,
+                    fields.length);
+            addImports(importedClasses, extractTypesFromFieldOrMethod(methods), DependencyKind.METHOD);
+            boolean hasMainMethod = hasMainMethod(methods, constantsPool);
             // Source file
             ClassFileAttributeInfo[] attributes = parseAttributes(in, constantsPool);
             String sourceFile = extractSourceFile(attributes, constantsPool);
             // Constant references
-            List<String> constantReferences = extractClassConstantReferences(constantsPool);
-            importedClasses.addAll(constantReferences);
-            // Annotations references
-            List<ClassFileAnnotationInfo.ClassFileAnnotationValues> annotations = extractAnnotationInfo(attributes, fields, methods);
-            List<String> annotationTypes = extractTypesFromAnnotations(constantsPool, annotations);
-            importedClasses.addAll(annotationTypes);
-            // Add import
-            importedClasses = filterImport(importedClasses);
+            if (extracts(DependencyKind.CONSTANT)) {
+                addImports(importedClasses, extractClassConstantReferences(constantsPool), DependencyKind.CONSTANT);
+            }
+            // Usage references
+            if (code != null) {
+                code.scanBootstrapMethods(attributes);
+                addUsages(importedClasses, code);
+            }
+            // Annotations references, the values are decoded only if needed but the names are always kept (e.g. for
+            // the entry points)
+            IntList annotationTypes = new IntList();
+            if (extracts(DependencyKind.ANNOTATION)) {
+                List<ClassFileAnnotationInfo.ClassFileAnnotationValues> annotations = extractAnnotationInfo(attributes, fields, methods);
+                addImports(importedClasses, extractTypesFromAnnotations(constantsPool, annotations), DependencyKind.ANNOTATION);
+                for (ClassFileAnnotationInfo annotation : annotations) annotationTypes.add(annotation.typeIndex);
+            } else {
+                extractAnnotationTypes(attributes, fields, methods, annotationTypes);
+            }
+            Set<String> annotationNames = extractAnnotationNames(constantsPool, annotationTypes);
             // Fire listeners
             JavaClass javaClass = new JavaClass(
                 minorVersion,
@@ -75,7 +103,10 @@ class ClassFileParser {
                 fileName,
                 isAbstract,
                 isInterface,
-                importedClasses
+                hasMainMethod,
+                annotationNames,
+                importedClasses,
+                members ? extractMembers(constantsPool, fields, methods, code) : null
             );
             onParsedJavaClass(javaClass);
             return javaClass;
@@ -84,15 +115,36 @@ class ClassFileParser {
         }
     }
 
-    private List<String> filterImport(List<String> imports) {
-        List<String> filtered = new ArrayList<String>(imports.size());
-        for (String importClass : imports) {
-            String className = removeEndingSemiColon(slashesToDots(importClass));
-            if (filter.accept(className)) {
-                filtered.add(className);
-            }
+    private boolean extracts(DependencyKind kind) {
+        return (kinds & kind.bit()) != 0;
+    }
+
+    private boolean extractsUsages() {
+        for (DependencyKind kind : DependencyKind.USAGES) if (extracts(kind)) return true;
+        return false;
+    }
+
+    // Adds the accepted classes to the imports, tagged with the kind of the dependency.
+    private void addImports(Map<String, Integer> imports, List<String> classNames, DependencyKind kind) {
+        if (!extracts(kind)) return;
+        for (String importClass : classNames) addImport(imports, importClass, kind.bit());
+    }
+
+    // Adds the classes used by the code, tagged with the kinds of their usages.
+    private void addUsages(Map<String, Integer> imports, ClassFileCodeScanner code) throws IOException {
+        for (int index = 1; index < code.size(); index++) {
+            if (code.usages(index) == 0) continue;
+            String className = code.className(index);
+            if (className != null) addImport(imports, className, code.usages(index));
+        }
+    }
+
+    private void addImport(Map<String, Integer> imports, String importClass, int kinds) {
+        String className = removeEndingSemiColon(slashesToDots(importClass));
+        if (className.length() > 0 && filter.accept(className)) {
+            Integer previous = imports.get(className);
+            imports.put(className, previous == null ? kinds : previous | kinds);
         }
-        return filtered;
     }
 
     private boolean isJavaMagic(DataInputStream in) throws IOException {
@@ -155,20 +207,24 @@ class ClassFileParser {
         return interfaceNames;
     }
 
-    private ClassFileFieldOrMethodInfo[] parseFields(DataInputStream in, ClassFileConstantsPool constantsPool) throws IOException {
+    private ClassFileFieldOrMethodInfo[] parseFields(DataInputStream in, ClassFileConstantsPool constantsPool,
+                                                     boolean decodeTypes) throws IOException {
         int fieldsCount = in.readUnsignedShort();
         ClassFileFieldOrMethodInfo[] fields = new ClassFileFieldOrMethodInfo[fieldsCount];
         for (int i = 0; i < fieldsCount; i++) {
-            fields[i] = new ClassFileFieldOrMethodInfo(in, constantsPool);
+            fields[i] = new ClassFileFieldOrMethodInfo(in, constantsPool, decodeTypes, null);
         }
         return fields;
     }
 
-    private ClassFileFieldOrMethodInfo[] parseMethods(DataInputStream in, ClassFileConstantsPool constantsPool) throws IOException {
+    private ClassFileFieldOrMethodInfo[] parseMethods(DataInputStream in, ClassFileConstantsPool constantsPool,
+                                                      boolean decodeTypes, ClassFileCodeScanner code,
+                                                      int fieldsCount) throws IOException {
         int methodsCount = in.readUnsignedShort();
         ClassFileFieldOrMethodInfo[] methods = new ClassFileFieldOrMethodInfo[methodsCount];
         for (int i = 0; i < methodsCount; i++) {
-            methods[i] = new ClassFileFieldOrMethodInfo(in, constantsPool);
+            if (code != null) code.startMember(fieldsCount + i);
+            methods[i] = new ClassFileFieldOrMethodInfo(in, constantsPool, decodeTypes, code);
         }
         return methods;
     }
@@ -181,6 +237,18 @@ class ClassFileParser {
         return types;
     }
 
+    private boolean hasMainMethod(ClassFileFieldOrMethodInfo[] methods, ClassFileConstantsPool constantsPool) throws IOException {
+        int flags = ACC_PUBLIC | ACC_STATIC;
+        for (ClassFileFieldOrMethodInfo method : methods) {
+            if ((method.accessFlags & flags) == flags &&
+                    MAIN_METHOD_NAME.equals(constantsPool.getUTF8Entry(method.nameIndex)) &&
+                    MAIN_METHOD_DESCRIPTOR.equals(constantsPool.getUTF8Entry(method.descriptorIndex))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private ClassFileAttributeInfo[] parseAttributes(DataInputStream in, ClassFileConstantsPool constantsPool) throws IOException {
         int attributesCount = in.readUnsignedShort();
         ClassFileAttributeInfo[] attributes = new ClassFileAttributeInfo[attributesCount];
@@ -215,6 +283,48 @@ class ClassFileParser {
         return constantReferences;
     }
 
+    // The members declared and the accepted members they reference, every reference is resolved once.
+    private ClassMembers extractMembers(ClassFileConstantsPool constantsPool, ClassFileFieldOrMethodInfo[] fields,
+                                        ClassFileFieldOrMethodInfo[] methods, ClassFileCodeScanner code) throws IOException {
+        String[] declared = new String[fields.length + methods.length];
+        for (int i = 0; i < fields.length; i++) {
+            declared[i] = ClassMembers.field(constantsPool.getUTF8Entry(fields[i].nameIndex), constantsPool.getUTF8Entry(fields[i].descriptorIndex));
+        }
+        for (int i = 0; i < methods.length; i++) {
+            declared[fields.length + i] = ClassMembers.method(constantsPool.getUTF8Entry(methods[i].nameIndex), constantsPool.getUTF8Entry(methods[i].descriptorIndex));
+        }
+        IntList references = code.references();
+        // The position of every reference by index in the constant pool, 0 if not resolved yet and -1 if not accepted
+        int[] positions = new int[constantsPool.size()];
+        List<String> owners = new ArrayList<String>();
+        List<String> names = new ArrayList<String>();
+        IntList uses = new IntList(references.size());
+        for (int i = 0; i < references.size(); i += 2) {
+            int index = references.get(i + 1);
+            if (positions[index] == 0) {
+                String owner = code.className(code.owner(index));
+                if (owner != null) owner = slashesToDots(owner);
+                if (owner == null || !filter.accept(owner)) {
+                    positions[index] = -1;
+                } else {
+                    ClassFileConstantsPool.Constant reference = constantsPool.getEntry(index);
+                    ClassFileConstantsPool.Constant nameAndType = constantsPool.getEntry(reference.typeIndex);
+                    String name = constantsPool.getUTF8Entry(nameAndType.nameIndex);
+                    String descriptor = constantsPool.getUTF8Entry(nameAndType.typeIndex);
+                    owners.add(owner);
+                    names.add(reference.tag == ClassFileConstantsPool.CONSTANT_FIELD ?
+                            ClassMembers.field(name, descriptor) : ClassMembers.method(name, descriptor));
+                    positions[index] = owners.size();
+                }
+            }
+            if (positions[index] > 0) {
+                uses.add(references.get(i));
+                uses.add(positions[index] - 1);
+            }
+        }
+        return new ClassMembers(declared, owners.toArray(new String[owners.size()]), names.toArray(new String[names.size()]), uses.toArray());
+    }
+
     private List<ClassFileAnnotationInfo.ClassFileAnnotationValues> extractAnnotationInfo(ClassFileAttributeInfo[] attributes,
                                                                                           ClassFileFieldOrMethodInfo[] fields,
                                                                                           ClassFileFieldOrMethodInfo[] methods) throws IOException {
@@ -231,6 +341,19 @@ class ClassFileParser {
         return annotations;
     }
 
+    private void extractAnnotationTypes(ClassFileAttributeInfo[] attributes, ClassFileFieldOrMethodInfo[] fields,
+                                        ClassFileFieldOrMethodInfo[] methods, IntList types) {
+        for (ClassFileAttributeInfo attribute : attributes) {
+            ClassFileAnnotationInfo.extractTypes(attribute, types);
+        }
+        for (ClassFileFieldOrMethodInfo field : fields) {
+            ClassFileAnnotationInfo.extractTypes(field.runtimeVisibleAnnotations, types);
+        }
+        for (ClassFileFieldOrMethodInfo method : methods) {
+            ClassFileAnnotationInfo.extractTypes(method.runtimeVisibleAnnotations, types);
+        }
+    }
+
     private List<String> extractTypesFromAnnotations(ClassFileConstantsPool constantsPool,
                                                      List<ClassFileAnnotationInfo.ClassFileAnnotationValues> annotations) throws IOException {
         List<String> types = new ArrayList<String>();
@@ -240,6 +363,15 @@ class ClassFileParser {
         return types;
     }
 
+    private Set<String> extractAnnotationNames(ClassFileConstantsPool constantsPool, IntList types) throws IOException {
+        if (types.isEmpty()) return Collections.emptySet();
+        Set<String> names = new HashSet<String>(types.size() * 2);
+        for (int i = 0; i < types.size(); i++) {
+            names.add(removeEndingSemiColon(slashesToDots(constantsPool.getUTF8Entry(types.get(i)).substring(1))));
+        }
+        return Collections.unmodifiableSet(names);
+    }
+
     private void collectType(ClassFileAnnotationInfo.ClassFileAnnotationValues annotation, List<String> types, ClassFileConstantsPool constants) throws IOException {
         types.add(constants.getUTF8Entry(annotation.typeIndex).substring(1));
         for (ClassFileAnnotationInfo value : annotation.values) {
@@ -0,0 +1,138 @@
+package code.pendency;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compact view of the classes of an analysis: every class has an integer id given by the
+ * alphabetical order of its name and the dependencies are stored as adjacency arrays
+ * (compressed rows), so the graph algorithms can work on primitives only.
+ * Inside a row the ids are sorted. Every efferent edge carries the bits of its dependency kinds.
+ * <p>
+ * The arrays are on the heap ({@link HeapClassGraph}) or in a memory mapped snapshot ({@link MappedClassGraph}).
+ */
+abstract class ClassGraph {
+
+    static ClassGraph of(Collection<JavaClass> javaClasses) {
+        return HeapClassGraph.of(javaClasses);
+    }
+
+    abstract int size();
+
+    abstract int numberOfEdges();
+
+    abstract JavaClass get(int id);
+
+    abstract String name(int id);
+
+    abstract int efferentsStart(int id);
+
+    abstract int efferentsEnd(int id);
+
+    abstract int efferent(int index);
+
+    // The bits of the dependency kinds of the efferent edge, 0 if unknown.
+    abstract int kinds(int index);
+
+    abstract int afferentsStart(int id);
+
+    abstract int afferentsEnd(int id);
+
+    abstract int afferent(int index);
+
+    // The classes in id order, created when accessed.
+    List<JavaClass> classes() {
+        return new AbstractList<JavaClass>() {
+            @Override
+            public JavaClass get(int id) {
+                return ClassGraph.this.get(id);
+            }
+
+            @Override
+            public int size() {
+                return ClassGraph.this.size();
+            }
+        };
+    }
+
+    // The id of the class or -1 if the class is not part of the graph.
+    int id(String className) {
+        int id = search(className);
+        return id >= 0 ? id : -1;
+    }
+
+    // The first id of the classes starting with the prefix, the classes are contiguous because the ids are sorted.
+    int prefixStart(String prefix) {
+        int id = search(prefix);
+        return id >= 0 ? id : -id - 1;
+    }
+
+    // The id after the last class starting with the prefix.
+    int prefixEnd(String prefix) {
+        int id = search(prefix + Character.MAX_VALUE);
+        return id >= 0 ? id : -id - 1;
+    }
+
+    // Binary search of the name, same result as Arrays.binarySearch.
+    int search(String className) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compare = name(middle).compareTo(className);
+            if (compare < 0) low = middle + 1;
+            else if (compare > 0) high = middle - 1;
+            else return middle;
+        }
+        return -(low + 1);
+    }
+
+    int efferentCoupling(int id) {
+        return efferentsEnd(id) - efferentsStart(id);
+    }
+
+    int afferentCoupling(int id) {
+        return afferentsEnd(id) - afferentsStart(id);
+    }
+
+    // The edge from the class to the efferent or -1.
+    int efferentEdge(int id, int efferentId) {
+        int low = efferentsStart(id);
+        int high = efferentsEnd(id) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int efferent = efferent(middle);
+            if (efferent < efferentId) low = middle + 1;
+            else if (efferent > efferentId) high = middle - 1;
+            else return middle;
+        }
+        return -1;
+    }
+
+    // True if one of the efferents of the class is inside the range of ids [start, end).
+    boolean hasEfferentIn(int id, int start, int end) {
+        if (start >= end) return false;
+        int from = efferentsStart(id), to = efferentsEnd(id);
+        // First efferent not lower than start
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (efferent(middle) < start) from = middle + 1;
+            else to = middle;
+        }
+        return from < efferentsEnd(id) && efferent(from) < end;
+    }
+
+    // True if one of the afferents of the class is inside the range of ids [start, end).
+    boolean hasAfferentIn(int id, int start, int end) {
+        if (start >= end) return false;
+        int from = afferentsStart(id), to = afferentsEnd(id);
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (afferent(middle) < start) from = middle + 1;
+            else to = middle;
+        }
+        return from < afferentsEnd(id) && afferent(from) < end;
+    }
+
+}
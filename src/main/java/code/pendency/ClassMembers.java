@@ -0,0 +1,35 @@
+package code.pendency;
+
+/**
+ * The members of a parsed class and the members of the other classes (or of the same class) they use: the fields
+ * and the methods declared, and the fields accessed and the methods invoked by the code of the methods.
+ * <p>
+ * A member is identified by its name and descriptor, e.g. <code>call(Ljava/lang/String;)V</code> for a method and
+ * <code>count:I</code> for a field. The references are kept as pairs of positions, never changed once parsed.
+ */
+final class ClassMembers {
+
+    // The fields then the methods
+    final String[] declared;
+    // The class and the member of every reference
+    final String[] owners;
+    final String[] references;
+    // The pairs of position in the declared members and position in the references
+    final int[] uses;
+
+    ClassMembers(String[] declared, String[] owners, String[] references, int[] uses) {
+        this.declared = declared;
+        this.owners = owners;
+        this.references = references;
+        this.uses = uses;
+    }
+
+    static String method(String name, String descriptor) {
+        return name + descriptor;
+    }
+
+    static String field(String name, String descriptor) {
+        return name + ":" + descriptor;
+    }
+
+}
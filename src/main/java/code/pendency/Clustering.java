@@ -0,0 +1,311 @@
+package code.pendency;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Suggests the modules of a code base: the groups (e.g. the packages) are clustered with a label propagation
+ * on the graph of the groups, weighted by the number of dependencies between the classes. Every group takes
+ * the label with the highest weight among its neighbours until the labels don't change anymore.
+ * <p>
+ * The graph is stored as primitive adjacency arrays and every pass updates half of the groups in parallel,
+ * reading the labels of the previous step, so the result doesn't depend on the number of threads.
+ */
+public class Clustering {
+
+    private final static int MAX_PASSES = 50;
+    private final static int NO_LABEL = -1;
+
+    private final int threads;
+    private final int maxPasses;
+    private final boolean externalGroups;
+
+    private Clustering(int threads, int maxPasses, boolean externalGroups) {
+        this.threads = threads;
+        this.maxPasses = maxPasses;
+        this.externalGroups = externalGroups;
+    }
+
+    public static Clustering create() {
+        return new Clustering(Runtime.getRuntime().availableProcessors(), MAX_PASSES, false);
+    }
+
+    // The number of threads (the number of processors by default).
+    public Clustering withThreads(int threads) {
+        return new Clustering(Math.max(threads, 1), maxPasses, externalGroups);
+    }
+
+    // The propagation stops after the maximum number of passes (50 by default) even if the labels still change.
+    public Clustering withMaxPasses(int maxPasses) {
+        return new Clustering(threads, maxPasses, externalGroups);
+    }
+
+    // Clusters also the groups with only referenced classes (e.g. java.lang or the arrays of a library), by default
+    // they are left out: they are hubs used by most of the groups and would merge them in a few clusters.
+    public Clustering includesExternalGroups() {
+        return new Clustering(threads, maxPasses, true);
+    }
+
+    // The packages clustered in modules.
+    public List<Cluster<String>> suggestModules(Analysis analysis) {
+        return cluster(analysis, Analysis.BY_PACKAGE);
+    }
+
+    // The clusters of groups, from the largest.
+    public <T> List<Cluster<T>> cluster(Analysis analysis, Analysis.GroupById<T> extractor) {
+        ClassGraph graph = analysis.graph();
+        GroupIds<T> groups = new GroupIds<T>(graph, extractor);
+        // The groups clustered, with new ids, and -1 for the ones left out
+        int[] clustered = new int[groups.size()];
+        Arrays.fill(clustered, -1);
+        for (int id = 0; id < graph.size(); id++) {
+            if (externalGroups || !graph.get(id).isReferenceOnly()) clustered[groups.groups[id]] = 0;
+        }
+        List<T> keys = new ArrayList<T>(groups.size());
+        for (int group = 0; group < groups.size(); group++) {
+            if (clustered[group] == 0) {
+                clustered[group] = keys.size();
+                keys.add(groups.keys.get(group));
+            }
+        }
+        // Number of dependencies between the groups
+        LongIntMap weights = new LongIntMap();
+        for (int id = 0; id < graph.size(); id++) {
+            int source = clustered[groups.groups[id]];
+            if (source < 0) continue;
+            for (int edge = graph.efferentsStart(id); edge < graph.efferentsEnd(id); edge++) {
+                int target = clustered[groups.groups[graph.efferent(edge)]];
+                if (target >= 0) weights.add(LongIntMap.pair(source, target), 1);
+            }
+        }
+        int[] labels = propagate(new Neighbours(keys.size(), weights));
+        return clusters(keys, labels, weights);
+    }
+
+    private int[] propagate(final Neighbours neighbours) {
+        final int size = neighbours.size;
+        final int[] labels = new int[size];
+        for (int id = 0; id < size; id++) labels[id] = id;
+        final int[] next = labels.clone();
+        // The weights by label of every worker, allocated once and reset after every group
+        final ThreadLocal<long[]> weightsByLabel = new ThreadLocal<long[]>() {
+            @Override
+            protected long[] initialValue() {
+                return new long[size];
+            }
+        };
+        final ThreadLocal<int[]> touchedLabels = new ThreadLocal<int[]>() {
+            @Override
+            protected int[] initialValue() {
+                return new int[size];
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int pass = 0; pass < maxPasses; pass++) {
+                int changes = 0;
+                for (int half = 0; half < 2; half++) {
+                    final int step = pass * 2 + half;
+                    List<double[]> results = Parallel.run(executor, threads, size, new Parallel.Chunk() {
+                        @Override
+                        public double[] call(int from, int to) {
+                            long[] weightByLabel = weightsByLabel.get();
+                            int[] touched = touchedLabels.get();
+                            int changes = 0;
+                            for (int id = from; id < to; id++) {
+                                if (!updated(id, step)) continue;
+                                int label = bestLabel(neighbours, labels, id, weightByLabel, touched);
+                                if (label != NO_LABEL && label != labels[id]) {
+                                    next[id] = label;
+                                    changes++;
+                                }
+                            }
+                            return new double[]{changes};
+                        }
+                    });
+                    for (double[] result : results) changes += (int) result[0];
+                    System.arraycopy(next, 0, labels, 0, size);
+                }
+                if (changes == 0) break;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return labels;
+    }
+
+    // Half of the groups, changing at every step, are updated: updating all of them at once can make two
+    // neighbours swap their labels forever.
+    private static boolean updated(int id, int step) {
+        return ((((id * 0x9E3779B9) >>> 16) ^ (step >> 1)) & 1) == (step & 1);
+    }
+
+    // The label with the highest weight among the neighbours: the current label wins the ties, then the lowest.
+    private static int bestLabel(Neighbours neighbours, int[] labels, int id, long[] weightByLabel, int[] touched) {
+        int count = 0;
+        for (int edge = neighbours.offsets[id]; edge < neighbours.offsets[id + 1]; edge++) {
+            int label = labels[neighbours.ids[edge]];
+            if (weightByLabel[label] == 0) touched[count++] = label;
+            weightByLabel[label] += neighbours.weights[edge];
+        }
+        int best = NO_LABEL;
+        long bestWeight = 0;
+        for (int i = 0; i < count; i++) {
+            int label = touched[i];
+            long weight = weightByLabel[label];
+            if (weight > bestWeight || (weight == bestWeight && best != labels[id] && (label == labels[id] || label < best))) {
+                best = label;
+                bestWeight = weight;
+            }
+            weightByLabel[label] = 0;
+        }
+        return best;
+    }
+
+    private static <T> List<Cluster<T>> clusters(List<T> groups, int[] labels, LongIntMap weights) {
+        // Members of every label, the clusters are ordered by size and then by first member
+        Map<Integer, List<T>> members = new LinkedHashMap<Integer, List<T>>();
+        for (int id = 0; id < labels.length; id++) {
+            List<T> list = members.get(labels[id]);
+            if (list == null) {
+                list = new ArrayList<T>();
+                members.put(labels[id], list);
+            }
+            list.add(groups.get(id));
+        }
+        List<Map.Entry<Integer, List<T>>> entries = new ArrayList<Map.Entry<Integer, List<T>>>(members.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<Integer, List<T>>>() {
+            @Override
+            public int compare(Map.Entry<Integer, List<T>> first, Map.Entry<Integer, List<T>> second) {
+                return second.getValue().size() - first.getValue().size();
+            }
+        });
+        int[] clusterOfLabel = new int[labels.length];
+        for (int c = 0; c < entries.size(); c++) clusterOfLabel[entries.get(c).getKey()] = c;
+        // Dependencies between the clusters
+        long[] internal = new long[entries.size()];
+        LongIntMap between = new LongIntMap();
+        for (long key : weights.keys()) {
+            int source = clusterOfLabel[labels[LongIntMap.first(key)]];
+            int target = clusterOfLabel[labels[LongIntMap.second(key)]];
+            if (source == target) internal[source] += weights.get(key);
+            else between.add(LongIntMap.pair(source, target), weights.get(key));
+        }
+        long[] keys = between.keys();
+        Arrays.sort(keys);
+        long[] incoming = new long[entries.size()];
+        for (long key : keys) incoming[LongIntMap.second(key)] += between.get(key);
+        List<Cluster<T>> clusters = new ArrayList<Cluster<T>>(entries.size());
+        int index = 0;
+        for (int c = 0; c < entries.size(); c++) {
+            int start = index;
+            while (index < keys.length && LongIntMap.first(keys[index]) == c) index++;
+            int[] targets = new int[index - start];
+            long[] counts = new long[index - start];
+            for (int i = start; i < index; i++) {
+                targets[i - start] = LongIntMap.second(keys[i]);
+                counts[i - start] = between.get(keys[i]);
+            }
+            clusters.add(new Cluster<T>(c, entries.get(c).getValue(), internal[c], incoming[c], targets, counts));
+        }
+        return Collections.unmodifiableList(clusters);
+    }
+
+    // The undirected weighted graph of the groups: the weight of a pair is the number of dependencies in both directions.
+    private static class Neighbours {
+
+        final int size;
+        final int[] offsets;
+        final int[] ids;
+        final long[] weights;
+
+        Neighbours(int size, LongIntMap directed) {
+            LongIntMap undirected = new LongIntMap(directed.size());
+            for (long key : directed.keys()) {
+                int first = LongIntMap.first(key);
+                int second = LongIntMap.second(key);
+                if (first != second) undirected.add(LongIntMap.pair(Math.min(first, second), Math.max(first, second)), directed.get(key));
+            }
+            long[] pairs = undirected.keys();
+            this.size = size;
+            this.offsets = new int[size + 1];
+            for (long pair : pairs) {
+                offsets[LongIntMap.first(pair) + 1]++;
+                offsets[LongIntMap.second(pair) + 1]++;
+            }
+            for (int id = 0; id < size; id++) offsets[id + 1] += offsets[id];
+            this.ids = new int[pairs.length * 2];
+            this.weights = new long[pairs.length * 2];
+            int[] positions = Arrays.copyOf(offsets, size);
+            for (long pair : pairs) {
+                int first = LongIntMap.first(pair);
+                int second = LongIntMap.second(pair);
+                int weight = undirected.get(pair);
+                ids[positions[first]] = second;
+                weights[positions[first]++] = weight;
+                ids[positions[second]] = first;
+                weights[positions[second]++] = weight;
+            }
+        }
+
+    }
+
+    public static class Cluster<T> {
+
+        private final int id;
+        private final List<T> members;
+        private final long internalEdges;
+        private final long incomingEdges;
+        private final int[] targets;
+        private final long[] counts;
+
+        private Cluster(int id, List<T> members, long internalEdges, long incomingEdges, int[] targets, long[] counts) {
+            this.id = id;
+            this.members = Collections.unmodifiableList(members);
+            this.internalEdges = internalEdges;
+            this.incomingEdges = incomingEdges;
+            this.targets = targets;
+            this.counts = counts;
+        }
+
+        // The position of the cluster in the list of the clusters.
+        public int getId() {
+            return id;
+        }
+
+        public List<T> getMembers() {
+            return members;
+        }
+
+        // The number of dependencies between the classes of the cluster.
+        public long getInternalEdges() {
+            return internalEdges;
+        }
+
+        // The number of dependencies from the classes of the cluster to the classes of the other cluster.
+        public long getEdgesTo(Cluster<T> other) {
+            int index = Arrays.binarySearch(targets, other.id);
+            return index >= 0 ? counts[index] : 0;
+        }
+
+        // The number of dependencies from the classes of the cluster to the other clusters.
+        public long getOutgoingEdges() {
+            long sum = 0;
+            for (long count : counts) sum += count;
+            return sum;
+        }
+
+        // The number of dependencies from the other clusters to the classes of the cluster.
+        public long getIncomingEdges() {
+            return incomingEdges;
+        }
+
+        @Override
+        public String toString() {
+            return "Cluster " + id + " " + members;
+        }
+
+    }
+
+}
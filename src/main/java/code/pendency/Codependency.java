@@ -2,6 +2,7 @@ package code.pendency;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 public class Codependency {
 
@@ -10,32 +11,41 @@ public class Codependency {
     private final List<String> includes;
     private final List<String> excludes;
     private final List<ParserListener> listeners;
+    private final Set<DependencyKind> kinds;
+    private final boolean members;
+    private final MetricsListener metrics;
 
     private Codependency(List<String> directories,
                          boolean includeInnerClasses,
                          List<String> includes,
                          List<String> excludes,
-                         List<ParserListener> listeners) {
+                         List<ParserListener> listeners,
+                         Set<DependencyKind> kinds,
+                         boolean members,
+                         MetricsListener metrics) {
         this.directories = Collections.unmodifiableList(directories);
         this.includeInnerClasses = includeInnerClasses;
         this.includes = Collections.unmodifiableList(includes);
         this.excludes = Collections.unmodifiableList(excludes);
         this.listeners = Collections.unmodifiableList(listeners);
+        this.kinds = Collections.unmodifiableSet(kinds);
+        this.members = members;
+        this.metrics = metrics;
     }
 
     private final static List<String> empty = Collections.emptyList();
     private final static List<ParserListener> noListeners = Collections.emptyList();
 
     public static Codependency create() {
-        return new Codependency(empty, true, empty, empty, noListeners);
+        return new Codependency(empty, true, empty, empty, noListeners, DependencyKind.declared(), false, null);
     }
 
     public Codependency includesInnerClasses() {
-        return new Codependency(directories, true, includes, excludes, listeners);
+        return new Codependency(directories, true, includes, excludes, listeners, kinds, members, metrics);
     }
 
     public Codependency excludesInnerClasses() {
-        return new Codependency(directories, false, includes, excludes, listeners);
+        return new Codependency(directories, false, includes, excludes, listeners, kinds, members, metrics);
     }
 
     public Codependency withEntireClassPath() {
@@ -44,74 +54,173 @@ public class Codependency {
         Set<String> directories = new HashSet<String>(this.directories);
         if (classpath != null) Collections.addAll(directories, classpath.split(File.pathSeparator));
         if (sunClassPath != null) Collections.addAll(directories, sunClassPath.split(File.pathSeparator));
-        return new Codependency(new ArrayList<String>(directories), includeInnerClasses, includes, excludes, listeners);
+        return new Codependency(new ArrayList<String>(directories), includeInnerClasses, includes, excludes, listeners, kinds, members, metrics);
     }
 
     public Codependency withDirectory(String name) {
         List<String> directories = new ArrayList<String>(this.directories);
         directories.add(name);
-        return new Codependency(directories, includeInnerClasses, includes, excludes, listeners);
+        return new Codependency(directories, includeInnerClasses, includes, excludes, listeners, kinds, members, metrics);
     }
 
     public Codependency withListener(ParserListener listener) {
         List<ParserListener> listeners = new ArrayList<ParserListener>(this.listeners);
         listeners.add(listener);
-        return new Codependency(directories, includeInnerClasses, includes, excludes, listeners);
+        return new Codependency(directories, includeInnerClasses, includes, excludes, listeners, kinds, members, metrics);
     }
 
     public Codependency excludes(String prefix) {
         List<String> excludes = new ArrayList<String>(this.excludes);
         excludes.add(prefix);
-        return new Codependency(directories, includeInnerClasses, includes, excludes, listeners);
+        return new Codependency(directories, includeInnerClasses, includes, excludes, listeners, kinds, members, metrics);
     }
 
     public Codependency includes(String prefix) {
         List<String> includes = new ArrayList<String>(this.includes);
         includes.add(prefix);
-        return new Codependency(directories, includeInnerClasses, includes, excludes, listeners);
+        return new Codependency(directories, includeInnerClasses, includes, excludes, listeners, kinds, members, metrics);
+    }
+
+    // Extracts only the given kinds of dependencies (the declared ones by default), the parser skips the work needed
+    // by the others. The method bodies are scanned only if a usage kind (e.g. INVOKE) is given.
+    public Codependency withDependencyKinds(DependencyKind first, DependencyKind... others) {
+        return new Codependency(directories, includeInnerClasses, includes, excludes, listeners, EnumSet.of(first, others), members, metrics);
+    }
+
+    // Extracts also the usage kinds of dependencies, scanning the instructions of the method bodies.
+    public Codependency withUsages() {
+        Set<DependencyKind> kinds = EnumSet.copyOf(this.kinds);
+        kinds.addAll(DependencyKind.USAGES);
+        return new Codependency(directories, includeInnerClasses, includes, excludes, listeners, kinds, members, metrics);
+    }
+
+    // Extracts also the member graph (see Analysis.getMembers): the fields and the methods of the classes
+    // and the members used by the code of every method.
+    public Codependency withMembers() {
+        return new Codependency(directories, includeInnerClasses, includes, excludes, listeners, kinds, true, metrics);
+    }
+
+    // Measures the analyses (time per phase, bytes read, errors...), e.g. with an AnalysisMetrics.
+    public Codependency withMetrics(MetricsListener metrics) {
+        return new Codependency(directories, includeInnerClasses, includes, excludes, listeners, kinds, members, metrics);
+    }
+
+    List<String> getDirectories() {
+        return directories;
+    }
+
+    MetricsListener getMetrics() {
+        return metrics;
     }
 
     public Analysis analyze() {
-        Collection<JavaClass> javaClasses = createBuilder().build();
-        Map<String, JavaClass> efferentsMap = new HashMap<String, JavaClass>(javaClasses.size());
-        Map<String, Set<String>> afferentsMap = new HashMap<String, Set<String>>(javaClasses.size());
+        JavaClassBuilder builder = createBuilder(directories);
+        Collection<JavaClass> classes = builder.build();
+        return link(classes, metrics, builder.getDefinitions().conflicts());
+    }
+
+    // The same groups of analyze().group(extractor), aggregated while the classes are parsed: the classes are not
+    // kept, only their names, the counters of the groups and, unless the group is derived from the name (e.g.
+    // BY_PACKAGE), two ints for every dependency on a class not parsed yet (see GroupAggregator). The extractor is
+    // given the parsed classes, without efferents and afferents.
+    public <T> Collection<Analysis.GroupByItem<T>> aggregate(Analysis.GroupById<T> extractor) {
+        GroupAggregator<T> aggregator = new GroupAggregator<T>(extractor);
+        createBuilder(directories).build(aggregator);
+        long start = metrics != null ? System.nanoTime() : 0;
+        Collection<Analysis.GroupByItem<T>> groups = aggregator.groups();
+        if (metrics != null) metrics.onPhase(AnalysisPhase.GROUP, System.nanoTime() - start);
+        return groups;
+    }
+
+    // Analyzes the classes in another thread.
+    public AnalysisTask analyzeAsync() {
+        return analyzeAsync(null);
+    }
+
+    // Analyzes the classes in another thread, the listener (if not null) is told the progress.
+    public AnalysisTask analyzeAsync(ProgressListener progress) {
+        return analyzeAsync(progress, 0, TimeUnit.NANOSECONDS);
+    }
+
+    // Analyzes the classes in another thread: when the timeout expires the scan and the parsing stop and the analysis
+    // contains only the classes already parsed (see AnalysisTask.isPartial), the linking is not bounded by the
+    // timeout. A timeout of 0 never expires.
+    public AnalysisTask analyzeAsync(ProgressListener progress, long timeout, TimeUnit unit) {
+        AnalysisTask task = new AnalysisTask(this, progress, unit.toNanos(timeout));
+        task.start();
+        return task;
+    }
+
+    // The analysis of a task, null if the task has been cancelled.
+    Analysis analyze(AnalysisTask task) {
+        JavaClassBuilder builder = createBuilder(directories);
+        Collection<JavaClass> classes = builder.build(task);
+        if (task.isCancelled()) return null;
+        task.linking(classes.size());
+        return link(classes, metrics, builder.getDefinitions().conflicts());
+    }
+
+    // A session parsing every directory or archive only once, for analyzing many modules sharing the same jars.
+    public CodependencySession session() {
+        return new CodependencySession(this);
+    }
+
+    static Analysis link(Collection<JavaClass> javaClasses) {
+        return link(javaClasses, null, Collections.<ClassConflict>emptyList());
+    }
+
+    // Replace the efferent ids with the classes, creating the classes not found, and build the member graph if extracted.
+    // The classes given are not changed (e.g. a session links them again): the linked ones are lighter copies,
+    // without the efferent ids, sharing the names and linked to each other in place. The afferents are
+    // computed the first time they are needed.
+    static Analysis link(Collection<JavaClass> javaClasses, MetricsListener metrics, List<ClassConflict> conflicts) {
+        return link(javaClasses, metrics, conflicts, null);
+    }
+
+    // The analysis keeps the given member graph, if not null, instead of building it from the classes.
+    static Analysis link(Collection<JavaClass> javaClasses, MetricsListener metrics, List<ClassConflict> conflicts,
+                         MemberGraph members) {
+        long start = metrics != null ? System.nanoTime() : 0;
+        SharedNames names = new SharedNames();
+        Map<String, Integer> ids = new HashMap<String, Integer>(javaClasses.size() * 2);
+        List<JavaClass> sources = new ArrayList<JavaClass>(javaClasses.size());
+        List<JavaClass> linked = new ArrayList<JavaClass>(javaClasses.size());
         for (JavaClass javaClass : javaClasses) {
-            efferentsMap.put(javaClass.getClassName(), javaClass);
-            for (String efferentId : javaClass.getEfferentIds()) {
-                if (!afferentsMap.containsKey(efferentId)) {
-                    afferentsMap.put(efferentId, new HashSet<String>());
-                }
-                afferentsMap.get(efferentId).add(javaClass.getClassName());
-                if (!efferentsMap.containsKey(efferentId)) {
-                    efferentsMap.put(efferentId, new JavaClass(efferentId));
-                }
+            // A class defined twice: the first one in the order of the classpath wins, as for the JVM
+            if (!ids.containsKey(javaClass.getClassName())) {
+                ids.put(javaClass.getClassName(), linked.size());
+                sources.add(javaClass);
+                linked.add(javaClass.toLink(names));
             }
         }
-        Set<JavaClass> result = new HashSet<JavaClass>(efferentsMap.size());
-        for (JavaClass javaClass : efferentsMap.values()) {
-            Set<JavaClass> efferents = new HashSet<JavaClass>(javaClass.getEfferentIds().size());
-            for (String efferentId : javaClass.getEfferentIds()) {
-                efferents.add(efferentsMap.get(efferentId));
-            }
-            javaClass = javaClass.withEfferents(efferents);
-            Set<String> afferentIds = afferentsMap.get(javaClass.getClassName());
-            if (afferentIds != null) {
-                Set<JavaClass> afferents = new HashSet<JavaClass>(afferentIds.size());
-                for (String afferentId : afferentIds) {
-                    afferents.add(efferentsMap.get(afferentId));
+        int parsed = sources.size();
+        for (int id = 0; id < parsed; id++) {
+            for (String efferentId : sources.get(id).getEfferentIds()) {
+                if (!ids.containsKey(efferentId)) {
+                    ids.put(efferentId, linked.size());
+                    linked.add(new JavaClass(efferentId).toLink(names));
                 }
-                javaClass = javaClass.withAfferents(afferents);
             }
-            result.add(javaClass);
         }
-        return new Analysis(result);
+        // Efferents in the order of the ids (as the kinds), the afferents are computed when first needed
+        Afferents afferents = new Afferents(linked);
+        for (int id = 0; id < linked.size(); id++) {
+            Collection<String> efferentIds = id < parsed ? sources.get(id).getEfferentIds() : Collections.<String>emptyList();
+            Object[] efferents = new Object[efferentIds.size()];
+            int index = 0;
+            for (String efferentId : efferentIds) efferents[index++] = linked.get(ids.get(efferentId));
+            linked.get(id).link(efferents, afferents);
+        }
+        if (members == null) members = MemberGraph.of(sources, ids, linked);
+        if (metrics != null) metrics.onPhase(AnalysisPhase.LINK, System.nanoTime() - start);
+        return new Analysis(linked, metrics, conflicts, members);
     }
 
-    private JavaClassBuilder createBuilder() {
+    JavaClassBuilder createBuilder(List<String> directories) {
         Filter filter = new Filter(includeInnerClasses, includes, excludes);
         FileManager fileManager = new FileManager(filter, directories);
-        ClassFileParser parser = new ClassFileParser(filter, listeners);
-        return new JavaClassBuilder(parser, fileManager, filter);
+        ClassFileParser parser = new ClassFileParser(filter, listeners, kinds, members);
+        return new JavaClassBuilder(parser, fileManager, filter, metrics);
     }
 
 }
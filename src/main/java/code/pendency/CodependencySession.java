@@ -0,0 +1,99 @@
+package code.pendency;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Analyzes many modules sharing the same dependencies, e.g. the modules of a Maven reactor, with the
+ * configuration of a {@link Codependency}. Every directory or archive is parsed only the first time a module
+ * uses it and the classes parsed are shared by the analyses of all the modules: each analysis only links the
+ * classes of its own directories and archives.
+ * <p>
+ * A directory or an archive is parsed again only if its files changed (names, sizes or modification times).
+ * The listeners are notified only when a class is parsed. The session is thread safe, so the modules can be
+ * analyzed in parallel.
+ */
+public class CodependencySession {
+
+    private final Codependency codependency;
+    private final Map<String, Input> inputs = new HashMap<String, Input>();
+    private final AtomicInteger parsedInputs = new AtomicInteger();
+
+    CodependencySession(Codependency codependency) {
+        this.codependency = codependency;
+    }
+
+    // The analysis of the classes in the directories and archives of a module.
+    public Analysis analyze(Collection<String> directories) {
+        JavaClassBuilder builder = codependency.createBuilder(new ArrayList<String>(directories));
+        Collection<JavaClass> classes = new ArrayList<JavaClass>();
+        ClassDefinitions definitions = new ClassDefinitions();
+        for (File file : builder.getInputs()) {
+            Parsed parsed = parse(builder, file);
+            classes.addAll(parsed.classes);
+            definitions.addAll(parsed.definitions);
+        }
+        return Codependency.link(classes, codependency.getMetrics(), definitions.conflicts());
+    }
+
+    public Analysis analyze(String... directories) {
+        return analyze(Arrays.asList(directories));
+    }
+
+    // The number of times a directory or an archive has been parsed.
+    public int getParsedInputs() {
+        return parsedInputs.get();
+    }
+
+    // The number of directories and archives whose classes are kept by the session.
+    public int getCachedInputs() {
+        synchronized (inputs) {
+            return inputs.size();
+        }
+    }
+
+    // The classes of a directory or an archive, parsed if they changed.
+    private Parsed parse(JavaClassBuilder builder, File file) {
+        Input input;
+        synchronized (inputs) {
+            input = inputs.get(file.getAbsolutePath());
+            if (input == null) {
+                input = new Input();
+                inputs.put(file.getAbsolutePath(), input);
+            }
+        }
+        // Only the threads needing the same input wait for the parsing
+        synchronized (input) {
+            long fingerprint = FileManager.fingerprint(file, 17);
+            if (input.parsed == null || input.fingerprint != fingerprint) {
+                Collection<JavaClass> classes = builder.build(file);
+                input.parsed = new Parsed(classes, builder.getDefinitions());
+                input.fingerprint = fingerprint;
+                parsedInputs.incrementAndGet();
+            }
+            return input.parsed;
+        }
+    }
+
+    private static class Input {
+
+        long fingerprint;
+        Parsed parsed;
+
+    }
+
+    // The classes of an input, never changed once parsed.
+    private static class Parsed {
+
+        final List<JavaClass> classes;
+        final ClassDefinitions definitions;
+
+        Parsed(Collection<JavaClass> classes, ClassDefinitions definitions) {
+            this.classes = Collections.unmodifiableList(new ArrayList<JavaClass>(classes));
+            this.definitions = definitions;
+        }
+
+    }
+
+}
@@ -0,0 +1,42 @@
+package code.pendency;
+
+/**
+ * A dependency (edge) from a source to a target, the source depends on the target.
+ */
+public class Dependency<T> {
+
+    private final T source;
+    private final T target;
+
+    public Dependency(T source, T target) {
+        this.source = source;
+        this.target = target;
+    }
+
+    public T getSource() {
+        return source;
+    }
+
+    public T getTarget() {
+        return target;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Dependency<?> that = (Dependency<?>) o;
+        return source.equals(that.source) && target.equals(that.target);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * source.hashCode() + target.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return source + " -> " + target;
+    }
+
+}
@@ -0,0 +1,64 @@
+package code.pendency;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Where a dependency comes from in the class file. The parser only extracts the kinds requested,
+ * skipping the work needed by the others.
+ * <p>
+ * The declared kinds come from the signatures, the constant pool and the annotations and are extracted by default.
+ * The usage kinds come from the instructions of the method bodies: they are extracted only if requested, because
+ * the <code>Code</code> attributes must be scanned.
+ */
+public enum DependencyKind {
+
+    // The super class
+    SUPERCLASS,
+    // The implemented (or extended) interfaces
+    INTERFACE,
+    // The types of the fields
+    FIELD,
+    // The types of the method parameters and return values
+    METHOD,
+    // The classes referenced by the constant pool
+    CONSTANT,
+    // The annotations (and their values) on the class, the fields and the methods
+    ANNOTATION,
+    // The owners of the methods invoked by the method bodies
+    INVOKE,
+    // The classes (and the arrays) instantiated by the method bodies
+    INSTANTIATE,
+    // The types the method bodies cast to or check with instanceof
+    CAST,
+    // The owners of the fields read or written by the method bodies
+    FIELD_ACCESS,
+    // The bootstrap methods of the invokedynamic instructions and their method handles (e.g. the lambda bodies)
+    BOOTSTRAP;
+
+    // The kinds found in the method bodies
+    final static Set<DependencyKind> USAGES = Collections.unmodifiableSet(EnumSet.range(INVOKE, BOOTSTRAP));
+
+    final int bit() {
+        return 1 << ordinal();
+    }
+
+    static int bits(Set<DependencyKind> kinds) {
+        int bits = 0;
+        for (DependencyKind kind : kinds) bits |= kind.bit();
+        return bits;
+    }
+
+    // The declared kinds, extracted by default.
+    static Set<DependencyKind> declared() {
+        return EnumSet.range(SUPERCLASS, ANNOTATION);
+    }
+
+    static Set<DependencyKind> fromBits(int bits) {
+        Set<DependencyKind> kinds = EnumSet.noneOf(DependencyKind.class);
+        for (DependencyKind kind : values()) if ((bits & kind.bit()) != 0) kinds.add(kind);
+        return kinds;
+    }
+
+}
@@ -0,0 +1,241 @@
+package code.pendency;
+
+import java.util.*;
+
+/**
+ * Explains a dependency with the chains of classes linking a class (or a group) to another.
+ * <p>
+ * The shortest path is found with a bidirectional breadth first search, forward over the efferents from the
+ * source and backward over the afferents from the target, always expanding the smaller frontier. The k shortest
+ * paths are found with the Yen algorithm on top of the same search. The search works on the ids of the graph
+ * and reuses its work arrays between the queries, so the instance is not meant to be shared between threads.
+ */
+public class DependencyPaths {
+
+    private final ClassGraph graph;
+    private final Map<Analysis.GroupById<?>, Map<Object, int[]>> groups = new HashMap<Analysis.GroupById<?>, Map<Object, int[]>>();
+    // Work arrays, a node is visited (or blocked) if its stamp is the current one.
+    private final int[] forward;
+    private final int[] backward;
+    private final int[] forwardParents;
+    private final int[] backwardParents;
+    private final int[] forwardDistances;
+    private final int[] backwardDistances;
+    private final int[] blocked;
+    private int stamp = 0;
+    private int blockedStamp = 0;
+
+    DependencyPaths(ClassGraph graph) {
+        this.graph = graph;
+        int size = graph.size();
+        this.forward = new int[size];
+        this.backward = new int[size];
+        this.forwardParents = new int[size];
+        this.backwardParents = new int[size];
+        this.forwardDistances = new int[size];
+        this.backwardDistances = new int[size];
+        this.blocked = new int[size];
+    }
+
+    // The shortest chain of dependencies from the first class to the second, empty if the class doesn't depend on the other.
+    public List<JavaClass> shortestPath(String from, String to) {
+        List<List<JavaClass>> paths = shortestPaths(from, to, 1);
+        return paths.isEmpty() ? Collections.<JavaClass>emptyList() : paths.get(0);
+    }
+
+    // The k shortest chains of dependencies (without loops) from the first class to the second.
+    public List<List<JavaClass>> shortestPaths(String from, String to, int k) {
+        int source = graph.id(from);
+        int target = graph.id(to);
+        if (source < 0 || target < 0) return Collections.emptyList();
+        return shortestPaths(new int[]{source}, new int[]{target}, k);
+    }
+
+    // The shortest chain of dependencies from any class of the first group to any class of the second.
+    public <T> List<JavaClass> shortestPath(Analysis.GroupById<T> extractor, T from, T to) {
+        List<List<JavaClass>> paths = shortestPaths(extractor, from, to, 1);
+        return paths.isEmpty() ? Collections.<JavaClass>emptyList() : paths.get(0);
+    }
+
+    // The k shortest chains of dependencies (without loops) from any class of the first group to any class of the second.
+    public <T> List<List<JavaClass>> shortestPaths(Analysis.GroupById<T> extractor, T from, T to, int k) {
+        Map<Object, int[]> members = members(extractor);
+        int[] sources = members.get(from);
+        int[] targets = members.get(to);
+        if (sources == null || targets == null) return Collections.emptyList();
+        return shortestPaths(sources, targets, k);
+    }
+
+    private Map<Object, int[]> members(Analysis.GroupById<?> extractor) {
+        Map<Object, int[]> members = groups.get(extractor);
+        if (members == null) {
+            Map<Object, IntList> lists = new HashMap<Object, IntList>();
+            for (int id = 0; id < graph.size(); id++) {
+                Object key = extractor.extract(graph.get(id));
+                IntList list = lists.get(key);
+                if (list == null) {
+                    list = new IntList();
+                    lists.put(key, list);
+                }
+                list.add(id);
+            }
+            members = new HashMap<Object, int[]>(lists.size());
+            for (Map.Entry<Object, IntList> entry : lists.entrySet()) members.put(entry.getKey(), entry.getValue().toArray());
+            groups.put(extractor, members);
+        }
+        return members;
+    }
+
+    // Yen algorithm: every new path deviates from a previous one at a spur node, the part before the spur node
+    // (the root) is kept and the rest is the shortest path avoiding the root and the edges already taken.
+    private List<List<JavaClass>> shortestPaths(int[] sources, int[] targets, int k) {
+        List<int[]> paths = new ArrayList<int[]>();
+        if (k <= 0) return Collections.emptyList();
+        blockedStamp++;
+        int[] first = search(sources, targets, new HashSet<Long>());
+        if (first == null) return Collections.emptyList();
+        paths.add(first);
+        PriorityQueue<int[]> candidates = new PriorityQueue<int[]>(11, BY_LENGTH);
+        Set<String> known = new HashSet<String>();
+        known.add(Arrays.toString(first));
+        while (paths.size() < k) {
+            int[] previous = paths.get(paths.size() - 1);
+            // The spur index -1 is the virtual node linked to all the sources.
+            for (int spur = -1; spur < previous.length - 1; spur++) {
+                Set<Long> blockedEdges = new HashSet<Long>();
+                Set<Integer> blockedStarts = new HashSet<Integer>();
+                for (int[] path : paths) {
+                    if (path.length > spur + 1 && sameRoot(path, previous, spur)) {
+                        if (spur < 0) blockedStarts.add(path[0]);
+                        else blockedEdges.add(LongIntMap.pair(path[spur], path[spur + 1]));
+                    }
+                }
+                blockedStamp++;
+                for (int i = 0; i < spur; i++) blocked[previous[i]] = blockedStamp;
+                int[] spurSources;
+                if (spur < 0) {
+                    IntList starts = new IntList();
+                    for (int source : sources) if (!blockedStarts.contains(source)) starts.add(source);
+                    spurSources = starts.toArray();
+                } else {
+                    spurSources = new int[]{previous[spur]};
+                }
+                int[] spurPath = search(spurSources, targets, blockedEdges);
+                if (spurPath != null) {
+                    int rootLength = Math.max(spur, 0);
+                    int[] candidate = new int[rootLength + spurPath.length];
+                    System.arraycopy(previous, 0, candidate, 0, rootLength);
+                    System.arraycopy(spurPath, 0, candidate, rootLength, spurPath.length);
+                    if (known.add(Arrays.toString(candidate))) candidates.add(candidate);
+                }
+            }
+            if (candidates.isEmpty()) break;
+            paths.add(candidates.poll());
+        }
+        List<List<JavaClass>> result = new ArrayList<List<JavaClass>>(paths.size());
+        for (int[] path : paths) {
+            List<JavaClass> classes = new ArrayList<JavaClass>(path.length);
+            for (int id : path) classes.add(graph.get(id));
+            result.add(classes);
+        }
+        return result;
+    }
+
+    private static boolean sameRoot(int[] path, int[] other, int spur) {
+        for (int i = 0; i <= spur; i++) if (path[i] != other[i]) return false;
+        return true;
+    }
+
+    private final static Comparator<int[]> BY_LENGTH = new Comparator<int[]>() {
+        @Override
+        public int compare(int[] first, int[] second) {
+            return first.length < second.length ? -1 : (first.length == second.length ? 0 : 1);
+        }
+    };
+
+    // Bidirectional breadth first search, returns the ids of the shortest path or null.
+    private int[] search(int[] sources, int[] targets, Set<Long> blockedEdges) {
+        stamp++;
+        IntList forwardFrontier = new IntList();
+        IntList backwardFrontier = new IntList();
+        for (int source : sources) {
+            if (blocked[source] == blockedStamp || forward[source] == stamp) continue;
+            forward[source] = stamp;
+            forwardParents[source] = -1;
+            forwardDistances[source] = 0;
+            forwardFrontier.add(source);
+        }
+        for (int target : targets) {
+            if (blocked[target] == blockedStamp || backward[target] == stamp) continue;
+            if (forward[target] == stamp) return new int[]{target};
+            backward[target] = stamp;
+            backwardParents[target] = -1;
+            backwardDistances[target] = 0;
+            backwardFrontier.add(target);
+        }
+        int bestLength = Integer.MAX_VALUE;
+        int bestFrom = -1;
+        int bestTo = -1;
+        while (!forwardFrontier.isEmpty() && !backwardFrontier.isEmpty()) {
+            boolean expandForward = forwardFrontier.size() <= backwardFrontier.size();
+            IntList frontier = expandForward ? forwardFrontier : backwardFrontier;
+            IntList next = new IntList();
+            for (int f = 0; f < frontier.size(); f++) {
+                int node = frontier.get(f);
+                int start = expandForward ? graph.efferentsStart(node) : graph.afferentsStart(node);
+                int end = expandForward ? graph.efferentsEnd(node) : graph.afferentsEnd(node);
+                for (int edge = start; edge < end; edge++) {
+                    int other = expandForward ? graph.efferent(edge) : graph.afferent(edge);
+                    if (blocked[other] == blockedStamp) continue;
+                    int from = expandForward ? node : other;
+                    int to = expandForward ? other : node;
+                    if (!blockedEdges.isEmpty() && blockedEdges.contains(LongIntMap.pair(from, to))) continue;
+                    if (expandForward) {
+                        if (backward[other] == stamp) {
+                            int length = forwardDistances[node] + 1 + backwardDistances[other];
+                            if (length < bestLength) {
+                                bestLength = length;
+                                bestFrom = from;
+                                bestTo = to;
+                            }
+                        }
+                        if (forward[other] != stamp) {
+                            forward[other] = stamp;
+                            forwardParents[other] = node;
+                            forwardDistances[other] = forwardDistances[node] + 1;
+                            next.add(other);
+                        }
+                    } else {
+                        if (forward[other] == stamp) {
+                            int length = forwardDistances[other] + 1 + backwardDistances[node];
+                            if (length < bestLength) {
+                                bestLength = length;
+                                bestFrom = from;
+                                bestTo = to;
+                            }
+                        }
+                        if (backward[other] != stamp) {
+                            backward[other] = stamp;
+                            backwardParents[other] = node;
+                            backwardDistances[other] = backwardDistances[node] + 1;
+                            next.add(other);
+                        }
+                    }
+                }
+            }
+            // The first level where the two searches meet contains the shortest path.
+            if (bestFrom >= 0) break;
+            if (expandForward) forwardFrontier = next;
+            else backwardFrontier = next;
+        }
+        if (bestFrom < 0) return null;
+        IntList path = new IntList();
+        for (int node = bestFrom; node >= 0; node = forwardParents[node]) path.add(node);
+        int[] result = new int[bestLength + 1];
+        for (int i = 0; i < path.size(); i++) result[i] = path.get(path.size() - 1 - i);
+        int index = path.size();
+        for (int node = bestTo; node >= 0; node = backwardParents[node]) result[index++] = node;
+        return result;
+    }
+
+}
@@ -0,0 +1,141 @@
+package code.pendency;
+
+import java.util.Arrays;
+
+/**
+ * Directed graph on primitive arrays, in both directions, used by the algorithms that run on
+ * the classes as well as on the groups of classes.
+ */
+final class Digraph {
+
+    final int size;
+    final int[] efferentOffsets;
+    final int[] efferents;
+    final int[] afferentOffsets;
+    final int[] afferents;
+
+    private Digraph(int size, int[] efferentOffsets, int[] efferents, int[] afferentOffsets, int[] afferents) {
+        this.size = size;
+        this.efferentOffsets = efferentOffsets;
+        this.efferents = efferents;
+        this.afferentOffsets = afferentOffsets;
+        this.afferents = afferents;
+    }
+
+    // The graph of the classes, the ids are the same.
+    static Digraph of(ClassGraph graph) {
+        int size = graph.size();
+        int[] efferentOffsets = new int[size + 1];
+        int[] efferents = new int[graph.numberOfEdges()];
+        int[] afferentOffsets = new int[size + 1];
+        int[] afferents = new int[graph.numberOfEdges()];
+        for (int id = 0; id < size; id++) {
+            efferentOffsets[id + 1] = graph.efferentsEnd(id);
+            afferentOffsets[id + 1] = graph.afferentsEnd(id);
+        }
+        for (int edge = 0; edge < efferents.length; edge++) {
+            efferents[edge] = graph.efferent(edge);
+            afferents[edge] = graph.afferent(edge);
+        }
+        return new Digraph(size, efferentOffsets, efferents, afferentOffsets, afferents);
+    }
+
+    // The graph of the groups of the nodes: an edge between two groups if a node of the first depends on
+    // a node of the second. The loops are removed.
+    Digraph condense(int[] groups, int numberOfGroups) {
+        long[] edges = new long[efferents.length];
+        int count = 0;
+        for (int id = 0; id < size; id++) {
+            for (int edge = efferentOffsets[id]; edge < efferentOffsets[id + 1]; edge++) {
+                int target = groups[efferents[edge]];
+                if (groups[id] != target) edges[count++] = LongIntMap.pair(groups[id], target);
+            }
+        }
+        return fromEdges(numberOfGroups, edges, count);
+    }
+
+    // The edges are pairs (source, target), the duplicates are removed.
+    static Digraph fromEdges(int size, long[] edges, int count) {
+        Arrays.sort(edges, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) if (unique == 0 || edges[i] != edges[unique - 1]) edges[unique++] = edges[i];
+        int[] efferentOffsets = new int[size + 1];
+        int[] efferents = new int[unique];
+        int[] afferentOffsets = new int[size + 1];
+        int[] afferents = new int[unique];
+        for (int i = 0; i < unique; i++) {
+            efferentOffsets[LongIntMap.first(edges[i]) + 1]++;
+            afferentOffsets[LongIntMap.second(edges[i]) + 1]++;
+            efferents[i] = LongIntMap.second(edges[i]);
+        }
+        for (int id = 0; id < size; id++) {
+            efferentOffsets[id + 1] += efferentOffsets[id];
+            afferentOffsets[id + 1] += afferentOffsets[id];
+        }
+        // The edges are sorted by source, so every row of afferents is sorted too
+        int[] positions = Arrays.copyOf(afferentOffsets, size);
+        for (int i = 0; i < unique; i++) afferents[positions[LongIntMap.second(edges[i])]++] = LongIntMap.first(edges[i]);
+        return new Digraph(size, efferentOffsets, efferents, afferentOffsets, afferents);
+    }
+
+    int efferentCoupling(int id) {
+        return efferentOffsets[id + 1] - efferentOffsets[id];
+    }
+
+    // The strongly connected components (Tarjan, without recursion): the component of every node,
+    // the components are numbered in reverse topological order of the efferents.
+    int[] components() {
+        int[] components = new int[size];
+        int[] index = new int[size];
+        int[] low = new int[size];
+        Arrays.fill(index, -1);
+        boolean[] onStack = new boolean[size];
+        int[] stack = new int[size];
+        int stackSize = 0;
+        int[] callNodes = new int[size];
+        int[] callEdges = new int[size];
+        int counter = 0;
+        int component = 0;
+        for (int start = 0; start < size; start++) {
+            if (index[start] >= 0) continue;
+            int depth = 0;
+            index[start] = low[start] = counter++;
+            stack[stackSize++] = start;
+            onStack[start] = true;
+            callNodes[depth] = start;
+            callEdges[depth++] = efferentOffsets[start];
+            while (depth > 0) {
+                int node = callNodes[depth - 1];
+                if (callEdges[depth - 1] < efferentOffsets[node + 1]) {
+                    int next = efferents[callEdges[depth - 1]++];
+                    if (index[next] < 0) {
+                        index[next] = low[next] = counter++;
+                        stack[stackSize++] = next;
+                        onStack[next] = true;
+                        callNodes[depth] = next;
+                        callEdges[depth++] = efferentOffsets[next];
+                    } else if (onStack[next]) {
+                        low[node] = Math.min(low[node], index[next]);
+                    }
+                } else {
+                    if (low[node] == index[node]) {
+                        int member;
+                        do {
+                            member = stack[--stackSize];
+                            onStack[member] = false;
+                            components[member] = component;
+                        } while (member != node);
+                        component++;
+                    }
+                    depth--;
+                    if (depth > 0) {
+                        int parent = callNodes[depth - 1];
+                        low[parent] = Math.min(low[parent], low[node]);
+                    }
+                }
+            }
+        }
+        return components;
+    }
+
+}
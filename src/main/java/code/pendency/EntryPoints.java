@@ -0,0 +1,53 @@
+package code.pendency;
+
+import java.util.*;
+
+/**
+ * The classes used as starting points of a reachability analysis: the classes with a main method,
+ * the classes annotated with one of the given annotations and the classes starting with one of the given prefixes.
+ */
+public class EntryPoints {
+
+    private final boolean mainClasses;
+    private final List<String> annotations;
+    private final List<String> prefixes;
+
+    private EntryPoints(boolean mainClasses, List<String> annotations, List<String> prefixes) {
+        this.mainClasses = mainClasses;
+        this.annotations = Collections.unmodifiableList(annotations);
+        this.prefixes = Collections.unmodifiableList(prefixes);
+    }
+
+    private final static List<String> empty = Collections.emptyList();
+
+    public static EntryPoints create() {
+        return new EntryPoints(false, empty, empty);
+    }
+
+    // The classes declaring a public static void main(String[]) method.
+    public EntryPoints mainClasses() {
+        return new EntryPoints(true, annotations, prefixes);
+    }
+
+    // The classes with the annotation (full class name) on the class, a field or a method.
+    public EntryPoints annotatedWith(String annotation) {
+        List<String> annotations = new ArrayList<String>(this.annotations);
+        annotations.add(annotation);
+        return new EntryPoints(mainClasses, annotations, prefixes);
+    }
+
+    // The classes with the name starting with the prefix.
+    public EntryPoints withPrefix(String prefix) {
+        List<String> prefixes = new ArrayList<String>(this.prefixes);
+        prefixes.add(prefix);
+        return new EntryPoints(mainClasses, annotations, prefixes);
+    }
+
+    boolean accept(JavaClass javaClass) {
+        if (mainClasses && javaClass.hasMainMethod()) return true;
+        for (String annotation : annotations) if (javaClass.getAnnotations().contains(annotation)) return true;
+        for (String prefix : prefixes) if (javaClass.getClassName().startsWith(prefix)) return true;
+        return false;
+    }
+
+}
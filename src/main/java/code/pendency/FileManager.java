@@ -28,22 +28,66 @@ class FileManager {
     }
 
     public Collection<ExtractedFile> extractFiles() {
-        Map<String, ExtractedFile> files = new HashMap<String, ExtractedFile>();
+        return extractFiles((AnalysisTask) null);
+    }
+
+    // The files in the order of the classpath: the directories and archives in the given order, the files of a
+    // directory sorted by name. The task (if not null) stops the scan when it is cancelled or late, the files
+    // found so far are returned.
+    Collection<ExtractedFile> extractFiles(AnalysisTask task) {
+        Map<String, ExtractedFile> files = new LinkedHashMap<String, ExtractedFile>();
         for (File directory : directories) {
-            collectFiles(directory, files);
+            collectFiles(directory, files, task);
         }
         return files.values();
     }
 
-    private void collectFiles(File directory, Map<String, ExtractedFile> files) {
+    // The existing directories and archives, in the given order.
+    List<File> getInputs() {
+        return directories;
+    }
+
+    // The files of a single directory or archive.
+    Collection<ExtractedFile> extractFiles(File input) {
+        Map<String, ExtractedFile> files = new LinkedHashMap<String, ExtractedFile>();
+        collectFiles(input, files, null);
+        return files.values();
+    }
+
+    // Hash of the names, sizes and modification times of all the files.
+    static long fingerprint(Collection<String> directories) {
+        long fingerprint = 17;
+        for (String directory : directories) fingerprint = fingerprint(new File(directory), fingerprint);
+        return fingerprint;
+    }
+
+    static long fingerprint(File file, long fingerprint) {
+        fingerprint = fingerprint * 31 + file.getPath().hashCode();
+        if (file.isDirectory()) {
+            String[] names = file.list();
+            if (names != null) {
+                Arrays.sort(names);
+                for (String name : names) fingerprint = fingerprint(new File(file, name), fingerprint);
+            }
+        } else {
+            fingerprint = fingerprint * 31 + file.length();
+            fingerprint = fingerprint * 31 + file.lastModified();
+        }
+        return fingerprint;
+    }
+
+    private void collectFiles(File directory, Map<String, ExtractedFile> files, AnalysisTask task) {
+        if (task != null && task.isStopping()) return;
         if (directory.isFile()) {
             addFile(directory, files);
         } else {
             String[] directoryFiles = directory.list();
+            Arrays.sort(directoryFiles);
             for (String directoryFile : directoryFiles) {
+                if (task != null && task.isStopping()) return;
                 File file = new File(directory, directoryFile);
                 if (file.isDirectory()) {
-                    collectFiles(file, files);
+                    collectFiles(file, files, task);
                 } else {
                     addFile(file, files);
                 }
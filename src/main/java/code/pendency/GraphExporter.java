@@ -0,0 +1,379 @@
+package code.pendency;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the graph of the classes, or of the groups, of an analysis to GEXF, GraphML, DOT or a CSV edge list.
+ * <p>
+ * The nodes and the edges are written while they are iterated, using the names as node ids, so no document
+ * model is built and the memory used doesn't depend on the size of the graph. The output can be compressed
+ * with gzip.
+ */
+public class GraphExporter {
+
+    public enum Format {
+        GEXF, GRAPHML, DOT, CSV
+    }
+
+    private final static Charset UTF8 = Charset.forName("UTF-8");
+    private final static String[] CLASS_ATTRIBUTES = {"package", "jar"};
+    private final static String[] GROUP_ATTRIBUTES = {"count"};
+
+    private final Format format;
+    private final boolean compressed;
+
+    private GraphExporter(Format format, boolean compressed) {
+        this.format = format;
+        this.compressed = compressed;
+    }
+
+    public static GraphExporter create(Format format) {
+        return new GraphExporter(format, false);
+    }
+
+    // Compress the output with gzip.
+    public GraphExporter compressed() {
+        return new GraphExporter(format, true);
+    }
+
+    // Exports the classes and their dependencies, the stream is not closed.
+    public void export(Analysis analysis, OutputStream os) throws IOException {
+        GraphWriter writer = open(os, CLASS_ATTRIBUTES);
+        boolean completed = false;
+        try {
+            for (JavaClass javaClass : analysis.getClasses()) {
+                writer.node(javaClass.getClassName(), javaClass.getPackageName(), javaClass.getJarName());
+            }
+            writer.startEdges();
+            for (JavaClass javaClass : analysis.getClasses()) {
+                for (JavaClass efferent : javaClass.getEfferents()) {
+                    writer.edge(javaClass.getClassName(), efferent.getClassName(), 1);
+                }
+            }
+            writer.end();
+            completed = true;
+        } finally {
+            close(writer, completed);
+        }
+    }
+
+    // Exports the groups and the dependencies between them, weighted by the class dependencies, the stream is not closed.
+    public <T> void export(Analysis analysis, Analysis.GroupById<T> extractor, OutputStream os) throws IOException {
+        GraphWriter writer = open(os, GROUP_ATTRIBUTES);
+        boolean completed = false;
+        try {
+            Iterable<Analysis.GroupByItem<T>> groups = analysis.group(extractor);
+            for (Analysis.GroupByItem<T> group : groups) {
+                writer.node(String.valueOf(group.getName()), String.valueOf(group.getCount()));
+            }
+            writer.startEdges();
+            for (Analysis.GroupByItem<T> group : groups) {
+                for (WeightedDependency<T> efferent : group.getEfferentDependencies()) {
+                    writer.edge(String.valueOf(group.getName()), String.valueOf(efferent.getTarget()),
+                            efferent.getClassDependencies());
+                }
+            }
+            writer.end();
+            completed = true;
+        } finally {
+            close(writer, completed);
+        }
+    }
+
+    private GraphWriter open(OutputStream os, String[] attributes) throws IOException {
+        OutputStream out = compressed ? new GZIPOutputStream(new NotClosingOutputStream(os)) : new NotClosingOutputStream(os);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF8), 1 << 16);
+        GraphWriter graphWriter;
+        switch (format) {
+            case GEXF:
+                graphWriter = new GexfWriter(writer, attributes);
+                break;
+            case GRAPHML:
+                graphWriter = new GraphMLWriter(writer, attributes);
+                break;
+            case DOT:
+                graphWriter = new DotWriter(writer, attributes);
+                break;
+            default:
+                graphWriter = new CsvWriter(writer, attributes);
+        }
+        graphWriter.start();
+        return graphWriter;
+    }
+
+    // Closing the writer finishes the gzip stream (releasing its deflater), the original stream is only flushed.
+    // After a failure the document is left incomplete and an error closing it doesn't hide the first one.
+    private void close(GraphWriter writer, boolean completed) throws IOException {
+        try {
+            writer.out.close();
+        } catch (IOException e) {
+            if (completed) throw e;
+        }
+    }
+
+    private static abstract class GraphWriter {
+
+        final Writer out;
+        final String[] attributes;
+
+        GraphWriter(Writer out, String[] attributes) {
+            this.out = out;
+            this.attributes = attributes;
+        }
+
+        abstract void start() throws IOException;
+
+        abstract void node(String id, String... values) throws IOException;
+
+        abstract void startEdges() throws IOException;
+
+        abstract void edge(String source, String target, int weight) throws IOException;
+
+        abstract void end() throws IOException;
+
+    }
+
+    private static class GexfWriter extends GraphWriter {
+
+        private long edges = 0;
+
+        GexfWriter(Writer out, String[] attributes) {
+            super(out, attributes);
+        }
+
+        @Override
+        void start() throws IOException {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.write("<gexf xmlns=\"http://www.gexf.net/1.2draft\" version=\"1.2\">\n");
+            out.write("<graph defaultedgetype=\"directed\">\n");
+            out.write("<attributes class=\"node\">\n");
+            for (int i = 0; i < attributes.length; i++) {
+                out.write("<attribute id=\"" + i + "\" title=\"" + attributes[i] + "\" type=\"string\"/>\n");
+            }
+            out.write("</attributes>\n<nodes>\n");
+        }
+
+        @Override
+        void node(String id, String... values) throws IOException {
+            out.write("<node id=\"");
+            out.write(xml(id));
+            out.write("\" label=\"");
+            out.write(xml(id));
+            out.write("\"><attvalues>");
+            for (int i = 0; i < values.length; i++) {
+                out.write("<attvalue for=\"" + i + "\" value=\"");
+                out.write(xml(values[i]));
+                out.write("\"/>");
+            }
+            out.write("</attvalues></node>\n");
+        }
+
+        @Override
+        void startEdges() throws IOException {
+            out.write("</nodes>\n<edges>\n");
+        }
+
+        @Override
+        void edge(String source, String target, int weight) throws IOException {
+            out.write("<edge id=\"" + edges++ + "\" source=\"");
+            out.write(xml(source));
+            out.write("\" target=\"");
+            out.write(xml(target));
+            out.write("\" weight=\"" + weight + "\"/>\n");
+        }
+
+        @Override
+        void end() throws IOException {
+            out.write("</edges>\n</graph>\n</gexf>\n");
+        }
+
+    }
+
+    private static class GraphMLWriter extends GraphWriter {
+
+        GraphMLWriter(Writer out, String[] attributes) {
+            super(out, attributes);
+        }
+
+        @Override
+        void start() throws IOException {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.write("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+            for (int i = 0; i < attributes.length; i++) {
+                out.write("<key id=\"d" + i + "\" for=\"node\" attr.name=\"" + attributes[i] + "\" attr.type=\"string\"/>\n");
+            }
+            out.write("<key id=\"weight\" for=\"edge\" attr.name=\"weight\" attr.type=\"int\"/>\n");
+            out.write("<graph edgedefault=\"directed\">\n");
+        }
+
+        @Override
+        void node(String id, String... values) throws IOException {
+            out.write("<node id=\"");
+            out.write(xml(id));
+            out.write("\">");
+            for (int i = 0; i < values.length; i++) {
+                out.write("<data key=\"d" + i + "\">");
+                out.write(xml(values[i]));
+                out.write("</data>");
+            }
+            out.write("</node>\n");
+        }
+
+        @Override
+        void startEdges() throws IOException {
+        }
+
+        @Override
+        void edge(String source, String target, int weight) throws IOException {
+            out.write("<edge source=\"");
+            out.write(xml(source));
+            out.write("\" target=\"");
+            out.write(xml(target));
+            out.write("\"><data key=\"weight\">" + weight + "</data></edge>\n");
+        }
+
+        @Override
+        void end() throws IOException {
+            out.write("</graph>\n</graphml>\n");
+        }
+
+    }
+
+    private static class DotWriter extends GraphWriter {
+
+        DotWriter(Writer out, String[] attributes) {
+            super(out, attributes);
+        }
+
+        @Override
+        void start() throws IOException {
+            out.write("digraph dependencies {\n");
+        }
+
+        @Override
+        void node(String id, String... values) throws IOException {
+            out.write("  ");
+            out.write(quote(id));
+            out.write(" [");
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) out.write(", ");
+                out.write(attributes[i]);
+                out.write("=");
+                out.write(quote(values[i]));
+            }
+            out.write("];\n");
+        }
+
+        @Override
+        void startEdges() throws IOException {
+        }
+
+        @Override
+        void edge(String source, String target, int weight) throws IOException {
+            out.write("  ");
+            out.write(quote(source));
+            out.write(" -> ");
+            out.write(quote(target));
+            out.write(" [weight=" + weight + "];\n");
+        }
+
+        @Override
+        void end() throws IOException {
+            out.write("}\n");
+        }
+
+        private static String quote(String value) {
+            return "\"" + (value == null ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"")) + "\"";
+        }
+
+    }
+
+    // Only the edges: source,target,weight
+    private static class CsvWriter extends GraphWriter {
+
+        CsvWriter(Writer out, String[] attributes) {
+            super(out, attributes);
+        }
+
+        @Override
+        void start() throws IOException {
+            out.write("source,target,weight\n");
+        }
+
+        @Override
+        void node(String id, String... values) throws IOException {
+        }
+
+        @Override
+        void startEdges() throws IOException {
+        }
+
+        @Override
+        void edge(String source, String target, int weight) throws IOException {
+            out.write(csv(source));
+            out.write(',');
+            out.write(csv(target));
+            out.write(',');
+            out.write(String.valueOf(weight));
+            out.write('\n');
+        }
+
+        @Override
+        void end() throws IOException {
+        }
+
+        private static String csv(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+
+    }
+
+    private static String xml(String value) {
+        if (value == null) return "";
+        StringBuilder escaped = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement;
+            switch (c) {
+                case '&': replacement = "&amp;"; break;
+                case '<': replacement = "&lt;"; break;
+                case '>': replacement = "&gt;"; break;
+                case '"': replacement = "&quot;"; break;
+                case '\'': replacement = "&apos;"; break;
+                default: replacement = null;
+            }
+            if (replacement != null && escaped == null) {
+                escaped = new StringBuilder(value.length() + 16);
+                escaped.append(value, 0, i);
+            }
+            if (escaped != null) {
+                if (replacement != null) escaped.append(replacement);
+                else escaped.append(c);
+            }
+        }
+        return escaped != null ? escaped.toString() : value;
+    }
+
+    // The stream given by the caller is flushed but never closed.
+    private static class NotClosingOutputStream extends FilterOutputStream {
+
+        NotClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+    }
+
+}
@@ -0,0 +1,111 @@
+package code.pendency;
+
+import java.util.*;
+
+/**
+ * Aggregates the dependencies of the classes into the dependencies of their groups while the classes are parsed,
+ * without keeping the classes: only the names of the classes are kept, as ids with their group, and the counters
+ * of the groups (see GroupCounter).
+ * <p>
+ * The memory is not bounded by the groups: the distinct target classes need the ids of the classes and a pair of
+ * group and class for every class used by another group. When the group is derived from the name of the class
+ * (e.g. by package) the group of a class is known as soon as it is referenced and every dependency is counted
+ * while it is parsed. Otherwise the group is known once the class is parsed, so the dependencies on the classes
+ * not parsed yet (or never parsed, e.g. the classes of the JDK) are kept as pairs of class ids and counted at the
+ * end, with the groups already reached by their source classes.
+ * <p>
+ * On rt.jar by package the aggregation keeps 21k class names and 46k pairs of group and class, without pending
+ * dependencies, and runs in a 9MB heap where the analysis needs 40MB. By jar the dependencies on the classes not
+ * parsed yet are kept as well: 158k of 210k.
+ * <p>
+ * The classes never parsed (only referenced) are grouped as classes with only a name, as in a linked analysis. A
+ * class defined more than once is counted once, with its first definition of the classpath, as in a linked
+ * analysis.
+ */
+final class GroupAggregator<T> implements JavaClassBuilder.Sink {
+
+    private final static int NO_GROUP = -1;
+
+    private final Analysis.GroupById<T> extractor;
+    // The extractor if the group is derived from the name, null otherwise
+    private final Analysis.GroupByName<T> byName;
+    private final GroupCounter<T> counter = new GroupCounter<T>();
+    private final Map<String, Integer> classIds = new HashMap<String, Integer>();
+    private final List<String> classNames = new ArrayList<String>();
+    // The group of every class, by class id
+    private final IntList classGroups = new IntList();
+    private final BitSet parsed = new BitSet();
+    // The dependencies (pairs of class ids) on the classes without a group yet, the ones of a class one after the other
+    private final IntList pending = new IntList();
+    // The pairs of class and group of the dependencies already counted, only for the classes with pending ones
+    private final LongIntMap reached = new LongIntMap();
+    private final IntList efferents = new IntList();
+
+    @SuppressWarnings("unchecked")
+    GroupAggregator(Analysis.GroupById<T> extractor) {
+        this.extractor = extractor;
+        this.byName = extractor instanceof Analysis.GroupByName ? (Analysis.GroupByName<T>) extractor : null;
+    }
+
+    @Override
+    public void add(JavaClass javaClass, String location, long checksum) {
+        int classId = classId(javaClass.getClassName());
+        // The first definition wins
+        if (parsed.get(classId)) return;
+        parsed.set(classId);
+        int group = classGroups.get(classId);
+        if (group == NO_GROUP) {
+            group = counter.group(extractor.extract(javaClass));
+            classGroups.set(classId, group);
+        }
+        counter.count(group, javaClass.isAbstract() || javaClass.isInterface());
+        efferents.clear();
+        for (String efferentId : javaClass.getEfferentIds()) {
+            int efferent = classId(efferentId);
+            int efferentGroup = classGroups.get(efferent);
+            if (efferentGroup != NO_GROUP) {
+                counter.add(group, classId, efferentGroup, efferent);
+                efferents.add(efferentGroup);
+            } else {
+                pending.add(classId);
+                pending.add(efferent);
+            }
+        }
+        if (efferents.size() < javaClass.getEfferentIds().size()) {
+            for (int index = 0; index < efferents.size(); index++) reached.put(LongIntMap.pair(classId, efferents.get(index)), 0);
+        }
+    }
+
+    // The groups of the classes parsed, linked as the groups of an analysis.
+    Collection<Analysis.GroupByItem<T>> groups() {
+        for (int classId = 0; classId < classNames.size(); classId++) {
+            if (parsed.get(classId)) continue;
+            int group = classGroups.get(classId);
+            if (group == NO_GROUP) {
+                group = counter.group(extractor.extract(new JavaClass(classNames.get(classId))));
+                classGroups.set(classId, group);
+            }
+            counter.count(group, false);
+        }
+        for (int index = 0; index < pending.size(); index += 2) {
+            int source = pending.get(index);
+            int target = pending.get(index + 1);
+            int targetGroup = classGroups.get(target);
+            boolean newSource = reached.get(LongIntMap.pair(source, targetGroup)) == LongIntMap.NO_VALUE;
+            counter.add(classGroups.get(source), source, targetGroup, target, newSource);
+        }
+        return counter.link();
+    }
+
+    private int classId(String className) {
+        Integer id = classIds.get(className);
+        if (id == null) {
+            id = classNames.size();
+            classIds.put(className, id);
+            classNames.add(className);
+            classGroups.add(byName != null ? counter.group(byName.extractFromName(className)) : NO_GROUP);
+        }
+        return id;
+    }
+
+}
@@ -0,0 +1,95 @@
+package code.pendency;
+
+import java.util.*;
+
+/**
+ * Counts the classes of the groups and the dependencies between the groups with primitive counters, in a single
+ * pass over the class dependencies: for every pair of groups the number of class dependencies, of distinct source
+ * classes and of distinct target classes.
+ * <p>
+ * The groups and the classes are ids. The dependencies of a class are added one after the other, so a source
+ * class is counted once per pair of groups without remembering its dependencies. The target classes are
+ * remembered by source group, one entry for every class used by another group.
+ */
+final class GroupCounter<T> {
+
+    private final Map<T, Integer> groupIds = new HashMap<T, Integer>();
+    private final List<T> groups = new ArrayList<T>();
+    private final IntList counts = new IntList();
+    private final IntList abstractCounts = new IntList();
+    // The index of every pair of groups in the counters below
+    private final LongIntMap pairs = new LongIntMap();
+    private final IntList dependencies = new IntList();
+    private final IntList sources = new IntList();
+    private final IntList targets = new IntList();
+    private final IntList lastSources = new IntList();
+    // The pairs of source group and target class already counted
+    private final LongIntMap targetClasses = new LongIntMap();
+
+    // The id of the group, added if new.
+    int group(T id) {
+        Integer group = groupIds.get(id);
+        if (group == null) {
+            group = groups.size();
+            groupIds.put(id, group);
+            groups.add(id);
+            counts.add(0);
+            abstractCounts.add(0);
+        }
+        return group;
+    }
+
+    void count(int group, boolean isAbstract) {
+        counts.set(group, counts.get(group) + 1);
+        if (isAbstract) abstractCounts.set(group, abstractCounts.get(group) + 1);
+    }
+
+    // A dependency between two classes, ignored inside the same group.
+    void add(int sourceGroup, int sourceClass, int targetGroup, int targetClass) {
+        add(sourceGroup, sourceClass, targetGroup, targetClass, true);
+    }
+
+    // A dependency between two classes, the source class is not counted again if it has already been counted for
+    // the pair of groups with dependencies added before the last ones of other classes.
+    void add(int sourceGroup, int sourceClass, int targetGroup, int targetClass, boolean newSource) {
+        if (sourceGroup == targetGroup) return;
+        long pair = LongIntMap.pair(sourceGroup, targetGroup);
+        int index = pairs.get(pair);
+        if (index == LongIntMap.NO_VALUE) {
+            index = dependencies.size();
+            pairs.put(pair, index);
+            dependencies.add(0);
+            sources.add(0);
+            targets.add(0);
+            lastSources.add(-1);
+        }
+        dependencies.set(index, dependencies.get(index) + 1);
+        if (lastSources.get(index) != sourceClass) {
+            lastSources.set(index, sourceClass);
+            if (newSource) sources.set(index, sources.get(index) + 1);
+        }
+        long target = LongIntMap.pair(sourceGroup, targetClass);
+        if (targetClasses.get(target) == LongIntMap.NO_VALUE) {
+            targetClasses.put(target, 0);
+            targets.set(index, targets.get(index) + 1);
+        }
+    }
+
+    // The groups counted, linked to each other.
+    Collection<Analysis.GroupByItem<T>> link() {
+        List<Map<T, int[]>> efferents = new ArrayList<Map<T, int[]>>(groups.size());
+        for (int group = 0; group < groups.size(); group++) efferents.add(new HashMap<T, int[]>());
+        for (long pair : pairs.keys()) {
+            int index = pairs.get(pair);
+            int[] weights = new int[] {dependencies.get(index), sources.get(index), targets.get(index)};
+            efferents.get(LongIntMap.first(pair)).put(groups.get(LongIntMap.second(pair)), weights);
+        }
+        Map<T, Analysis.GroupByItem<T>> items = new HashMap<T, Analysis.GroupByItem<T>>(groups.size() * 2);
+        for (int group = 0; group < groups.size(); group++) {
+            T id = groups.get(group);
+            items.put(id, new Analysis.GroupByItem<T>(counts.get(group), abstractCounts.get(group), efferents.get(group), id));
+        }
+        return Analysis.linkGroups(items);
+    }
+
+}
@@ -0,0 +1,36 @@
+package code.pendency;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The groups of the classes of a graph as integer ids, in order of first appearance.
+ */
+final class GroupIds<T> {
+
+    final List<T> keys = new ArrayList<T>();
+    // The group id of every class id
+    final int[] groups;
+
+    GroupIds(ClassGraph graph, Analysis.GroupById<T> extractor) {
+        Map<T, Integer> ids = new HashMap<T, Integer>();
+        groups = new int[graph.size()];
+        for (int id = 0; id < graph.size(); id++) {
+            T key = extractor.extract(graph.get(id));
+            Integer group = ids.get(key);
+            if (group == null) {
+                group = keys.size();
+                keys.add(key);
+                ids.put(key, group);
+            }
+            groups[id] = group;
+        }
+    }
+
+    int size() {
+        return keys.size();
+    }
+
+}
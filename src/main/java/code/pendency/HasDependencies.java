@@ -1,41 +1,95 @@
 package code.pendency;
 
+import java.util.AbstractSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 abstract class HasDependencies<T, U extends HasDependencies<T, U>> {
 
+    private final static Object[] NONE = new Object[0];
+    // Above this size the arrays are exposed as hashed sets, a scan would be slower than hashing
+    private final static int ARRAY_SET_LIMIT = 16;
+
     final T id;
-    private final Set<U> efferents;
-    private final Set<U> afferents;
+    // Arrays instead of sets: most of the nodes have a few dependencies and they never change once linked
+    private Object[] efferents;
+    private Object[] afferents;
+    // Computes the afferents of all the linked nodes the first time they are needed
+    private Afferents reverse;
+    // The hashed sets of the large arrays, built the first time they are needed
+    private volatile Collection<U> efferentSet;
+    private volatile Collection<U> afferentSet;
 
     HasDependencies(T id) {
         this.id = id;
-        this.efferents = Collections.emptySet();
-        this.afferents = Collections.emptySet();
+        this.efferents = NONE;
+        this.afferents = NONE;
     }
 
-    HasDependencies(T id, Set<U> efferents, Set<U> afferents) {
+    HasDependencies(T id, Collection<U> efferents, Collection<U> afferents) {
         this.id = id;
-        this.efferents = Collections.unmodifiableSet(efferents);
-        this.afferents = Collections.unmodifiableSet(afferents);
+        this.efferents = efferents.isEmpty() ? NONE : efferents.toArray();
+        this.afferents = afferents.isEmpty() ? NONE : afferents.toArray();
     }
 
-    public Collection<U> getAfferents() {
+    // Only while linking, before the node is visible to the other threads.
+    void link(Object[] efferents, Afferents reverse) {
+        this.efferents = efferents.length == 0 ? NONE : efferents;
+        this.reverse = reverse;
+    }
+
+    // Only by the afferents, before they are marked as computed.
+    void setAfferents(Object[] afferents) {
+        this.afferents = afferents.length == 0 ? NONE : afferents;
+    }
+
+    Object[] efferentArray() {
+        return efferents;
+    }
+
+    private Object[] afferents() {
+        if (reverse != null) reverse.compute();
         return afferents;
     }
 
+    public Collection<U> getAfferents() {
+        Object[] afferents = afferents();
+        if (afferents.length <= ARRAY_SET_LIMIT) return new ArraySet<U>(afferents);
+        Collection<U> set = afferentSet;
+        if (set == null) afferentSet = set = hashed(afferents);
+        return set;
+    }
+
     public Collection<U> getEfferents() {
-        return efferents;
+        if (efferents.length <= ARRAY_SET_LIMIT) return new ArraySet<U>(efferents);
+        Collection<U> set = efferentSet;
+        if (set == null) efferentSet = set = hashed(efferents);
+        return set;
+    }
+
+    // Read only hashed set of the nodes of an array, two threads at worst build equal sets.
+    @SuppressWarnings("unchecked")
+    private static <U> Collection<U> hashed(Object[] nodes) {
+        Set<U> set = new HashSet<U>(nodes.length * 2);
+        for (Object node : nodes) set.add((U) node);
+        return Collections.unmodifiableSet(set);
     }
 
     public int afferentCoupling() {
-        return afferents.size();
+        return afferents().length;
     }
 
     public int efferentCoupling() {
-        return efferents.size();
+        return efferents.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    U efferent(int index) {
+        return (U) efferents[index];
     }
 
     @Override
@@ -51,4 +105,44 @@ abstract class HasDependencies<T, U extends HasDependencies<T, U>> {
         return id.hashCode();
     }
 
+    // Read only view of the distinct nodes of a small array, contains scans the array.
+    private static class ArraySet<U> extends AbstractSet<U> {
+
+        private final Object[] nodes;
+
+        ArraySet(Object[] nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        public Iterator<U> iterator() {
+            return new Iterator<U>() {
+                private int index = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return index < nodes.length;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public U next() {
+                    if (index >= nodes.length) throw new NoSuchElementException();
+                    return (U) nodes[index++];
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return nodes.length;
+        }
+
+    }
+
 }
@@ -0,0 +1,148 @@
+package code.pendency;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Class graph built from the classes of an analysis, the arrays are on the heap.
+ */
+final class HeapClassGraph extends ClassGraph {
+
+    private final static Comparator<JavaClass> BY_NAME = new Comparator<JavaClass>() {
+        @Override
+        public int compare(JavaClass first, JavaClass second) {
+            return first.getClassName().compareTo(second.getClassName());
+        }
+    };
+
+    private final JavaClass[] classes;
+    private final String[] names;
+    private final int[] efferentOffsets;
+    private final int[] efferents;
+    private final short[] kinds;
+    private final int[] afferentOffsets;
+    private final int[] afferents;
+
+    private HeapClassGraph(JavaClass[] classes, String[] names, int[] efferentOffsets, int[] efferents, short[] kinds,
+                           int[] afferentOffsets, int[] afferents) {
+        this.classes = classes;
+        this.names = names;
+        this.efferentOffsets = efferentOffsets;
+        this.efferents = efferents;
+        this.kinds = kinds;
+        this.afferentOffsets = afferentOffsets;
+        this.afferents = afferents;
+    }
+
+    static HeapClassGraph of(Collection<JavaClass> javaClasses) {
+        JavaClass[] classes = javaClasses.toArray(new JavaClass[javaClasses.size()]);
+        Arrays.sort(classes, BY_NAME);
+        int size = classes.length;
+        String[] names = new String[size];
+        for (int id = 0; id < size; id++) names[id] = classes[id].getClassName();
+        // Efferents
+        int[] efferentOffsets = new int[size + 1];
+        int edges = 0;
+        for (int id = 0; id < size; id++) {
+            edges += classes[id].efferentCoupling();
+        }
+        int[] efferents = new int[edges];
+        short[] kinds = new short[edges];
+        long[] row = new long[0];
+        int index = 0;
+        for (int id = 0; id < size; id++) {
+            efferentOffsets[id] = index;
+            if (row.length < classes[id].efferentCoupling()) row = new long[classes[id].efferentCoupling()];
+            // The kinds follow the id in the sort
+            int count = 0;
+            for (int position = 0; position < classes[id].efferentCoupling(); position++) {
+                int efferentId = Arrays.binarySearch(names, classes[id].efferent(position).getClassName());
+                if (efferentId >= 0) row[count++] = ((long) efferentId << 16) | classes[id].efferentKinds(position);
+            }
+            Arrays.sort(row, 0, count);
+            for (int i = 0; i < count; i++, index++) {
+                efferents[index] = (int) (row[i] >>> 16);
+                kinds[index] = (short) row[i];
+            }
+        }
+        efferentOffsets[size] = index;
+        if (index < edges) {
+            efferents = Arrays.copyOf(efferents, index);
+            kinds = Arrays.copyOf(kinds, index);
+        }
+        // Afferents, filled following the source order so every row is already sorted
+        int[] afferentOffsets = new int[size + 1];
+        for (int edge = 0; edge < efferents.length; edge++) afferentOffsets[efferents[edge] + 1]++;
+        for (int id = 0; id < size; id++) afferentOffsets[id + 1] += afferentOffsets[id];
+        int[] afferents = new int[efferents.length];
+        int[] positions = Arrays.copyOf(afferentOffsets, size);
+        for (int id = 0; id < size; id++) {
+            for (int edge = efferentOffsets[id]; edge < efferentOffsets[id + 1]; edge++) {
+                afferents[positions[efferents[edge]]++] = id;
+            }
+        }
+        return new HeapClassGraph(classes, names, efferentOffsets, efferents, kinds, afferentOffsets, afferents);
+    }
+
+    @Override
+    int size() {
+        return classes.length;
+    }
+
+    @Override
+    int numberOfEdges() {
+        return efferents.length;
+    }
+
+    @Override
+    JavaClass get(int id) {
+        return classes[id];
+    }
+
+    @Override
+    String name(int id) {
+        return names[id];
+    }
+
+    @Override
+    int search(String className) {
+        return Arrays.binarySearch(names, className);
+    }
+
+    @Override
+    int efferentsStart(int id) {
+        return efferentOffsets[id];
+    }
+
+    @Override
+    int efferentsEnd(int id) {
+        return efferentOffsets[id + 1];
+    }
+
+    @Override
+    int efferent(int index) {
+        return efferents[index];
+    }
+
+    @Override
+    int kinds(int index) {
+        return kinds[index] & 0xFFFF;
+    }
+
+    @Override
+    int afferentsStart(int id) {
+        return afferentOffsets[id];
+    }
+
+    @Override
+    int afferentsEnd(int id) {
+        return afferentOffsets[id + 1];
+    }
+
+    @Override
+    int afferent(int index) {
+        return afferents[index];
+    }
+
+}
@@ -0,0 +1,54 @@
+package code.pendency;
+
+/**
+ * Growable list of primitive integers, used to collect ids without boxing.
+ */
+final class IntList {
+
+    private int[] values;
+    private int size = 0;
+
+    IntList() {
+        this(8);
+    }
+
+    IntList(int capacity) {
+        this.values = new int[Math.max(capacity, 1)];
+    }
+
+    void add(int value) {
+        if (size == values.length) {
+            int[] bigger = new int[size * 2];
+            System.arraycopy(values, 0, bigger, 0, size);
+            values = bigger;
+        }
+        values[size++] = value;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    void set(int index, int value) {
+        values[index] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int[] toArray() {
+        int[] array = new int[size];
+        System.arraycopy(values, 0, array, 0, size);
+        return array;
+    }
+
+}
@@ -6,21 +6,27 @@ public class JavaClass extends HasDependencies<String, JavaClass> {
 
     private final static int NO_MINOR_VERSION = 0;
     private final static int NO_MAJOR_VERSION = 0;
-    private final static Set<String> NO_EFFERENT_IDS = Collections.emptySet();
-    private final static Set<JavaClass> NO_EFFERENTS = Collections.emptySet();
-    private final static Set<JavaClass> NO_AFFERENTS = Collections.emptySet();
+    private final static String[] NO_EFFERENT_IDS = new String[0];
+    private final static short[] NO_KINDS = new short[0];
+    private final static int UNKNOWN_KINDS = 0;
+    private final static Set<String> NO_ANNOTATIONS = Collections.emptySet();
+    private final static int ABSTRACT = 1;
+    private final static int INTERFACE = 2;
+    private final static int MAIN_METHOD = 4;
 
     private final int minorVersion;
     private final int majorVersion;
-    private final String className;
     private final String packageName;
-    private final boolean isAbstract;
-    private final boolean isInterface;
+    private final byte flags;
     private final String sourceFile;
     private final String jarName;
-    private final Set<String> efferentIds;
-    private final Set<JavaClass> efferents;
-    private final Set<JavaClass> afferents;
+    private final Set<String> annotations;
+    // The names of the efferent classes, only until the class is linked: then the efferents are used.
+    private final String[] efferentIds;
+    // The bits of the kinds of every dependency, in the order of the efferent ids (or of the efferents).
+    private final short[] kinds;
+    // The members and their references, only if extracted and until the class is linked: then the member graph is used.
+    private final ClassMembers members;
 
     JavaClass(String className) {
         this(NO_MINOR_VERSION, NO_MAJOR_VERSION,
@@ -30,7 +36,9 @@ public class JavaClass extends HasDependencies<String, JavaClass> {
                 false,
                 "Unknown",
                 "",
-                NO_EFFERENT_IDS, NO_EFFERENTS, NO_AFFERENTS);
+                false,
+                NO_ANNOTATIONS,
+                Collections.<String, Integer>emptyMap());
     }
 
     JavaClass(int minorVersion,
@@ -41,21 +49,54 @@ public class JavaClass extends HasDependencies<String, JavaClass> {
                      boolean isInterface,
                      String sourceFile,
                      String jarName,
-                     Set<String> efferentIds,
-                     Set<JavaClass> efferents,
-                     Set<JavaClass> afferents) {
-        super(className, efferents, afferents);
+                     boolean hasMainMethod,
+                     Set<String> annotations,
+                     Map<String, Integer> efferentIds) {
+        this(minorVersion, majorVersion, className, packageName, isAbstract, isInterface, sourceFile, jarName, hasMainMethod,
+                annotations, efferentIds, null);
+    }
+
+    private JavaClass(int minorVersion,
+                      int majorVersion,
+                      String className,
+                      String packageName,
+                      boolean isAbstract,
+                      boolean isInterface,
+                      String sourceFile,
+                      String jarName,
+                      boolean hasMainMethod,
+                      Set<String> annotations,
+                      Map<String, Integer> efferentIds,
+                      ClassMembers members) {
+        super(className);
         this.minorVersion = minorVersion;
         this.majorVersion = majorVersion;
-        this.className = className;
         this.packageName = packageName;
-        this.isAbstract = isAbstract;
-        this.isInterface = isInterface;
+        this.flags = (byte) ((isAbstract ? ABSTRACT : 0) | (isInterface ? INTERFACE : 0) | (hasMainMethod ? MAIN_METHOD : 0));
         this.sourceFile = sourceFile;
         this.jarName = jarName;
-        this.efferentIds = efferentIds;
-        this.efferents = efferents;
-        this.afferents = afferents;
+        this.annotations = annotations.isEmpty() ? NO_ANNOTATIONS : annotations;
+        int size = efferentIds.size() - (efferentIds.containsKey(className) ? 1 : 0);
+        this.efferentIds = size == 0 ? NO_EFFERENT_IDS : new String[size];
+        this.kinds = size == 0 ? NO_KINDS : new short[size];
+        int index = 0;
+        for (Map.Entry<String, Integer> efferent : efferentIds.entrySet()) {
+            if (efferent.getKey().equals(className)) continue;
+            this.efferentIds[index] = efferent.getKey();
+            this.kinds[index++] = (short) (int) efferent.getValue();
+        }
+        this.members = members;
+    }
+
+    JavaClass(int minorVersion,
+              int majorVersion,
+              String className,
+              String sourceFile,
+              String jarName,
+              boolean isAbstract,
+              boolean isInterface,
+              List<String> importedClasses) {
+        this(minorVersion, majorVersion, className, sourceFile, jarName, isAbstract, isInterface, false, NO_ANNOTATIONS, importedClasses);
     }
 
     JavaClass(int minorVersion,
@@ -65,7 +106,38 @@ public class JavaClass extends HasDependencies<String, JavaClass> {
               String jarName,
               boolean isAbstract,
               boolean isInterface,
+              boolean hasMainMethod,
+              Set<String> annotations,
               List<String> importedClasses) {
+        this(minorVersion, majorVersion, className, sourceFile, jarName, isAbstract, isInterface, hasMainMethod, annotations,
+                toEfferents(importedClasses));
+    }
+
+    JavaClass(int minorVersion,
+              int majorVersion,
+              String className,
+              String sourceFile,
+              String jarName,
+              boolean isAbstract,
+              boolean isInterface,
+              boolean hasMainMethod,
+              Set<String> annotations,
+              Map<String, Integer> importedClasses) {
+        this(minorVersion, majorVersion, className, sourceFile, jarName, isAbstract, isInterface, hasMainMethod, annotations,
+                importedClasses, null);
+    }
+
+    JavaClass(int minorVersion,
+              int majorVersion,
+              String className,
+              String sourceFile,
+              String jarName,
+              boolean isAbstract,
+              boolean isInterface,
+              boolean hasMainMethod,
+              Set<String> annotations,
+              Map<String, Integer> importedClasses,
+              ClassMembers members) {
         this(minorVersion,
                 majorVersion,
                 className,
@@ -74,34 +146,98 @@ public class JavaClass extends HasDependencies<String, JavaClass> {
                 isInterface,
                 sourceFile,
                 jarName,
-                toEfferents(importedClasses, className),
-                NO_EFFERENTS,
-                NO_AFFERENTS);
+                hasMainMethod,
+                annotations,
+                importedClasses,
+                members);
+    }
+
+    // The copy to link: without the efferent ids and with the names shared with the other classes.
+    private JavaClass(JavaClass javaClass, SharedNames names) {
+        super(javaClass.id);
+        this.minorVersion = javaClass.minorVersion;
+        this.majorVersion = javaClass.majorVersion;
+        this.packageName = names.get(javaClass.packageName);
+        this.flags = javaClass.flags;
+        this.sourceFile = names.get(javaClass.sourceFile);
+        this.jarName = names.get(javaClass.jarName);
+        this.annotations = javaClass.annotations;
+        this.efferentIds = null;
+        this.kinds = javaClass.kinds;
+        this.members = null;
     }
 
-    private static String classNameToPackageName(String className) {
+    static String classNameToPackageName(String className) {
         int index = className.lastIndexOf(".");
         return index != -1 ? className.substring(0, index) : "Default";
     }
 
-    private static Set<String> toEfferents(Collection<String> efferents, String className) {
-        Set<String> filtered = new HashSet<String>(efferents.size());
-        for (String efferent : efferents) if (!efferent.equals(className)) {
-            filtered.add(efferent);
-        }
-        return filtered;
+    // The kinds of the imported classes are unknown.
+    private static Map<String, Integer> toEfferents(Collection<String> efferents) {
+        Map<String, Integer> map = new LinkedHashMap<String, Integer>(efferents.size());
+        for (String efferent : efferents) map.put(efferent, UNKNOWN_KINDS);
+        return map;
+    }
+
+    // The copy of the class to link, its efferents (in the order of the efferent ids) and afferents are set
+    // by the linking.
+    JavaClass toLink(SharedNames names) {
+        return new JavaClass(this, names);
     }
 
-    JavaClass withEfferents(Set<JavaClass> efferents) {
-        return new JavaClass(minorVersion, majorVersion, className, packageName, isAbstract, isInterface, sourceFile, jarName, efferentIds, efferents, afferents);
+    // Copy of the class, not linked, depending only on the given classes.
+    JavaClass withEfferentIds(Map<String, Integer> efferentIds) {
+        return new JavaClass(minorVersion, majorVersion, id, packageName, isAbstract(), isInterface(), sourceFile, jarName, hasMainMethod(), annotations, efferentIds);
     }
 
-    JavaClass withAfferents(Set<JavaClass> afferents) {
-        return new JavaClass(minorVersion, majorVersion, className, packageName, isAbstract, isInterface, sourceFile, jarName, efferentIds, efferents, afferents);
+    // The members of the parsed class, null if not extracted or linked.
+    ClassMembers members() {
+        return members;
     }
 
     Collection<String> getEfferentIds() {
-        return efferentIds;
+        if (efferentIds != null) return Arrays.asList(efferentIds);
+        List<String> names = new ArrayList<String>(efferentCoupling());
+        for (int index = 0; index < efferentCoupling(); index++) names.add(efferent(index).getClassName());
+        return names;
+    }
+
+    // The bits of the kinds of the dependency on the efferent at the given position.
+    int efferentKinds(int index) {
+        return kinds[index] & 0xFFFF;
+    }
+
+    // The bits of the kinds of the dependency on the efferent class, 0 if unknown.
+    int dependencyKinds(String efferentId) {
+        if (efferentIds != null) {
+            for (int index = 0; index < efferentIds.length; index++) {
+                if (efferentIds[index].equals(efferentId)) return efferentKinds(index);
+            }
+        } else {
+            for (int index = 0; index < efferentCoupling(); index++) {
+                if (efferent(index).getClassName().equals(efferentId)) return efferentKinds(index);
+            }
+        }
+        return UNKNOWN_KINDS;
+    }
+
+    // The kinds of the dependency on the efferent class, empty if the class is not an efferent.
+    public Set<DependencyKind> getDependencyKinds(JavaClass efferent) {
+        return DependencyKind.fromBits(dependencyKinds(efferent.getClassName()));
+    }
+
+    // The efferent classes used as the given kind of dependency.
+    public Collection<JavaClass> getEfferentsOfKind(DependencyKind kind) {
+        List<JavaClass> efferents = new ArrayList<JavaClass>();
+        for (int index = 0; index < efferentCoupling(); index++) {
+            if ((efferentKinds(index) & kind.bit()) != 0) efferents.add(efferent(index));
+        }
+        return efferents;
+    }
+
+    // The class is only referenced by other classes, it was not found in the analyzed directories.
+    boolean isReferenceOnly() {
+        return jarName.length() == 0;
     }
 
     public int getMinorVersion() {
@@ -113,7 +249,7 @@ public class JavaClass extends HasDependencies<String, JavaClass> {
     }
 
     public String getClassName() {
-        return className;
+        return id;
     }
 
     public String getPackageName() {
@@ -129,16 +265,26 @@ public class JavaClass extends HasDependencies<String, JavaClass> {
     }
 
     public boolean isAbstract() {
-        return isAbstract;
+        return (flags & ABSTRACT) != 0;
     }
 
     public boolean isInterface() {
-        return isInterface;
+        return (flags & INTERFACE) != 0;
+    }
+
+    // True if the class declares a public static void main(String[]) method.
+    public boolean hasMainMethod() {
+        return (flags & MAIN_METHOD) != 0;
+    }
+
+    // The names of the annotations on the class, its fields and its methods.
+    public Collection<String> getAnnotations() {
+        return annotations;
     }
 
     @Override
     public String toString() {
-        return className;
+        return id;
     }
 
 }
@@ -1,13 +1,19 @@
 package code.pendency;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 import java.util.zip.ZipEntry;
 
 class JavaClassBuilder {
@@ -15,62 +21,126 @@ class JavaClassBuilder {
     private final ClassFileParser parser;
     private final FileManager fileManager;
     private final Filter filter;
+    private final MetricsListener metrics;
+    private ClassDefinitions definitions = new ClassDefinitions();
 
     public JavaClassBuilder(ClassFileParser parser, FileManager fm, Filter filter) {
+        this(parser, fm, filter, null);
+    }
+
+    // Without metrics (null) the classes are parsed while they are read and nothing is measured.
+    JavaClassBuilder(ClassFileParser parser, FileManager fm, Filter filter, MetricsListener metrics) {
         this.parser = parser;
         this.fileManager = fm;
         this.filter = filter;
+        this.metrics = metrics;
     }
 
     Collection<JavaClass> build() {
-        Collection<JavaClass> classes = new ArrayList<JavaClass>();
-        for (FileManager.ExtractedFile file : fileManager.extractFiles()) {
+        return build((AnalysisTask) null);
+    }
+
+    // The task (if not null) is told the progress and stops the scan and the parsing when it is cancelled or late.
+    Collection<JavaClass> build(AnalysisTask task) {
+        long start = metrics != null ? System.nanoTime() : 0;
+        Collection<FileManager.ExtractedFile> files = fileManager.extractFiles(task);
+        if (metrics != null) metrics.onPhase(AnalysisPhase.SCAN, System.nanoTime() - start);
+        if (task != null) task.filesDiscovered(files.size());
+        return build(files, task);
+    }
+
+    // The classes are given to the sink while they are parsed and not kept, the definitions are not recorded.
+    void build(Sink sink) {
+        long start = metrics != null ? System.nanoTime() : 0;
+        Collection<FileManager.ExtractedFile> files = fileManager.extractFiles();
+        if (metrics != null) metrics.onPhase(AnalysisPhase.SCAN, System.nanoTime() - start);
+        build(files, null, sink);
+    }
+
+    List<File> getInputs() {
+        return fileManager.getInputs();
+    }
+
+    // The classes of a single directory or archive.
+    Collection<JavaClass> build(File input) {
+        long start = metrics != null ? System.nanoTime() : 0;
+        Collection<FileManager.ExtractedFile> files = fileManager.extractFiles(input);
+        if (metrics != null) metrics.onPhase(AnalysisPhase.SCAN, System.nanoTime() - start);
+        return build(files, null);
+    }
+
+    private Collection<JavaClass> build(Collection<FileManager.ExtractedFile> files, AnalysisTask task) {
+        final Collection<JavaClass> classes = new ArrayList<JavaClass>();
+        final ClassDefinitions definitions = new ClassDefinitions();
+        this.definitions = definitions;
+        build(files, task, new Sink() {
+            @Override
+            public void add(JavaClass javaClass, String location, long checksum) {
+                classes.add(javaClass);
+                definitions.add(javaClass.getClassName(), location, checksum);
+            }
+        });
+        return classes;
+    }
+
+    private void build(Collection<FileManager.ExtractedFile> files, AnalysisTask task, Sink classes) {
+        int parsed = 0;
+        for (FileManager.ExtractedFile file : files) {
+            if (task != null && task.isStopping()) break;
             try {
-                Collection<JavaClass> builtClasses = buildClasses(file);
-                classes.addAll(filter(builtClasses));
+                if (metrics != null) measureClasses(file, task, classes);
+                else buildClasses(file, task, classes);
             } catch (IOException ioe) {
-                System.err.println("\n" + ioe.getMessage());
+                if (metrics != null) metrics.onError(file.file.getPath(), ioe);
+                else System.err.println("\n" + ioe.getMessage());
             }
+            if (task != null) task.fileParsed(++parsed, files.size());
         }
-        return classes;
     }
 
-    private Collection<JavaClass> buildClasses(FileManager.ExtractedFile extracted) throws IOException {
+    // The classes of the last build with the checksums of their bytes.
+    ClassDefinitions getDefinitions() {
+        return definitions;
+    }
+
+    private void buildClasses(FileManager.ExtractedFile extracted, AnalysisTask task, Sink classes) throws IOException {
         if (extracted instanceof FileManager.ClassFile) {
-            InputStream is = null;
+            CheckedInputStream checked = null;
             try {
-                is = new BufferedInputStream(new FileInputStream(extracted.file));
+                checked = new CheckedInputStream(new FileInputStream(extracted.file), new CRC32());
+                InputStream is = new BufferedInputStream(checked);
                 JavaClass parsedClass = parser.parse(is);
-                Collection<JavaClass> javaClasses = new ArrayList<JavaClass>();
-                javaClasses.add(parsedClass);
-                return javaClasses;
+                // The checksum needs all the bytes, also the ones after the last attribute
+                skipAll(is);
+                add(classes, parsedClass, classDirectory(extracted.file, parsedClass), checked.getChecksum().getValue(), extracted.file.length());
             } finally {
-                if (is != null) {
-                    is.close();
+                if (checked != null) {
+                    checked.close();
                 }
             }
         } else if (extracted instanceof FileManager.JarFile) {
             JarFile jarFile = new JarFile(extracted.file);
-            Collection<JavaClass> result = buildClasses(jarFile, extracted.file.getName());
+            buildClasses(jarFile, extracted.file, task, classes);
             jarFile.close();
-            return result;
         } else {
             throw new IOException("File is not a valid .class, .jar, .war, or .zip file: " + extracted.file.getPath());
         }
     }
 
-    private Collection<JavaClass> buildClasses(JarFile file, String jarName) throws IOException {
-        Collection<JavaClass> javaClasses = new ArrayList<JavaClass>();
+    private void buildClasses(JarFile file, File jar, AnalysisTask task, Sink classes) throws IOException {
         Enumeration entries = file.entries();
-        while (entries.hasMoreElements()) {
+        while (entries.hasMoreElements() && (task == null || !task.isStopping())) {
             ZipEntry e = (ZipEntry) entries.nextElement();
             String name = e.getName();
             if (isClassFile(name) && acceptInnerClass(e.getName())) {
                 InputStream is = null;
                 try {
-	                is = new BufferedInputStream(file.getInputStream(e));
-                    JavaClass jc = parser.parse(is, jarName);
-                    javaClasses.add(jc);
+                    // The jar already stores the checksum of every entry, it's computed only if missing
+                    CheckedInputStream checked = e.getCrc() < 0 ? new CheckedInputStream(file.getInputStream(e), new CRC32()) : null;
+	                is = new BufferedInputStream(checked != null ? checked : file.getInputStream(e));
+                    JavaClass jc = parser.parse(is, jar.getName());
+                    if (checked != null) skipAll(is);
+                    add(classes, jc, jar.getPath(), checked != null ? checked.getChecksum().getValue() : e.getCrc(), e.getSize());
                 } finally {
                     if (is != null) {
                         is.close();
@@ -78,7 +148,95 @@ class JavaClassBuilder {
                 }
             }
         }
-        return javaClasses;
+    }
+
+    // Same as buildClasses, but every class file is read in memory before being parsed, so the time spent
+    // reading (and inflating) is measured apart from the time spent parsing.
+    private void measureClasses(FileManager.ExtractedFile extracted, AnalysisTask task, Sink classes) throws IOException {
+        long start = System.nanoTime();
+        long readNanos = 0;
+        long parseNanos = 0;
+        long bytes = 0;
+        int count = 0;
+        if (extracted instanceof FileManager.ClassFile) {
+            byte[] content = read(new FileInputStream(extracted.file), (int) extracted.file.length());
+            long read = System.nanoTime();
+            JavaClass parsedClass = parser.parse(new ByteArrayInputStream(content));
+            readNanos = read - start;
+            parseNanos = System.nanoTime() - read;
+            bytes = content.length;
+            count = 1;
+            add(classes, parsedClass, classDirectory(extracted.file, parsedClass), crc(content), content.length);
+        } else if (extracted instanceof FileManager.JarFile) {
+            JarFile jarFile = new JarFile(extracted.file);
+            try {
+                long read = System.nanoTime();
+                Enumeration entries = jarFile.entries();
+                while (entries.hasMoreElements() && (task == null || !task.isStopping())) {
+                    ZipEntry e = (ZipEntry) entries.nextElement();
+                    if (isClassFile(e.getName()) && acceptInnerClass(e.getName())) {
+                        byte[] content = read(jarFile.getInputStream(e), (int) e.getSize());
+                        long parse = System.nanoTime();
+                        JavaClass parsedClass = parser.parse(new ByteArrayInputStream(content), extracted.file.getName());
+                        long parsed = System.nanoTime();
+                        readNanos += parse - read;
+                        parseNanos += parsed - parse;
+                        bytes += content.length;
+                        count++;
+                        add(classes, parsedClass, extracted.file.getPath(), e.getCrc() < 0 ? crc(content) : e.getCrc(), content.length);
+                        read = parsed;
+                    }
+                }
+                readNanos += System.nanoTime() - read;
+            } finally {
+                jarFile.close();
+            }
+        } else {
+            throw new IOException("File is not a valid .class, .jar, .war, or .zip file: " + extracted.file.getPath());
+        }
+        metrics.onPhase(AnalysisPhase.READ, readNanos);
+        metrics.onPhase(AnalysisPhase.PARSE, parseNanos);
+        metrics.onInput(extracted.file.getPath(), bytes, count, System.nanoTime() - start);
+    }
+
+    private void add(Sink classes, JavaClass javaClass, String location, long crc, long size) {
+        if (!filter.accept(javaClass.getClassName())) return;
+        classes.add(javaClass, location, ClassDefinitions.checksum(crc, size));
+    }
+
+    // The directory of the package tree containing the class file.
+    private static String classDirectory(File file, JavaClass javaClass) {
+        File directory = file.getParentFile();
+        String className = javaClass.getClassName();
+        for (int dot = className.indexOf('.'); directory != null && dot >= 0; dot = className.indexOf('.', dot + 1)) {
+            directory = directory.getParentFile();
+        }
+        return directory != null ? directory.getPath() : file.getPath();
+    }
+
+    private static long crc(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    private static void skipAll(InputStream is) throws IOException {
+        byte[] buffer = new byte[512];
+        while (is.read(buffer) >= 0) {
+            // Only the checksum is needed
+        }
+    }
+
+    private static byte[] read(InputStream is, int size) throws IOException {
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream(size > 0 ? size : 8192);
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) > 0) content.write(buffer, 0, read);
+            return content.toByteArray();
+        } finally {
+            is.close();
+        }
     }
 
     private boolean isClassFile(String name) {
@@ -89,12 +247,12 @@ class JavaClassBuilder {
         return filter.acceptInnerClass(name);
     }
 
-    private Collection<JavaClass> filter(Collection<JavaClass> classes) {
-        Collection<JavaClass> filtered = new ArrayList<JavaClass>();
-        for (JavaClass javaClass : classes) {
-            if (filter.accept(javaClass.getClassName())) filtered.add(javaClass);
-        }
-        return filtered;
+    // Receives the accepted classes while they are parsed.
+    interface Sink {
+
+        // The location is the archive or the root directory of the class.
+        void add(JavaClass javaClass, String location, long checksum);
+
     }
 
 }
@@ -0,0 +1,104 @@
+package code.pendency;
+
+/**
+ * Open addressing hash map from primitive long keys to primitive int values, used on the hot paths
+ * to avoid boxing the keys (e.g. pairs of ids packed in a long).
+ */
+final class LongIntMap {
+
+    final static int NO_VALUE = -1;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size = 0;
+
+    LongIntMap() {
+        this(16);
+    }
+
+    LongIntMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) capacity <<= 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.used = new boolean[capacity];
+    }
+
+    static long pair(int first, int second) {
+        return ((long) first << 32) | (second & 0xFFFFFFFFL);
+    }
+
+    static int first(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    static int second(long pair) {
+        return (int) pair;
+    }
+
+    // The value of the key or NO_VALUE if the key is not in the map.
+    int get(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    void put(long key, int value) {
+        if ((size + 1) * 2 > keys.length) resize();
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    // Adds the delta to the value of the key (0 if the key is not in the map) and returns the new value.
+    int add(long key, int delta) {
+        int value = get(key);
+        value = value == NO_VALUE ? delta : value + delta;
+        put(key, value);
+        return value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // The keys in the map, in no particular order.
+    long[] keys() {
+        long[] result = new long[size];
+        int index = 0;
+        for (int slot = 0; slot < keys.length; slot++) if (used[slot]) result[index++] = keys[slot];
+        return result;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        used = new boolean[oldKeys.length * 2];
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) if (oldUsed[slot]) put(oldKeys[slot], oldValues[slot]);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+}
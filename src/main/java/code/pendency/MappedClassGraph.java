@@ -0,0 +1,185 @@
+package code.pendency;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Class graph read from a snapshot file mapped in memory: the string table, the records of the classes
+ * and the adjacency arrays stay in the file and the classes are flyweight views created when accessed,
+ * so the heap used doesn't depend on the size of the graph.
+ * <p>
+ * Every section of the snapshot is mapped separately, a section can't be larger than 2GB.
+ */
+final class MappedClassGraph extends ClassGraph {
+
+    private final int size;
+    private final int edges;
+    private final IntBuffer stringOffsets;
+    private final ByteBuffer stringBytes;
+    private final IntBuffer records;
+    private final IntBuffer efferentOffsets;
+    private final IntBuffer efferents;
+    private final ShortBuffer kinds;
+    private final IntBuffer afferentOffsets;
+    private final IntBuffer afferents;
+    private final IntBuffer annotationOffsets;
+    private final IntBuffer annotations;
+
+    private MappedClassGraph(FileChannel channel) throws IOException {
+        Sections sections = new Sections(channel);
+        IntBuffer header = sections.ints(AnalysisSnapshot.HEADER_INTS);
+        if (header.get(0) != AnalysisSnapshot.MAGIC) {
+            throw new IOException("Invalid snapshot: does not begin with the snapshot magic code");
+        }
+        if (header.get(1) != AnalysisSnapshot.VERSION) {
+            throw new IOException("Unsupported snapshot version: " + header.get(1));
+        }
+        this.size = header.get(2);
+        this.edges = header.get(3);
+        int stringCount = header.get(4);
+        this.stringOffsets = sections.ints(stringCount + 1);
+        this.stringBytes = sections.bytes(header.get(5));
+        this.records = sections.ints((long) size * AnalysisSnapshot.RECORD_INTS);
+        this.efferentOffsets = sections.ints(size + 1);
+        this.efferents = sections.ints(edges);
+        this.kinds = sections.shorts(edges);
+        this.afferentOffsets = sections.ints(size + 1);
+        this.afferents = sections.ints(edges);
+        this.annotationOffsets = sections.ints(size + 1);
+        this.annotations = sections.ints(annotationOffsets.get(size));
+    }
+
+    static MappedClassGraph map(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            // The mapped buffers stay valid after the channel is closed.
+            return new MappedClassGraph(randomAccessFile.getChannel());
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    int numberOfEdges() {
+        return edges;
+    }
+
+    @Override
+    JavaClass get(int id) {
+        return new MappedJavaClass(this, id);
+    }
+
+    @Override
+    String name(int id) {
+        return string(record(id, 0));
+    }
+
+    @Override
+    int efferentsStart(int id) {
+        return efferentOffsets.get(id);
+    }
+
+    @Override
+    int efferentsEnd(int id) {
+        return efferentOffsets.get(id + 1);
+    }
+
+    @Override
+    int efferent(int index) {
+        return efferents.get(index);
+    }
+
+    @Override
+    int kinds(int index) {
+        return kinds.get(index) & 0xFFFF;
+    }
+
+    @Override
+    int afferentsStart(int id) {
+        return afferentOffsets.get(id);
+    }
+
+    @Override
+    int afferentsEnd(int id) {
+        return afferentOffsets.get(id + 1);
+    }
+
+    @Override
+    int afferent(int index) {
+        return afferents.get(index);
+    }
+
+    // The field of the record of the class, see AnalysisSnapshot for the layout.
+    int record(int id, int field) {
+        return records.get(id * AnalysisSnapshot.RECORD_INTS + field);
+    }
+
+    int annotationsStart(int id) {
+        return annotationOffsets.get(id);
+    }
+
+    int annotationsEnd(int id) {
+        return annotationOffsets.get(id + 1);
+    }
+
+    int annotation(int index) {
+        return annotations.get(index);
+    }
+
+    String string(int index) {
+        if (index == AnalysisSnapshot.NO_STRING) return null;
+        int start = stringOffsets.get(index);
+        byte[] bytes = new byte[stringOffsets.get(index + 1) - start];
+        // Absolute reads, the buffer is shared between threads.
+        for (int i = 0; i < bytes.length; i++) bytes[i] = stringBytes.get(start + i);
+        return new String(bytes, AnalysisSnapshot.StringTable.UTF8);
+    }
+
+    // Maps the consecutive sections of the file, the byte and short sections are padded to 4 bytes.
+    private static class Sections {
+
+        private final FileChannel channel;
+        private long position = 0;
+
+        Sections(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        IntBuffer ints(long count) throws IOException {
+            return map(count * 4).asIntBuffer();
+        }
+
+        ShortBuffer shorts(int count) throws IOException {
+            ShortBuffer buffer = map(count * 2L).asShortBuffer();
+            position += AnalysisSnapshot.padding(count * 2);
+            return buffer;
+        }
+
+        ByteBuffer bytes(int count) throws IOException {
+            ByteBuffer buffer = map(count);
+            position += AnalysisSnapshot.padding(count);
+            return buffer;
+        }
+
+        private ByteBuffer map(long length) throws IOException {
+            if (position + length > channel.size()) {
+                throw new IOException("Invalid snapshot: the file is truncated");
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            position += length;
+            return buffer;
+        }
+
+    }
+
+}
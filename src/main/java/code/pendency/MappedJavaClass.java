@@ -0,0 +1,145 @@
+package code.pendency;
+
+import java.util.*;
+
+/**
+ * Flyweight view of a class of a {@link MappedClassGraph}, the attributes and the dependencies are read
+ * from the mapped snapshot when requested.
+ */
+final class MappedJavaClass extends JavaClass {
+
+    private final MappedClassGraph graph;
+    private final int id;
+
+    MappedJavaClass(MappedClassGraph graph, int id) {
+        super(graph.name(id));
+        this.graph = graph;
+        this.id = id;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return graph.record(id, 4);
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return graph.record(id, 5);
+    }
+
+    @Override
+    public String getPackageName() {
+        return graph.string(graph.record(id, 1));
+    }
+
+    @Override
+    public String getSourceFile() {
+        return graph.string(graph.record(id, 2));
+    }
+
+    @Override
+    public String getJarName() {
+        return graph.string(graph.record(id, 3));
+    }
+
+    @Override
+    public boolean isAbstract() {
+        return (graph.record(id, 6) & AnalysisSnapshot.FLAG_ABSTRACT) != 0;
+    }
+
+    @Override
+    public boolean isInterface() {
+        return (graph.record(id, 6) & AnalysisSnapshot.FLAG_INTERFACE) != 0;
+    }
+
+    @Override
+    public boolean hasMainMethod() {
+        return (graph.record(id, 6) & AnalysisSnapshot.FLAG_MAIN_METHOD) != 0;
+    }
+
+    @Override
+    public Collection<String> getAnnotations() {
+        List<String> annotations = new ArrayList<String>(graph.annotationsEnd(id) - graph.annotationsStart(id));
+        for (int i = graph.annotationsStart(id); i < graph.annotationsEnd(id); i++) {
+            annotations.add(graph.string(graph.annotation(i)));
+        }
+        return Collections.unmodifiableList(annotations);
+    }
+
+    @Override
+    public Collection<JavaClass> getEfferents() {
+        return new AbstractList<JavaClass>() {
+            @Override
+            public JavaClass get(int index) {
+                return graph.get(graph.efferent(graph.efferentsStart(id) + index));
+            }
+
+            @Override
+            public int size() {
+                return graph.efferentCoupling(id);
+            }
+        };
+    }
+
+    @Override
+    public Collection<JavaClass> getAfferents() {
+        return new AbstractList<JavaClass>() {
+            @Override
+            public JavaClass get(int index) {
+                return graph.get(graph.afferent(graph.afferentsStart(id) + index));
+            }
+
+            @Override
+            public int size() {
+                return graph.afferentCoupling(id);
+            }
+        };
+    }
+
+    @Override
+    public int efferentCoupling() {
+        return graph.efferentCoupling(id);
+    }
+
+    @Override
+    public int afferentCoupling() {
+        return graph.afferentCoupling(id);
+    }
+
+    @Override
+    Collection<String> getEfferentIds() {
+        List<String> names = new ArrayList<String>(graph.efferentCoupling(id));
+        for (int edge = graph.efferentsStart(id); edge < graph.efferentsEnd(id); edge++) names.add(graph.name(graph.efferent(edge)));
+        return names;
+    }
+
+    @Override
+    JavaClass efferent(int index) {
+        return graph.get(graph.efferent(graph.efferentsStart(id) + index));
+    }
+
+    @Override
+    int efferentKinds(int index) {
+        return graph.kinds(graph.efferentsStart(id) + index);
+    }
+
+    @Override
+    int dependencyKinds(String efferentId) {
+        int efferent = graph.id(efferentId);
+        int edge = efferent < 0 ? -1 : graph.efferentEdge(id, efferent);
+        return edge < 0 ? 0 : graph.kinds(edge);
+    }
+
+    @Override
+    boolean isReferenceOnly() {
+        return getJarName().length() == 0;
+    }
+
+    // A class on the heap, with the attributes of the view.
+    @Override
+    JavaClass withEfferentIds(Map<String, Integer> efferentIds) {
+        return new JavaClass(getMinorVersion(), getMajorVersion(), getClassName(), getPackageName(), isAbstract(), isInterface(),
+                getSourceFile(), getJarName(), hasMainMethod(), new HashSet<String>(getAnnotations()), efferentIds);
+    }
+
+}
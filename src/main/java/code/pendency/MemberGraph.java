@@ -0,0 +1,265 @@
+package code.pendency;
+
+import java.util.*;
+
+/**
+ * The fields and the methods of the classes and the members they use: a method uses the fields it reads or writes
+ * and the methods it invokes. The graph is extracted only if requested (see {@link Codependency#withMembers()}) and
+ * can be rolled up to the classes and to the groups of classes, e.g. to find the methods of a library called by a
+ * service.
+ * <p>
+ * A member is identified by a key made of its class and its name and descriptor, e.g.
+ * <code>com.acme.Service#call(Ljava/lang/String;)V</code> for a method and <code>com.acme.Service#count:I</code>
+ * for a field. The keys are not stored: the members are sorted by class and by name, so a member is found with two
+ * binary searches, and the names are shared between the classes. The uses are adjacency arrays of member ids.
+ */
+public class MemberGraph {
+
+    private final static String SEPARATOR = "#";
+    final static MemberGraph EMPTY = new MemberGraph(new JavaClass[0], new String[0], new int[1], new String[0], new int[0],
+            new int[1], new int[0], new int[1], new int[0]);
+
+    // Sorted by name
+    private final JavaClass[] classes;
+    private final String[] classNames;
+    // The members of a class are the ids from its offset to the offset of the next one
+    private final int[] memberOffsets;
+    private final String[] members;
+    private final int[] owners;
+    private final int[] efferentOffsets;
+    private final int[] efferents;
+    private final int[] afferentOffsets;
+    private final int[] afferents;
+
+    private MemberGraph(JavaClass[] classes, String[] classNames, int[] memberOffsets, String[] members, int[] owners,
+                        int[] efferentOffsets, int[] efferents, int[] afferentOffsets, int[] afferents) {
+        this.classes = classes;
+        this.classNames = classNames;
+        this.memberOffsets = memberOffsets;
+        this.members = members;
+        this.owners = owners;
+        this.efferentOffsets = efferentOffsets;
+        this.efferents = efferents;
+        this.afferentOffsets = afferentOffsets;
+        this.afferents = afferents;
+    }
+
+    // The members of the parsed classes, the classes are the linked ones (or new ones if not linked).
+    static MemberGraph of(List<JavaClass> sources, Map<String, Integer> ids, List<JavaClass> linked) {
+        Builder builder = new Builder();
+        for (JavaClass source : sources) {
+            ClassMembers classMembers = source.members();
+            if (classMembers != null) builder.add(source.getClassName(), classMembers);
+        }
+        return builder.isEmpty() ? EMPTY : builder.build(ids, linked);
+    }
+
+    public static String key(String className, String member) {
+        return className + SEPARATOR + member;
+    }
+
+    public int numberOfMembers() {
+        return members.length;
+    }
+
+    public int numberOfEdges() {
+        return efferents.length;
+    }
+
+    // The keys of the members of the class (declared or used by the other classes), sorted.
+    public List<String> getMembers(String className) {
+        int owner = Arrays.binarySearch(classNames, className);
+        if (owner < 0) return Collections.emptyList();
+        List<String> keys = new ArrayList<String>(memberOffsets[owner + 1] - memberOffsets[owner]);
+        for (int id = memberOffsets[owner]; id < memberOffsets[owner + 1]; id++) keys.add(key(id));
+        return keys;
+    }
+
+    // The keys of the members used by the member, empty if the member is unknown.
+    public List<String> getEfferents(String key) {
+        int id = id(key);
+        return id < 0 ? Collections.<String>emptyList() : keys(efferents, efferentOffsets[id], efferentOffsets[id + 1]);
+    }
+
+    // The keys of the members using the member, empty if the member is unknown.
+    public List<String> getAfferents(String key) {
+        int id = id(key);
+        return id < 0 ? Collections.<String>emptyList() : keys(afferents, afferentOffsets[id], afferentOffsets[id + 1]);
+    }
+
+    // The keys of the members of a class used by another class.
+    public Set<String> getUsedMembers(String fromClass, String toClass) {
+        Set<String> used = new TreeSet<String>();
+        int from = Arrays.binarySearch(classNames, fromClass);
+        int to = Arrays.binarySearch(classNames, toClass);
+        if (from < 0 || to < 0) return used;
+        for (int id = memberOffsets[from]; id < memberOffsets[from + 1]; id++) {
+            for (int edge = efferentOffsets[id]; edge < efferentOffsets[id + 1]; edge++) {
+                if (owners[efferents[edge]] == to) used.add(key(efferents[edge]));
+            }
+        }
+        return used;
+    }
+
+    // The keys of the members of a group used by another group.
+    public <T> Set<String> getUsedMembers(Analysis.GroupById<T> extractor, T from, T to) {
+        Object[] groups = groups(extractor);
+        Set<String> used = new TreeSet<String>();
+        for (int id = 0; id < members.length; id++) {
+            if (!from.equals(groups[owners[id]])) continue;
+            for (int edge = efferentOffsets[id]; edge < efferentOffsets[id + 1]; edge++) {
+                if (to.equals(groups[owners[efferents[edge]]])) used.add(key(efferents[edge]));
+            }
+        }
+        return used;
+    }
+
+    // The keys of the members of a group used by the other groups, e.g. the part of the API of a library
+    // really used by the applications.
+    public <T> Set<String> getUsedMembers(Analysis.GroupById<T> extractor, T group) {
+        Object[] groups = groups(extractor);
+        Set<String> used = new TreeSet<String>();
+        for (int id = 0; id < members.length; id++) {
+            if (!group.equals(groups[owners[id]])) continue;
+            for (int edge = afferentOffsets[id]; edge < afferentOffsets[id + 1]; edge++) {
+                if (!group.equals(groups[owners[afferents[edge]]])) {
+                    used.add(key(id));
+                    break;
+                }
+            }
+        }
+        return used;
+    }
+
+    // The group of every class, by class id.
+    private <T> Object[] groups(Analysis.GroupById<T> extractor) {
+        Object[] groups = new Object[classes.length];
+        for (int owner = 0; owner < classes.length; owner++) groups[owner] = extractor.extract(classes[owner]);
+        return groups;
+    }
+
+    private int id(String key) {
+        int separator = key.indexOf(SEPARATOR);
+        if (separator < 0) return -1;
+        int owner = Arrays.binarySearch(classNames, key.substring(0, separator));
+        if (owner < 0) return -1;
+        int id = Arrays.binarySearch(members, memberOffsets[owner], memberOffsets[owner + 1], key.substring(separator + 1));
+        return id < 0 ? -1 : id;
+    }
+
+    private String key(int id) {
+        return key(classNames[owners[id]], members[id]);
+    }
+
+    private List<String> keys(int[] ids, int start, int end) {
+        List<String> keys = new ArrayList<String>(end - start);
+        for (int edge = start; edge < end; edge++) keys.add(key(ids[edge]));
+        return keys;
+    }
+
+    // Interns the classes and the members with temporary ids, then sorts them and builds the adjacency arrays.
+    private static class Builder {
+
+        private final SharedNames names = new SharedNames();
+        private final Map<String, Integer> classIds = new HashMap<String, Integer>();
+        private final List<Map<String, Integer>> classMembers = new ArrayList<Map<String, Integer>>();
+        private int size = 0;
+        private final IntList from = new IntList();
+        private final IntList to = new IntList();
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void add(String className, ClassMembers parsed) {
+            Map<String, Integer> declared = members(className);
+            int[] sources = new int[parsed.declared.length];
+            for (int i = 0; i < sources.length; i++) sources[i] = member(declared, parsed.declared[i]);
+            int[] targets = new int[parsed.references.length];
+            for (int i = 0; i < targets.length; i++) targets[i] = member(members(parsed.owners[i]), parsed.references[i]);
+            for (int i = 0; i < parsed.uses.length; i += 2) {
+                from.add(sources[parsed.uses[i]]);
+                to.add(targets[parsed.uses[i + 1]]);
+            }
+        }
+
+        private Map<String, Integer> members(String className) {
+            Integer owner = classIds.get(className);
+            if (owner == null) {
+                owner = classMembers.size();
+                classIds.put(className, owner);
+                classMembers.add(new HashMap<String, Integer>());
+            }
+            return classMembers.get(owner);
+        }
+
+        private int member(Map<String, Integer> declared, String member) {
+            Integer id = declared.get(member);
+            if (id == null) {
+                id = size++;
+                declared.put(names.get(member), id);
+            }
+            return id;
+        }
+
+        MemberGraph build(Map<String, Integer> ids, List<JavaClass> linked) {
+            String[] classNames = classIds.keySet().toArray(new String[classIds.size()]);
+            Arrays.sort(classNames);
+            JavaClass[] classes = new JavaClass[classNames.length];
+            int[] memberOffsets = new int[classNames.length + 1];
+            String[] members = new String[size];
+            int[] owners = new int[size];
+            // The final id of every temporary one
+            int[] finalIds = new int[size];
+            int id = 0;
+            for (int owner = 0; owner < classNames.length; owner++) {
+                Integer linkedId = ids.get(classNames[owner]);
+                classes[owner] = linkedId != null ? linked.get(linkedId) : new JavaClass(classNames[owner]);
+                memberOffsets[owner] = id;
+                Map<String, Integer> declared = classMembers.get(classIds.get(classNames[owner]));
+                String[] sorted = declared.keySet().toArray(new String[declared.size()]);
+                Arrays.sort(sorted);
+                for (String member : sorted) {
+                    members[id] = member;
+                    owners[id] = owner;
+                    finalIds[declared.get(member)] = id++;
+                }
+            }
+            memberOffsets[classNames.length] = id;
+            // Efferents, every row sorted without duplicates
+            int[] efferentOffsets = new int[size + 1];
+            for (int edge = 0; edge < from.size(); edge++) efferentOffsets[finalIds[from.get(edge)] + 1]++;
+            for (int member = 0; member < size; member++) efferentOffsets[member + 1] += efferentOffsets[member];
+            int[] efferents = new int[from.size()];
+            int[] positions = Arrays.copyOf(efferentOffsets, size);
+            for (int edge = 0; edge < from.size(); edge++) efferents[positions[finalIds[from.get(edge)]]++] = finalIds[to.get(edge)];
+            int index = 0;
+            for (int member = 0; member < size; member++) {
+                int start = efferentOffsets[member];
+                int end = efferentOffsets[member + 1];
+                Arrays.sort(efferents, start, end);
+                efferentOffsets[member] = index;
+                for (int edge = start; edge < end; edge++) {
+                    if (edge == start || efferents[edge] != efferents[edge - 1]) efferents[index++] = efferents[edge];
+                }
+            }
+            efferentOffsets[size] = index;
+            if (index < efferents.length) efferents = Arrays.copyOf(efferents, index);
+            // Afferents, filled following the source order so every row is already sorted
+            int[] afferentOffsets = new int[size + 1];
+            for (int edge = 0; edge < efferents.length; edge++) afferentOffsets[efferents[edge] + 1]++;
+            for (int member = 0; member < size; member++) afferentOffsets[member + 1] += afferentOffsets[member];
+            int[] afferents = new int[efferents.length];
+            positions = Arrays.copyOf(afferentOffsets, size);
+            for (int member = 0; member < size; member++) {
+                for (int edge = efferentOffsets[member]; edge < efferentOffsets[member + 1]; edge++) {
+                    afferents[positions[efferents[edge]]++] = member;
+                }
+            }
+            return new MemberGraph(classes, classNames, memberOffsets, members, owners, efferentOffsets, efferents,
+                    afferentOffsets, afferents);
+        }
+
+    }
+
+}
@@ -0,0 +1,21 @@
+package code.pendency;
+
+import java.io.IOException;
+
+/**
+ * Receives the measures of the analyses (see {@link Codependency#withMetrics}). The listener can be called by
+ * many threads at the same time, e.g. by the analyses of a session, so the implementations must be thread safe.
+ * Without a listener nothing is measured.
+ */
+public interface MetricsListener {
+
+    // The time spent in a phase: reading and parsing are reported for every class file or archive.
+    void onPhase(AnalysisPhase phase, long nanos);
+
+    // A class file or an archive has been read and parsed.
+    void onInput(String path, long bytes, int classes, long nanos);
+
+    // A class file or an archive can't be read, its classes are not in the analysis.
+    void onError(String path, IOException error);
+
+}
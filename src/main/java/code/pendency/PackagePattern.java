@@ -0,0 +1,65 @@
+package code.pendency;
+
+import java.util.regex.Pattern;
+
+/**
+ * Pattern over package names: ".." matches any number of packages (also none) and "*" any part of a package name.
+ * For example "..domain.." matches every package containing "domain", "com.acme.." matches "com.acme" and its
+ * sub packages and "com.*.api" matches "com.acme.api".
+ */
+final class PackagePattern {
+
+    private final String pattern;
+    private final Pattern regex;
+
+    PackagePattern(String pattern) {
+        this.pattern = pattern;
+        this.regex = Pattern.compile(toRegex(pattern));
+    }
+
+    boolean matches(String packageName) {
+        return regex.matcher(packageName).matches();
+    }
+
+    private static String toRegex(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        int length = pattern.length();
+        int index = 0;
+        while (index < length) {
+            if (pattern.startsWith("..", index)) {
+                boolean first = index == 0;
+                boolean last = index + 2 == length;
+                if (first && last) regex.append(".*");
+                else if (first) regex.append("(?:.*\\.)?");
+                else if (last) regex.append("(?:\\..*)?");
+                else regex.append("\\.(?:.*\\.)?");
+                index += 2;
+            } else {
+                char c = pattern.charAt(index++);
+                if (c == '*') regex.append("[^.]*");
+                else if (c == '.') regex.append("\\.");
+                else if (Character.isLetterOrDigit(c) || c == '_') regex.append(c);
+                else regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return regex.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return pattern.equals(((PackagePattern) o).pattern);
+    }
+
+    @Override
+    public int hashCode() {
+        return pattern.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+}
@@ -0,0 +1,53 @@
+package code.pendency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a computation on the ids [0, size) split in chunks between the threads of an executor.
+ */
+final class Parallel {
+
+    private final static int CHUNKS_PER_THREAD = 4;
+
+    private Parallel() {
+    }
+
+    // A part [from, to) of the ids.
+    interface Chunk {
+        double[] call(int from, int to);
+    }
+
+    // The results are in the order of the chunks.
+    static List<double[]> run(ExecutorService executor, int threads, int size, final Chunk chunk) {
+        int chunks = Math.max(1, Math.min(size, threads * CHUNKS_PER_THREAD));
+        List<Callable<double[]>> tasks = new ArrayList<Callable<double[]>>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            final int from = (int) ((long) size * c / chunks);
+            final int to = (int) ((long) size * (c + 1) / chunks);
+            tasks.add(new Callable<double[]>() {
+                @Override
+                public double[] call() {
+                    return chunk.call(from, to);
+                }
+            });
+        }
+        try {
+            List<double[]> results = new ArrayList<double[]>(chunks);
+            for (Future<double[]> future : executor.invokeAll(tasks)) results.add(future.get());
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Computation interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+}
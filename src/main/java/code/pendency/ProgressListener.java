@@ -0,0 +1,18 @@
+package code.pendency;
+
+/**
+ * Receives the progress of an asynchronous analysis (see {@link Codependency#analyzeAsync}). The methods
+ * are called by the thread analyzing the classes.
+ */
+public interface ProgressListener {
+
+    // The directories have been walked: the number of class files and archives to parse.
+    void onFilesDiscovered(int files);
+
+    // A class file or an archive has been parsed.
+    void onFileParsed(int parsed, int files);
+
+    // The parsing is over and the classes are being linked.
+    void onLinking(int classes);
+
+}
@@ -0,0 +1,121 @@
+package code.pendency;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Secondary indexes of an analysis used by the queries. Every index is built the first time it is needed
+ * and then shared by all the following queries.
+ */
+final class QueryIndex {
+
+    private final static int[] NO_IDS = new int[0];
+
+    private final ClassGraph graph;
+    private Map<String, int[]> byJarName;
+    private Map<Integer, int[]> byMajorVersion;
+    private int[] abstracts;
+    private int[] interfaces;
+    private int[] byAfferentCoupling;
+    private int[] byEfferentCoupling;
+
+    QueryIndex(ClassGraph graph) {
+        this.graph = graph;
+    }
+
+    ClassGraph graph() {
+        return graph;
+    }
+
+    synchronized int[] withJarName(String jarName) {
+        if (byJarName == null) {
+            Map<String, IntList> lists = new HashMap<String, IntList>();
+            for (int id = 0; id < graph.size(); id++) {
+                String key = graph.get(id).getJarName();
+                IntList list = lists.get(key);
+                if (list == null) {
+                    list = new IntList();
+                    lists.put(key, list);
+                }
+                list.add(id);
+            }
+            Map<String, int[]> index = new HashMap<String, int[]>(lists.size());
+            for (Map.Entry<String, IntList> entry : lists.entrySet()) index.put(entry.getKey(), entry.getValue().toArray());
+            byJarName = index;
+        }
+        int[] ids = byJarName.get(jarName);
+        return ids != null ? ids : NO_IDS;
+    }
+
+    synchronized int[] withMajorVersion(int majorVersion) {
+        if (byMajorVersion == null) {
+            Map<Integer, IntList> lists = new HashMap<Integer, IntList>();
+            for (int id = 0; id < graph.size(); id++) {
+                Integer key = graph.get(id).getMajorVersion();
+                IntList list = lists.get(key);
+                if (list == null) {
+                    list = new IntList();
+                    lists.put(key, list);
+                }
+                list.add(id);
+            }
+            Map<Integer, int[]> index = new HashMap<Integer, int[]>(lists.size());
+            for (Map.Entry<Integer, IntList> entry : lists.entrySet()) index.put(entry.getKey(), entry.getValue().toArray());
+            byMajorVersion = index;
+        }
+        int[] ids = byMajorVersion.get(majorVersion);
+        return ids != null ? ids : NO_IDS;
+    }
+
+    synchronized int[] abstracts() {
+        if (abstracts == null) {
+            IntList list = new IntList();
+            for (int id = 0; id < graph.size(); id++) if (graph.get(id).isAbstract()) list.add(id);
+            abstracts = list.toArray();
+        }
+        return abstracts;
+    }
+
+    synchronized int[] interfaces() {
+        if (interfaces == null) {
+            IntList list = new IntList();
+            for (int id = 0; id < graph.size(); id++) if (graph.get(id).isInterface()) list.add(id);
+            interfaces = list.toArray();
+        }
+        return interfaces;
+    }
+
+    // The ids sorted by afferent coupling, highest first.
+    synchronized int[] byAfferentCoupling() {
+        if (byAfferentCoupling == null) {
+            int[] coupling = new int[graph.size()];
+            for (int id = 0; id < coupling.length; id++) coupling[id] = graph.afferentCoupling(id);
+            byAfferentCoupling = sortDescending(coupling);
+        }
+        return byAfferentCoupling;
+    }
+
+    // The ids sorted by efferent coupling, highest first.
+    synchronized int[] byEfferentCoupling() {
+        if (byEfferentCoupling == null) {
+            int[] coupling = new int[graph.size()];
+            for (int id = 0; id < coupling.length; id++) coupling[id] = graph.efferentCoupling(id);
+            byEfferentCoupling = sortDescending(coupling);
+        }
+        return byEfferentCoupling;
+    }
+
+    // Counting sort, the coupling can't be greater than the number of classes.
+    // Classes with the same coupling keep the id (alphabetical) order.
+    private static int[] sortDescending(int[] values) {
+        int max = 0;
+        for (int value : values) if (value > max) max = value;
+        int[] starts = new int[max + 2];
+        for (int value : values) starts[max - value + 1]++;
+        for (int i = 1; i < starts.length; i++) starts[i] += starts[i - 1];
+        int[] sorted = new int[values.length];
+        for (int id = 0; id < values.length; id++) sorted[starts[max - values[id]]++] = id;
+        return sorted;
+    }
+
+}
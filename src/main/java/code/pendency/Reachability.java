@@ -0,0 +1,88 @@
+package code.pendency;
+
+import java.util.*;
+
+/**
+ * The classes reachable, through the efferents, from a set of entry points. The classes found in the
+ * analyzed directories but not reachable are candidates for deletion.
+ * <p>
+ * The classes are marked with a single breadth first visit over the adjacency arrays of the graph,
+ * so the cost is linear in the number of classes and dependencies.
+ */
+public class Reachability {
+
+    private final ClassGraph graph;
+    private final boolean[] reachable;
+    private final int numberOfEntryPoints;
+
+    private Reachability(ClassGraph graph, boolean[] reachable, int numberOfEntryPoints) {
+        this.graph = graph;
+        this.reachable = reachable;
+        this.numberOfEntryPoints = numberOfEntryPoints;
+    }
+
+    public static Reachability from(Analysis analysis, EntryPoints entryPoints) {
+        ClassGraph graph = analysis.graph();
+        boolean[] reachable = new boolean[graph.size()];
+        int[] queue = new int[graph.size()];
+        int head = 0, tail = 0;
+        for (int id = 0; id < graph.size(); id++) {
+            if (entryPoints.accept(graph.get(id))) {
+                reachable[id] = true;
+                queue[tail++] = id;
+            }
+        }
+        int numberOfEntryPoints = tail;
+        while (head < tail) {
+            int id = queue[head++];
+            for (int edge = graph.efferentsStart(id); edge < graph.efferentsEnd(id); edge++) {
+                int efferent = graph.efferent(edge);
+                if (!reachable[efferent]) {
+                    reachable[efferent] = true;
+                    queue[tail++] = efferent;
+                }
+            }
+        }
+        return new Reachability(graph, reachable, numberOfEntryPoints);
+    }
+
+    public int numberOfEntryPoints() {
+        return numberOfEntryPoints;
+    }
+
+    public boolean isReachable(JavaClass javaClass) {
+        int id = graph.id(javaClass.getClassName());
+        return id >= 0 && reachable[id];
+    }
+
+    public List<JavaClass> getReachable() {
+        List<JavaClass> classes = new ArrayList<JavaClass>();
+        for (int id = 0; id < reachable.length; id++) if (reachable[id]) classes.add(graph.get(id));
+        return classes;
+    }
+
+    // The classes found in the analyzed directories and not reachable from the entry points.
+    public List<JavaClass> getUnreachable() {
+        List<JavaClass> classes = new ArrayList<JavaClass>();
+        for (int id = 0; id < reachable.length; id++) {
+            if (!reachable[id] && !graph.get(id).isReferenceOnly()) classes.add(graph.get(id));
+        }
+        return classes;
+    }
+
+    // The unreachable classes grouped, e.g. by package or by jar.
+    public <T> Map<T, List<JavaClass>> getUnreachable(Analysis.GroupById<T> extractor) {
+        Map<T, List<JavaClass>> groups = new HashMap<T, List<JavaClass>>();
+        for (JavaClass javaClass : getUnreachable()) {
+            T key = extractor.extract(javaClass);
+            List<JavaClass> classes = groups.get(key);
+            if (classes == null) {
+                classes = new ArrayList<JavaClass>();
+                groups.put(key, classes);
+            }
+            classes.add(javaClass);
+        }
+        return groups;
+    }
+
+}
@@ -0,0 +1,30 @@
+package code.pendency;
+
+/**
+ * A dependency breaking an architecture rule.
+ */
+public class RuleViolation {
+
+    private final String rule;
+    private final Dependency<JavaClass> dependency;
+
+    RuleViolation(String rule, Dependency<JavaClass> dependency) {
+        this.rule = rule;
+        this.dependency = dependency;
+    }
+
+    // The description of the rule, e.g. "..domain.. must not depend on ..infrastructure..".
+    public String getRule() {
+        return rule;
+    }
+
+    public Dependency<JavaClass> getDependency() {
+        return dependency;
+    }
+
+    @Override
+    public String toString() {
+        return rule + ": " + dependency;
+    }
+
+}
@@ -0,0 +1,23 @@
+package code.pendency;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The names repeated by many classes (packages, jars and source files) shared as a single instance.
+ */
+class SharedNames {
+
+    private final Map<String, String> names = new HashMap<String, String>();
+
+    String get(String name) {
+        if (name == null) return null;
+        String shared = names.get(name);
+        if (shared == null) {
+            names.put(name, name);
+            shared = name;
+        }
+        return shared;
+    }
+
+}
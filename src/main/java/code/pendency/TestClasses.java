@@ -0,0 +1,59 @@
+package code.pendency;
+
+import java.util.*;
+
+/**
+ * The rule to recognise the test classes: the name ends with one of the given suffixes, starts with one
+ * of the given prefixes or the class has one of the given annotations (e.g. "org.junit.Test" on its methods).
+ */
+public class TestClasses {
+
+    private final List<String> suffixes;
+    private final List<String> prefixes;
+    private final List<String> annotations;
+
+    private TestClasses(List<String> suffixes, List<String> prefixes, List<String> annotations) {
+        this.suffixes = Collections.unmodifiableList(suffixes);
+        this.prefixes = Collections.unmodifiableList(prefixes);
+        this.annotations = Collections.unmodifiableList(annotations);
+    }
+
+    private final static List<String> empty = Collections.emptyList();
+
+    public static TestClasses create() {
+        return new TestClasses(empty, empty, empty);
+    }
+
+    // The classes with the simple name ending with the suffix, e.g. "Test".
+    public TestClasses withSuffix(String suffix) {
+        List<String> suffixes = new ArrayList<String>(this.suffixes);
+        suffixes.add(suffix);
+        return new TestClasses(suffixes, prefixes, annotations);
+    }
+
+    // The classes with the name starting with the prefix.
+    public TestClasses withPrefix(String prefix) {
+        List<String> prefixes = new ArrayList<String>(this.prefixes);
+        prefixes.add(prefix);
+        return new TestClasses(suffixes, prefixes, annotations);
+    }
+
+    // The classes with the annotation (full class name) on the class, a field or a method.
+    public TestClasses annotatedWith(String annotation) {
+        List<String> annotations = new ArrayList<String>(this.annotations);
+        annotations.add(annotation);
+        return new TestClasses(suffixes, prefixes, annotations);
+    }
+
+    boolean accept(JavaClass javaClass) {
+        String className = javaClass.getClassName();
+        for (String suffix : suffixes) if (className.endsWith(suffix)) return true;
+        for (String prefix : prefixes) if (className.startsWith(prefix)) return true;
+        if (!annotations.isEmpty()) {
+            Collection<String> classAnnotations = javaClass.getAnnotations();
+            for (String annotation : annotations) if (classAnnotations.contains(annotation)) return true;
+        }
+        return false;
+    }
+
+}
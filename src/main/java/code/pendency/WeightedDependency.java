@@ -0,0 +1,41 @@
+package code.pendency;
+
+/**
+ * A dependency between two groups of classes weighted by the dependencies between their classes: the number of
+ * class dependencies, of classes of the source depending on the target and of classes of the target used by the
+ * source.
+ */
+public class WeightedDependency<T> extends Dependency<T> {
+
+    private final int classDependencies;
+    private final int sourceClasses;
+    private final int targetClasses;
+
+    public WeightedDependency(T source, T target, int classDependencies, int sourceClasses, int targetClasses) {
+        super(source, target);
+        this.classDependencies = classDependencies;
+        this.sourceClasses = sourceClasses;
+        this.targetClasses = targetClasses;
+    }
+
+    // The number of dependencies from a class of the source to a class of the target.
+    public int getClassDependencies() {
+        return classDependencies;
+    }
+
+    // The number of classes of the source depending on a class of the target.
+    public int getSourceClasses() {
+        return sourceClasses;
+    }
+
+    // The number of classes of the target used by a class of the source.
+    public int getTargetClasses() {
+        return targetClasses;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + " (" + classDependencies + ", " + sourceClasses + " -> " + targetClasses + ")";
+    }
+
+}
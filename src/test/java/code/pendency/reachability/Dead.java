@@ -0,0 +1,5 @@
+package code.pendency.reachability;
+
+public class Dead {
+    Used used;
+}
@@ -0,0 +1,8 @@
+package code.pendency.reachability;
+
+import code.pendency.sample.Annotation;
+
+@Annotation(String.class)
+public class Endpoint {
+    Helper helper;
+}
@@ -0,0 +1,4 @@
+package code.pendency.reachability;
+
+public class Helper {
+}
@@ -0,0 +1,9 @@
+package code.pendency.reachability;
+
+public class Main {
+
+    public static void main(String[] args) {
+        new Used();
+    }
+
+}
@@ -0,0 +1,4 @@
+package code.pendency.reachability.sub;
+
+public class DeadToo {
+}
@@ -0,0 +1,26 @@
+package code.pendency.usage;
+
+import java.util.concurrent.TimeUnit;
+
+public class ClassWithCode {
+
+    public Object run(Object value, int index) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(Math.max(index, 2));
+        if (value instanceof Number) builder.append(((Comparable) value).hashCode());
+        switch (index) {
+            case 1: builder.append('a'); break;
+            case 2: builder.append('b'); break;
+            case 3: builder.append('c'); break;
+            default: builder.append('d');
+        }
+        switch (index) {
+            case 10: builder.append(TimeUnit.SECONDS); break;
+            case 1000: builder.append('f'); break;
+            default: builder.append('g');
+        }
+        Thread[][] threads = new Thread[index][index];
+        return threads.length > 0 ? new Thread[0] : builder.toString();
+    }
+
+}
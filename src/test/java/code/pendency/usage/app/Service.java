@@ -0,0 +1,13 @@
+package code.pendency.usage.app;
+
+import code.pendency.usage.lib.Library;
+
+public class Service {
+
+    public String run() {
+        Library library = new Library();
+        String result = library.call("value");
+        return result + library.count;
+    }
+
+}
@@ -0,0 +1,15 @@
+package code.pendency.usage.lib;
+
+public class Library {
+
+    public int count;
+
+    public String call(String value) {
+        count++;
+        return value.trim();
+    }
+
+    public void unused() {
+    }
+
+}
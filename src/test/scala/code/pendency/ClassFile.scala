@@ -2,6 +2,8 @@ package code.pendency
 
 import java.io.File
 
+import scala.collection.JavaConverters._
+
 object ClassFile {
 
   private val targetTestClassDir = {
@@ -18,4 +20,12 @@ object ClassFile {
     new File(builder.toString)
   }
 
+  // A class not read from a class file, with its dependencies
+  def javaClass(name: String, dependencies: String*): JavaClass =
+    new JavaClass(0, 50, name, "Source.java", "library.jar", false, false, dependencies.toList.asJava)
+
+  // A class not read from a class file, with its annotations and dependencies
+  def annotatedClass(name: String, annotations: Set[String], dependencies: String*): JavaClass =
+    new JavaClass(0, 50, name, "Source.java", "library.jar", false, false, false, annotations.asJava, dependencies.toList.asJava)
+
 }
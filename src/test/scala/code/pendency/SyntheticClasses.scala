@@ -0,0 +1,136 @@
+package code.pendency
+
+import java.io._
+import java.util.jar.{JarEntry, JarOutputStream}
+import java.util.zip.Deflater
+
+import scala.util.Random
+
+/**
+ * Synthetic class files for the tests at scale: the classes are spread over the packages and every class has
+ * fields of the types of other classes (the dependencies). The same parameters always give the same bytes.
+ *
+ * The packages are a chain, every package depends on the next ones (packageFanOut) so the graph of the packages has
+ * no cycle, and every cycle adds a dependency from a package to a previous one. A class depends on density classes
+ * of its package or of the packages it depends on, the first classes of a package cover all its package
+ * dependencies. The classes are generated one at a time, from the seed and their id, and never kept.
+ */
+case class SyntheticClasses(classes: Int = 1000,
+                            packages: Int = 10,
+                            packageFanOut: Int = 2,
+                            density: Int = 4,
+                            cycles: Int = 0,
+                            seed: Long = 1) {
+
+  require(packages > 0 && density > 0 && classes >= packages * (packageFanOut + 2), "Not enough classes to cover the packages")
+  require(cycles < packages, "At most a cycle by package but the first")
+
+  // The dependencies from a package to a previous one, by source package
+  private val backEdges: Map[Int, Int] = {
+    val random = new Random(seed)
+    random.shuffle((1 until packages).toList).take(cycles).map(source => source -> random.nextInt(source)).toMap
+  }
+
+  def packageName(pkg: Int): String = s"synthetic.p$pkg"
+
+  def className(id: Int): String = s"${packageName(packageOf(id))}.C$id"
+
+  def packageOf(id: Int): Int = id % packages
+
+  // The packages a package depends on.
+  def packageDependencies(pkg: Int): Seq[Int] =
+    ((pkg + 1) to math.min(pkg + packageFanOut, packages - 1)) ++ backEdges.get(pkg).toSeq
+
+  // The classes a class depends on, distinct and without the class itself.
+  def dependencies(id: Int): Seq[Int] = {
+    val random = new Random(seed ^ (id * 0x9E3779B97F4A7C15L))
+    val pkg = packageOf(id)
+    val targets = pkg +: packageDependencies(pkg)
+    val index = id / packages
+    // The first classes of the package depend on one of every package dependency
+    val first = if (index > 0 && index <= targets.size - 1) Seq(classOf(targets(index), random)) else Seq.empty
+    val others = Seq.fill(density - first.size)(classOf(targets(random.nextInt(targets.size)), random))
+    (first ++ others).distinct.filter(_ != id)
+  }
+
+  def isAbstract(id: Int): Boolean = new Random(seed + id).nextInt(5) == 0
+
+  // A random class of the package.
+  private def classOf(pkg: Int, random: Random): Int = {
+    val size = (classes - pkg + packages - 1) / packages
+    pkg + random.nextInt(size) * packages
+  }
+
+  // Section 4.1 of VM Spec - A class extending Object with a private field for every dependency.
+  def bytes(id: Int): Array[Byte] = {
+    val efferents = dependencies(id)
+    val bytes = new ByteArrayOutputStream(128 + efferents.size * 48)
+    val out = new DataOutputStream(bytes)
+    out.writeInt(0xCAFEBABE)
+    out.writeShort(0)
+    out.writeShort(50)
+    // this class, super class and a name and descriptor for every field
+    out.writeShort(5 + efferents.size * 2)
+    utf8(out, internal(className(id)))
+    out.writeByte(7)
+    out.writeShort(1)
+    utf8(out, "java/lang/Object")
+    out.writeByte(7)
+    out.writeShort(3)
+    for (efferent <- efferents) {
+      utf8(out, s"f$efferent")
+      utf8(out, s"L${internal(className(efferent))};")
+    }
+    out.writeShort(if (isAbstract(id)) 0x0421 else 0x0021)
+    out.writeShort(2)
+    out.writeShort(4)
+    out.writeShort(0)
+    out.writeShort(efferents.size)
+    for (field <- efferents.indices) {
+      out.writeShort(0x0002)
+      out.writeShort(5 + field * 2)
+      out.writeShort(6 + field * 2)
+      out.writeShort(0)
+    }
+    out.writeShort(0)
+    out.writeShort(0)
+    out.flush()
+    bytes.toByteArray
+  }
+
+  // Writes the classes in a jar, the fastest compression as the jars are read once.
+  def writeJar(file: File): File = {
+    file.getParentFile.mkdirs()
+    val jar = new JarOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))
+    try {
+      jar.setLevel(Deflater.BEST_SPEED)
+      for (id <- 0 until classes) {
+        jar.putNextEntry(new JarEntry(internal(className(id)) + ".class"))
+        jar.write(bytes(id))
+        jar.closeEntry()
+      }
+    } finally {
+      jar.close()
+    }
+    file
+  }
+
+  // Writes the classes in a tree of directories, as a compiler does.
+  def writeDirectory(directory: File): File = {
+    for (id <- 0 until classes) {
+      val file = new File(directory, internal(className(id)) + ".class")
+      file.getParentFile.mkdirs()
+      val out = new FileOutputStream(file)
+      try out.write(bytes(id)) finally out.close()
+    }
+    directory
+  }
+
+  private def internal(name: String) = name.replace('.', '/')
+
+  private def utf8(out: DataOutputStream, value: String): Unit = {
+    out.writeByte(1)
+    out.writeUTF(value)
+  }
+
+}
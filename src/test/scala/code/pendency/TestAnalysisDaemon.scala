@@ -0,0 +1,117 @@
+package code.pendency
+
+import java.io.{BufferedReader, File, InputStreamReader}
+import java.net.{HttpURLConnection, Socket, URL}
+import java.nio.file.{Files, StandardCopyOption}
+
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{BeforeAndAfterAll, FeatureSpec, Matchers}
+
+import scala.io.Source
+
+@RunWith(classOf[JUnitRunner])
+class TestAnalysisDaemon extends FeatureSpec with Matchers with BeforeAndAfterAll {
+
+  val directory: File = Files.createTempDirectory("daemon").toFile
+  for (name <- Seq("BaseOne.class", "BaseTwo.class")) {
+    Files.copy(ClassFile("code", "pendency", "group", name).toPath, new File(directory, name).toPath)
+  }
+
+  val running: AnalysisDaemon.Running = AnalysisDaemon.create(Codependency.create().withDirectory(directory.getAbsolutePath))
+    .withPollInterval(0)
+    .withRules(ArchitectureRules.create().mustNotDependOn("code..", "java.lang"))
+    .start()
+
+  override def afterAll(): Unit = running.stop()
+
+  def get(query: String): (Int, Seq[String]) = {
+    val connection = new URL("http://127.0.0.1:" + running.getPort + query).openConnection().asInstanceOf[HttpURLConnection]
+    val status = connection.getResponseCode
+    val stream = if (status == 200) connection.getInputStream else connection.getErrorStream
+    val lines = if (stream == null) Seq() else try Source.fromInputStream(stream, "UTF-8").getLines().toList finally stream.close()
+    (status, lines)
+  }
+
+  // The status of a request with the given Host header (none if null), not settable with HttpURLConnection.
+  def status(host: String): Int = {
+    val socket = new Socket("127.0.0.1", running.getPort)
+    try {
+      val request = "GET /status HTTP/1.1\r\n" + (if (host == null) "" else "Host: " + host + "\r\n") + "Connection: close\r\n\r\n"
+      socket.getOutputStream.write(request.getBytes("US-ASCII"))
+      val statusLine = new BufferedReader(new InputStreamReader(socket.getInputStream, "US-ASCII")).readLine()
+      statusLine.split(" ")(1).toInt
+    } finally socket.close()
+  }
+
+  feature("queries") {
+
+    scenario("status") {
+      get("/status") shouldBe (200, Seq("classes\t" + running.getAnalysis.numberOfClasses()))
+    }
+
+    scenario("coupling") {
+      get("/coupling?class=code.pendency.group.BaseTwo") shouldBe (200, Seq("code.pendency.group.BaseTwo\t0\t3"))
+      get("/efferents?class=code.pendency.group.BaseTwo")._2 should contain ("code.pendency.group.BaseOne")
+      get("/afferents?class=code.pendency.group.BaseOne")._2 shouldBe Seq("code.pendency.group.BaseTwo")
+    }
+
+    scenario("classes with a prefix") {
+      get("/classes?prefix=code.pendency.group.Base")._2 shouldBe Seq("code.pendency.group.BaseOne", "code.pendency.group.BaseTwo")
+    }
+
+    scenario("groups") {
+      get("/groups?by=package")._2.map(_.split("\t")(0)) should contain ("code.pendency.group")
+    }
+
+    scenario("paths") {
+      get("/path?from=code.pendency.group.BaseTwo&to=java.lang.Object")._2 should have size 1
+    }
+
+    scenario("impact") {
+      get("/impact?class=code.pendency.group.BaseOne")._2 shouldBe Seq("code.pendency.group.BaseOne", "code.pendency.group.BaseTwo")
+    }
+
+    scenario("violations") {
+      get("/violations")._2.map(_.split("\t")(1)) should contain ("code.pendency.group.BaseOne -> java.lang.Object")
+    }
+
+    scenario("errors") {
+      get("/coupling")._1 shouldBe 400
+      get("/coupling?class=does.not.Exist")._1 shouldBe 404
+      get("/unknown")._1 shouldBe 404
+    }
+
+    scenario("invalid number of paths") {
+      get("/path?from=code.pendency.group.BaseTwo&to=java.lang.Object&k=2")._1 shouldBe 200
+      get("/path?from=code.pendency.group.BaseTwo&to=java.lang.Object&k=two")._1 shouldBe 400
+      get("/path?from=code.pendency.group.BaseTwo&to=java.lang.Object&k=0")._1 shouldBe 400
+      get("/path?from=code.pendency.group.BaseTwo&to=java.lang.Object&k=1000000")._1 shouldBe 400
+    }
+
+    scenario("only the requests to localhost") {
+      status("127.0.0.1:" + running.getPort) shouldBe 200
+      status("localhost:" + running.getPort) shouldBe 200
+      status("localhost") shouldBe 200
+      status("attacker.example.com:" + running.getPort) shouldBe 403
+      status("localhost:1") shouldBe 403
+      status(null) shouldBe 403
+    }
+
+  }
+
+  feature("changes") {
+
+    scenario("the analysis is replaced when the files change") {
+      running.refresh() shouldBe false
+      val before = running.getAnalysis
+      Files.copy(ClassFile("code", "pendency", "sample", "IsolatedClass.class").toPath,
+        new File(directory, "IsolatedClass.class").toPath, StandardCopyOption.REPLACE_EXISTING)
+      running.refresh() shouldBe true
+      running.getAnalysis.numberOfClasses() shouldBe before.numberOfClasses() + 1
+      get("/status")._2 shouldBe Seq("classes\t" + (before.numberOfClasses() + 1))
+    }
+
+  }
+
+}
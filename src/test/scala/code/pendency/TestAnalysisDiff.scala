@@ -0,0 +1,125 @@
+package code.pendency
+
+import java.io.{ByteArrayInputStream, ByteArrayOutputStream, File, IOException}
+
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FeatureSpec, Matchers}
+
+import scala.collection.JavaConverters._
+
+@RunWith(classOf[JUnitRunner])
+class TestAnalysisDiff extends FeatureSpec with Matchers {
+
+  val directory: String = ClassFile("code", "pendency", "group").getAbsolutePath
+
+  val base: Analysis = Codependency.create()
+      .excludes("code.pendency.group.sub2")
+      .withDirectory(directory)
+      .analyze()
+
+  val head: Analysis = Codependency.create()
+      .withDirectory(directory)
+      .analyze()
+
+  feature("compare two analyses") {
+
+    scenario("same analysis") {
+      AnalysisDiff.compare(head, head).isEmpty shouldBe true
+    }
+
+    scenario("added class and dependencies") {
+      val diff = AnalysisDiff.compare(base, head)
+      diff.getAddedClasses.asScala.map(_.getClassName) shouldBe Seq("code.pendency.group.sub2.Sub2")
+      diff.getRemovedClasses shouldBe empty
+      diff.getAddedDependencies.asScala.map(_.toString) should contain theSameElementsAs Seq(
+        "code.pendency.group.BaseTwo -> code.pendency.group.sub2.Sub2",
+        "code.pendency.group.sub2.Sub2 -> code.pendency.group.sub1.Sub1",
+        "code.pendency.group.sub2.Sub2 -> java.lang.Object")
+      diff.getRemovedDependencies shouldBe empty
+    }
+
+    scenario("removed class and dependencies") {
+      val diff = AnalysisDiff.compare(head, base)
+      diff.getAddedClasses shouldBe empty
+      diff.getRemovedClasses.asScala.map(_.getClassName) shouldBe Seq("code.pendency.group.sub2.Sub2")
+      diff.getRemovedDependencies should have size 3
+    }
+
+    scenario("group dependencies") {
+      val diff = AnalysisDiff.compare(base, head)
+      diff.getAddedDependencies(Analysis.BY_PACKAGE).asScala.map(_.toString) should contain theSameElementsAs Seq(
+        "code.pendency.group -> code.pendency.group.sub2",
+        "code.pendency.group.sub2 -> code.pendency.group.sub1",
+        "code.pendency.group.sub2 -> java.lang")
+      diff.getRemovedDependencies(Analysis.BY_PACKAGE) shouldBe empty
+    }
+
+  }
+
+  feature("snapshot") {
+
+    scenario("write and read") {
+      val out = new ByteArrayOutputStream()
+      AnalysisSnapshot.write(head, out)
+      val loaded = AnalysisSnapshot.read(new ByteArrayInputStream(out.toByteArray))
+      loaded.numberOfClasses() shouldBe head.numberOfClasses()
+      AnalysisDiff.compare(head, loaded).isEmpty shouldBe true
+      val original = head.getClasses.asScala.find(_.getClassName == "code.pendency.group.BaseTwo").get
+      val copy = loaded.getClasses.asScala.find(_.getClassName == "code.pendency.group.BaseTwo").get
+      copy.getPackageName shouldBe original.getPackageName
+      copy.getSourceFile shouldBe original.getSourceFile
+      copy.getJarName shouldBe original.getJarName
+      copy.getMajorVersion shouldBe original.getMajorVersion
+      copy.getEfferents.asScala.map(_.getClassName) should contain theSameElementsAs original.getEfferents.asScala.map(_.getClassName)
+      copy.getAfferents.asScala.map(_.getClassName) should contain theSameElementsAs original.getAfferents.asScala.map(_.getClassName)
+    }
+
+    scenario("main method and annotations") {
+      val analysis = Codependency.create()
+          .withDirectory(ClassFile("code", "pendency", "reachability").getAbsolutePath)
+          .analyze()
+      val out = new ByteArrayOutputStream()
+      AnalysisSnapshot.write(analysis, out)
+      val loaded = AnalysisSnapshot.read(new ByteArrayInputStream(out.toByteArray)).getClasses.asScala
+      loaded.find(_.getClassName == "code.pendency.reachability.Main").get.hasMainMethod shouldBe true
+      loaded.find(_.getClassName == "code.pendency.reachability.Used").get.hasMainMethod shouldBe false
+      loaded.find(_.getClassName == "code.pendency.reachability.Endpoint").get.getAnnotations.asScala.toSet shouldBe Set("code.pendency.sample.Annotation")
+    }
+
+    scenario("compare with a stored baseline") {
+      val file = File.createTempFile("baseline", ".snapshot")
+      file.deleteOnExit()
+      AnalysisSnapshot.save(base, file)
+      val diff = AnalysisDiff.compare(AnalysisSnapshot.load(file), head)
+      diff.getAddedClasses.asScala.map(_.getClassName) shouldBe Seq("code.pendency.group.sub2.Sub2")
+      diff.getAddedDependencies should have size 3
+    }
+
+    scenario("memory mapped") {
+      val file = File.createTempFile("mapped", ".snapshot")
+      file.deleteOnExit()
+      AnalysisSnapshot.save(head, file)
+      val mapped = AnalysisSnapshot.map(file)
+      mapped.numberOfClasses() shouldBe head.numberOfClasses()
+      AnalysisDiff.compare(head, mapped).isEmpty shouldBe true
+      val original = head.getClasses.asScala.find(_.getClassName == "code.pendency.group.BaseTwo").get
+      val view = mapped.getClasses.asScala.find(_.getClassName == "code.pendency.group.BaseTwo").get
+      view.getPackageName shouldBe original.getPackageName
+      view.getSourceFile shouldBe original.getSourceFile
+      view.getJarName shouldBe original.getJarName
+      view.isAbstract shouldBe original.isAbstract
+      view.getEfferents.asScala.map(_.getClassName) should contain theSameElementsAs original.getEfferents.asScala.map(_.getClassName)
+      view.getAfferents.asScala.map(_.getClassName) should contain theSameElementsAs original.getAfferents.asScala.map(_.getClassName)
+      view.afferentCoupling() shouldBe original.afferentCoupling()
+      mapped.group(Analysis.BY_PACKAGE).asScala.map(_.getName) should contain theSameElementsAs head.group(Analysis.BY_PACKAGE).asScala.map(_.getName)
+      mapped.query().withPrefix("code.pendency.group").count() shouldBe head.query().withPrefix("code.pendency.group").count()
+    }
+
+    scenario("not a snapshot") {
+      intercept[IOException](AnalysisSnapshot.read(new ByteArrayInputStream(Array[Byte](1, 2, 3, 4))))
+    }
+
+  }
+
+}
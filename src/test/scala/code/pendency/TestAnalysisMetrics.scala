@@ -0,0 +1,69 @@
+package code.pendency
+
+import java.io.{File, FileOutputStream}
+import java.lang.management.ManagementFactory
+import java.nio.file.Files
+
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FeatureSpec, Matchers}
+
+@RunWith(classOf[JUnitRunner])
+class TestAnalysisMetrics extends FeatureSpec with Matchers {
+
+  val manager: String = ClassFile("code", "pendency", "manager").getAbsolutePath
+  val jar: String = ClassFile("data", "test.jar").getAbsolutePath
+
+  feature("metrics of an analysis") {
+
+    scenario("classes, bytes and phases") {
+      val metrics = AnalysisMetrics.create()
+      val analysis = Codependency.create().withDirectory(manager).withDirectory(jar).withMetrics(metrics).analyze()
+      metrics.getClassesParsed shouldBe 9
+      metrics.getBytesRead should be > new File(manager, "SimpleClass.class").length()
+      metrics.getPhaseNanos(AnalysisPhase.SCAN) should be > 0L
+      metrics.getPhaseNanos(AnalysisPhase.PARSE) should be > 0L
+      metrics.getPhaseNanos(AnalysisPhase.LINK) should be > 0L
+      metrics.getPhaseNanos(AnalysisPhase.GROUP) shouldBe 0L
+      analysis.group(Analysis.BY_PACKAGE)
+      metrics.getPhaseNanos(AnalysisPhase.GROUP) should be > 0L
+      metrics.getClassesPerSecond should be > 0.0
+      metrics.getErrors shouldBe 0
+    }
+
+    scenario("slowest inputs") {
+      val metrics = AnalysisMetrics.create(2)
+      Codependency.create().withDirectory(manager).withDirectory(jar).withMetrics(metrics).analyze()
+      val slowest = metrics.getSlowestInputs
+      slowest should have size 2
+      slowest(0).split("\t")(1).toLong should be >= slowest(1).split("\t")(1).toLong
+    }
+
+    scenario("errors") {
+      val directory = Files.createTempDirectory("metrics").toFile
+      val broken = new File(directory, "broken.jar")
+      val os = new FileOutputStream(broken)
+      try os.write("not a jar".getBytes("UTF-8")) finally os.close()
+      val metrics = AnalysisMetrics.create()
+      Codependency.create().withDirectory(broken.getAbsolutePath).withMetrics(metrics).analyze()
+      metrics.getErrors shouldBe 1
+      metrics.getLastError should startWith (broken.getPath)
+      metrics.reset()
+      metrics.getErrors shouldBe 0
+    }
+
+    scenario("JMX") {
+      val metrics = AnalysisMetrics.create()
+      Codependency.create().withDirectory(jar).withMetrics(metrics).analyze()
+      val name = metrics.registerMBean("test")
+      try {
+        ManagementFactory.getPlatformMBeanServer.getAttribute(name, "ClassesParsed") shouldBe 5L
+      } finally {
+        metrics.unregisterMBean("test")
+      }
+      ManagementFactory.getPlatformMBeanServer.isRegistered(name) shouldBe false
+    }
+
+  }
+
+}
@@ -0,0 +1,94 @@
+package code.pendency
+
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FeatureSpec, Matchers}
+
+import scala.collection.JavaConverters._
+
+@RunWith(classOf[JUnitRunner])
+class TestAnalysisQuery extends FeatureSpec with Matchers {
+
+  val analysis: Analysis = Codependency.create()
+      .withDirectory(ClassFile("code", "pendency", "sample").getAbsolutePath)
+      .withDirectory(ClassFile("code", "pendency", "group").getAbsolutePath)
+      .withDirectory(ClassFile("data", "test.jar").getAbsolutePath)
+      .analyze()
+
+  feature("filter the classes") {
+
+    scenario("no conditions") {
+      analysis.query().list() should have size analysis.numberOfClasses()
+      analysis.query().count() shouldBe analysis.numberOfClasses()
+    }
+
+    scenario("by prefix") {
+      val names = analysis.query().withPrefix("code.pendency.group").list().asScala.map(_.getClassName)
+      names should contain theSameElementsAs Seq(
+        "code.pendency.group.BaseOne",
+        "code.pendency.group.BaseTwo",
+        "code.pendency.group.sub1.Sub1",
+        "code.pendency.group.sub2.Sub2")
+      analysis.query().withPrefix("not.existing").count() shouldBe 0
+    }
+
+    scenario("by jar name") {
+      val classes = analysis.query().inJar("test.jar").list().asScala
+      classes should not be empty
+      classes.foreach(_.getJarName shouldBe "test.jar")
+      analysis.query().inJar("other.jar").count() shouldBe 0
+    }
+
+    scenario("by major version") {
+      val version = analysis.query().inJar("test.jar").list().asScala.head.getMajorVersion
+      val classes = analysis.query().withMajorVersion(version).list().asScala
+      classes.foreach(_.getMajorVersion shouldBe version)
+      classes.map(_.getJarName) should contain ("test.jar")
+    }
+
+    scenario("interfaces and abstract classes") {
+      val interfaces = analysis.query().withPrefix("code.pendency.sample").interfaces().list().asScala.map(_.getClassName)
+      interfaces should contain ("code.pendency.sample.InterfaceClass")
+      interfaces should not contain "code.pendency.sample.AbstractClass"
+      val abstracts = analysis.query().abstracts().list().asScala.map(_.getClassName)
+      abstracts should contain ("code.pendency.sample.AbstractClass")
+      abstracts should contain ("jdepend.framework.ExampleAbstractClass")
+      analysis.query().inJar("test.jar").abstracts().count() shouldBe 1
+    }
+
+    scenario("by dependencies") {
+      val depending = analysis.query().withPrefix("code.pendency").dependingOn("code.pendency.group.sub").list().asScala
+      depending.map(_.getClassName) should contain theSameElementsAs Seq(
+        "code.pendency.group.BaseOne",
+        "code.pendency.group.BaseTwo",
+        "code.pendency.group.sub2.Sub2")
+      val used = analysis.query().usedBy("code.pendency.group.BaseTwo").list().asScala
+      used.map(_.getClassName) should contain ("code.pendency.group.sub2.Sub2")
+      used.map(_.getClassName) should contain ("code.pendency.group.BaseOne")
+    }
+
+  }
+
+  feature("top classes by coupling") {
+
+    scenario("all the classes") {
+      val top = analysis.query().topByAfferentCoupling(3).asScala
+      top should have size 3
+      top.head.getClassName shouldBe "java.lang.Object"
+      top.map(_.afferentCoupling()) shouldBe top.map(_.afferentCoupling()).sorted.reverse
+    }
+
+    scenario("filtered classes") {
+      val top = analysis.query().withPrefix("code.pendency.group").topByAfferentCoupling(2).asScala
+      top.map(_.getClassName) shouldBe Seq("code.pendency.group.sub1.Sub1", "code.pendency.group.BaseOne")
+      val efferent = analysis.query().withPrefix("code.pendency.group").topByEfferentCoupling(1).asScala
+      efferent.map(_.getClassName) shouldBe Seq("code.pendency.group.BaseTwo")
+    }
+
+    scenario("more than the classes") {
+      analysis.query().withPrefix("code.pendency.group").topByEfferentCoupling(100) should have size 4
+    }
+
+  }
+
+}
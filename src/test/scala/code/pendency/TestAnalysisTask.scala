@@ -0,0 +1,71 @@
+package code.pendency
+
+import java.util.concurrent.{CancellationException, CountDownLatch, TimeUnit}
+import java.util.concurrent.atomic.AtomicInteger
+
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FeatureSpec, Matchers}
+
+@RunWith(classOf[JUnitRunner])
+class TestAnalysisTask extends FeatureSpec with Matchers {
+
+  val codependency: Codependency = Codependency.create()
+    .withDirectory(ClassFile("code", "pendency", "manager").getAbsolutePath)
+    .withDirectory(ClassFile("data", "test.jar").getAbsolutePath)
+
+  class Progress extends ProgressListener {
+    val discovered = new AtomicInteger(-1)
+    val parsed = new AtomicInteger(0)
+    val linked = new AtomicInteger(-1)
+    override def onFilesDiscovered(files: Int): Unit = discovered.set(files)
+    override def onFileParsed(parsed: Int, files: Int): Unit = this.parsed.set(parsed)
+    override def onLinking(classes: Int): Unit = linked.set(classes)
+  }
+
+  feature("asynchronous analysis") {
+
+    scenario("complete with progress") {
+      val progress = new Progress
+      val task = codependency.analyzeAsync(progress)
+      val analysis = task.get(10, TimeUnit.SECONDS)
+      task.isDone shouldBe true
+      task.isPartial shouldBe false
+      progress.discovered.get shouldBe 5
+      progress.parsed.get shouldBe 5
+      progress.linked.get shouldBe 9
+      analysis.numberOfClasses() shouldBe codependency.analyze().numberOfClasses()
+    }
+
+    scenario("deadline") {
+      val progress = new Progress
+      val task = codependency.analyzeAsync(progress, 1, TimeUnit.NANOSECONDS)
+      val analysis = task.get(10, TimeUnit.SECONDS)
+      task.isPartial shouldBe true
+      progress.discovered.get shouldBe 0
+      progress.parsed.get shouldBe 0
+      progress.linked.get shouldBe 0
+      analysis.numberOfClasses() shouldBe 0
+    }
+
+    scenario("cancellation") {
+      val started = new CountDownLatch(1)
+      val release = new CountDownLatch(1)
+      val progress = new Progress {
+        override def onFilesDiscovered(files: Int): Unit = {
+          started.countDown()
+          release.await()
+        }
+      }
+      val task = codependency.analyzeAsync(progress)
+      started.await(10, TimeUnit.SECONDS)
+      task.cancel(false) shouldBe true
+      release.countDown()
+      task.isCancelled shouldBe true
+      task.isDone shouldBe true
+      intercept[CancellationException](task.get())
+    }
+
+  }
+
+}
@@ -0,0 +1,85 @@
+package code.pendency
+
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FeatureSpec, Matchers}
+
+import scala.collection.JavaConverters._
+
+@RunWith(classOf[JUnitRunner])
+class TestArchitectureRules extends FeatureSpec with Matchers {
+
+  val analysis: Analysis = Codependency.create()
+      .withDirectory(ClassFile("code", "pendency", "group").getAbsolutePath)
+      .analyze()
+
+  feature("package patterns") {
+
+    scenario("any package") {
+      val pattern = new PackagePattern("..domain..")
+      pattern.matches("domain") shouldBe true
+      pattern.matches("com.acme.domain") shouldBe true
+      pattern.matches("com.acme.domain.model") shouldBe true
+      pattern.matches("com.acme.subdomain") shouldBe false
+    }
+
+    scenario("prefix and wildcard") {
+      new PackagePattern("com.acme..").matches("com.acme") shouldBe true
+      new PackagePattern("com.acme..").matches("com.acme.api") shouldBe true
+      new PackagePattern("com.acme..").matches("com.acmex") shouldBe false
+      new PackagePattern("com.*.api").matches("com.acme.api") shouldBe true
+      new PackagePattern("com.*.api").matches("com.acme.sub.api") shouldBe false
+      new PackagePattern("com..api").matches("com.acme.sub.api") shouldBe true
+    }
+
+  }
+
+  feature("check the rules") {
+
+    scenario("must not depend on") {
+      val violations = ArchitectureRules.create()
+          .mustNotDependOn("code.pendency.group", "..sub2")
+          .mustNotDependOn("..sub1..", "..sub2..")
+          .check(analysis).asScala
+      violations should have size 1
+      violations.head.getRule shouldBe "code.pendency.group must not depend on ..sub2"
+      violations.head.getDependency.toString shouldBe "code.pendency.group.BaseTwo -> code.pendency.group.sub2.Sub2"
+    }
+
+    scenario("may only depend on") {
+      val rules = ArchitectureRules.create()
+          .mayOnlyDependOn("..sub1", "java..")
+          .mayOnlyDependOn("..sub2", "java..")
+      val violations = rules.check(analysis).asScala
+      violations.map(_.getDependency.toString) shouldBe Seq("code.pendency.group.sub2.Sub2 -> code.pendency.group.sub1.Sub1")
+      violations.map(_.getRule) shouldBe Seq("..sub2 may only depend on [java..]")
+    }
+
+    scenario("many rules on the same dependency") {
+      val violations = ArchitectureRules.create()
+          .mustNotDependOn("..", "java.lang")
+          .mayOnlyDependOn("code..", "code..")
+          .check(analysis).asScala
+      violations.count(_.getDependency.getTarget.getClassName == "java.lang.Object") shouldBe 8
+      violations should have size 8
+    }
+
+    scenario("exposes only the api to other jars") {
+      val classes = List(
+        new JavaClass(0, 50, "com.acme.api.Service", "Service.java", "library.jar", false, true, List("com.acme.impl.Helper").asJava),
+        new JavaClass(0, 50, "com.acme.impl.Helper", "Helper.java", "library.jar", false, false, List[String]().asJava),
+        new JavaClass(0, 50, "com.client.Main", "Main.java", "client.jar", false, false,
+          List("com.acme.api.Service", "com.acme.impl.Helper", "org.other.Unknown").asJava))
+      val violations = ArchitectureRules.create()
+          .exposesOnly("com.acme..", "..api")
+          .check(Codependency.link(classes.asJava)).asScala
+      violations.map(_.getDependency.toString) shouldBe Seq("com.client.Main -> com.acme.impl.Helper")
+    }
+
+    scenario("no rules") {
+      ArchitectureRules.create().check(analysis) shouldBe empty
+    }
+
+  }
+
+}
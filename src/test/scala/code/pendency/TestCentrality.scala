@@ -0,0 +1,98 @@
+package code.pendency
+
+import code.pendency.ClassFile.javaClass
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FeatureSpec, Matchers}
+
+import scala.collection.JavaConverters._
+
+@RunWith(classOf[JUnitRunner])
+class TestCentrality extends FeatureSpec with Matchers {
+
+  // a.A -> b.B -> c.C <- e.F <-> e.E, a.D -> b.B
+  val analysis: Analysis = Codependency.link(List(
+    javaClass("a.A", "b.B"),
+    javaClass("a.D", "b.B"),
+    javaClass("b.B", "c.C"),
+    javaClass("c.C"),
+    javaClass("e.E", "e.F"),
+    javaClass("e.F", "e.E", "c.C")).asJava)
+
+  def byName[N](scores: java.util.Map[JavaClass, N]): Map[String, N] =
+    scores.asScala.map { case (javaClass, score) => javaClass.getClassName -> score }.toMap
+
+  feature("page rank") {
+
+    scenario("the most used class first") {
+      val ranks = Centrality.create().pageRank(analysis)
+      ranks.keySet().iterator().next().getClassName shouldBe "c.C"
+      ranks.values().asScala.map(_.doubleValue).sum shouldBe 1.0 +- 1e-4
+      ranks.asScala.values.toSeq.map(_.doubleValue) shouldBe ranks.asScala.values.toSeq.map(_.doubleValue).sorted.reverse
+    }
+
+    scenario("same ranks with one or more threads") {
+      val single = byName(Centrality.create().withThreads(1).pageRank(analysis))
+      val parallel = byName(Centrality.create().withThreads(4).pageRank(analysis))
+      for ((name, rank) <- single) parallel(name).doubleValue shouldBe rank.doubleValue +- 1e-9
+    }
+
+    scenario("max iterations") {
+      val ranks = byName(Centrality.create().withMaxIterations(1).withTolerance(0).pageRank(analysis))
+      ranks("a.A").doubleValue shouldBe ranks("a.D").doubleValue
+    }
+
+    scenario("groups") {
+      val ranks = Centrality.create().pageRank(analysis, Analysis.BY_PACKAGE)
+      ranks.keySet().iterator().next() shouldBe "c"
+    }
+
+  }
+
+  feature("transitive fan in") {
+
+    scenario("classes") {
+      val fanIn = byName(Centrality.create().transitiveFanIn(analysis))
+      fanIn.mapValues(_.intValue) shouldBe Map("c.C" -> 5, "b.B" -> 2, "e.E" -> 1, "e.F" -> 1, "a.A" -> 0, "a.D" -> 0)
+    }
+
+    scenario("groups") {
+      val fanIn = Centrality.create().transitiveFanIn(analysis, Analysis.BY_PACKAGE).asScala.mapValues(_.intValue).toMap
+      fanIn shouldBe Map("c" -> 3, "b" -> 1, "a" -> 0, "e" -> 0)
+    }
+
+  }
+
+  feature("betweenness") {
+
+    scenario("exact") {
+      val betweenness = byName(Centrality.create().betweenness(analysis)).mapValues(_.doubleValue)
+      betweenness("b.B") shouldBe 2.0
+      betweenness("e.F") shouldBe 1.0
+      betweenness("c.C") shouldBe 0.0
+      betweenness("a.A") shouldBe 0.0
+    }
+
+    scenario("sampled") {
+      val first = byName(Centrality.create().withSamples(3, 42).betweenness(analysis))
+      val second = byName(Centrality.create().withSamples(3, 42).betweenness(analysis))
+      first shouldBe second
+      first should have size 6
+    }
+
+    scenario("same scores with one or more threads") {
+      // Enough classes for many chunks by thread, reusing the arrays of the thread
+      val classes = Codependency.create()
+        .withDirectory(new java.io.File(getClass.getProtectionDomain.getCodeSource.getLocation.toURI).getAbsolutePath)
+        .analyze()
+      val single = byName(Centrality.create().withThreads(1).betweenness(classes))
+      val parallel = byName(Centrality.create().withThreads(3).betweenness(classes))
+      single.values.exists(_.doubleValue > 0) shouldBe true
+      for ((name, score) <- single) parallel(name).doubleValue shouldBe score.doubleValue +- 1e-6
+      byName(Centrality.create().withThreads(3).transitiveFanIn(classes)) shouldBe
+        byName(Centrality.create().withThreads(1).transitiveFanIn(classes))
+    }
+
+  }
+
+}
@@ -0,0 +1,76 @@
+package code.pendency
+
+import code.pendency.ClassFile.annotatedClass
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FeatureSpec, Matchers}
+
+import scala.collection.JavaConverters._
+
+@RunWith(classOf[JUnitRunner])
+class TestChangeImpact extends FeatureSpec with Matchers {
+
+  val analysis: Analysis = Codependency.link(List(
+    annotatedClass("core.Service", Set()),
+    annotatedClass("core.Service$Inner", Set(), "core.Service"),
+    annotatedClass("core.ServiceTest", Set(), "core.Service"),
+    annotatedClass("app.Controller", Set(), "core.Service"),
+    annotatedClass("app.ControllerTest", Set(), "app.Controller"),
+    annotatedClass("checks.Smoke", Set("org.junit.Test"), "app.Controller"),
+    annotatedClass("other.Unrelated", Set()),
+    annotatedClass("other.UnrelatedTest", Set(), "other.Unrelated")).asJava)
+
+  def names(classes: java.util.List[JavaClass]): Set[String] = classes.asScala.map(_.getClassName).toSet
+
+  feature("affected classes") {
+
+    scenario("changed class names") {
+      names(analysis.impact().affectedBy(List("app.Controller").asJava)) shouldBe Set(
+        "app.Controller", "app.ControllerTest", "checks.Smoke")
+    }
+
+    scenario("transitively") {
+      names(analysis.impact().affectedBy(List("core.Service").asJava)) shouldBe Set(
+        "core.Service", "core.Service$Inner", "core.ServiceTest", "app.Controller", "app.ControllerTest", "checks.Smoke")
+    }
+
+    scenario("changed class files") {
+      val impact = analysis.impact()
+      names(impact.affectedBy(List("target/classes/other/Unrelated.class").asJava)) shouldBe Set(
+        "other.Unrelated", "other.UnrelatedTest")
+      names(impact.affectedBy(List("C:\\build\\app\\Controller.class").asJava)) should contain ("app.Controller")
+    }
+
+    scenario("unknown inner class replaced by the outer class") {
+      names(analysis.impact().affectedBy(List("other/Unrelated$1.class").asJava)) should contain ("other.Unrelated")
+    }
+
+    scenario("unknown classes") {
+      analysis.impact().affectedBy(List("does.not.Exist").asJava) shouldBe empty
+    }
+
+  }
+
+  feature("affected tests") {
+
+    val tests = TestClasses.create().withSuffix("Test").annotatedWith("org.junit.Test")
+
+    scenario("by name and annotation") {
+      names(analysis.impact().affectedTests(List("core.Service").asJava, tests)) shouldBe Set(
+        "core.ServiceTest", "app.ControllerTest", "checks.Smoke")
+    }
+
+    scenario("queries reuse the same instance") {
+      val impact = analysis.impact()
+      names(impact.affectedTests(List("other.Unrelated").asJava, tests)) shouldBe Set("other.UnrelatedTest")
+      names(impact.affectedTests(List("app.Controller").asJava, tests)) shouldBe Set("app.ControllerTest", "checks.Smoke")
+    }
+
+    scenario("by prefix") {
+      names(analysis.impact().affectedTests(List("core.Service").asJava, TestClasses.create().withPrefix("checks."))) shouldBe Set(
+        "checks.Smoke")
+    }
+
+  }
+
+}
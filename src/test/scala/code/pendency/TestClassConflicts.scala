@@ -0,0 +1,110 @@
+package code.pendency
+
+import java.io.{File, FileOutputStream}
+import java.nio.file.Files
+import java.util.jar.{JarEntry, JarOutputStream}
+
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FeatureSpec, Matchers}
+
+import scala.collection.JavaConversions._
+
+@RunWith(classOf[JUnitRunner])
+class TestClassConflicts extends FeatureSpec with Matchers {
+
+  val directory: File = Files.createTempDirectory("conflicts").toFile
+
+  def bytes(name: String): Array[Byte] = Files.readAllBytes(ClassFile("code", "pendency", "group", name).toPath)
+
+  // A jar with the class files in the package code.pendency.group.
+  def jar(name: String, classes: (String, Array[Byte])*): String = {
+    val file = new File(directory, name)
+    val os = new JarOutputStream(new FileOutputStream(file))
+    try {
+      for ((entry, content) <- classes) {
+        os.putNextEntry(new JarEntry("code/pendency/group/" + entry))
+        os.write(content)
+        os.closeEntry()
+      }
+    } finally os.close()
+    file.getAbsolutePath
+  }
+
+  val first: String = jar("first.jar", "BaseOne.class" -> bytes("BaseOne.class"), "BaseTwo.class" -> bytes("BaseTwo.class"))
+  val same: String = jar("same.jar", "BaseOne.class" -> bytes("BaseOne.class"))
+  // A byte after the end of the class file is enough to make a different copy
+  val different: String = jar("different.jar", "BaseOne.class" -> bytes("BaseOne.class"), "BaseTwo.class" -> (bytes("BaseTwo.class") :+ 0.toByte))
+  val classes: String = ClassFile().getAbsolutePath
+
+  feature("classes defined more than once") {
+
+    scenario("no conflicts") {
+      Codependency.create().withDirectory(first).analyze().getConflicts shouldBe empty
+    }
+
+    scenario("identical copies") {
+      val conflicts = Codependency.create().withDirectory(first).withDirectory(same).analyze().getConflicts
+      conflicts should have size 1
+      conflicts.head.getClassName shouldBe "code.pendency.group.BaseOne"
+      conflicts.head.getLocations.toSeq shouldBe Seq(first, same)
+      conflicts.head.getAnalyzedLocation shouldBe first
+      conflicts.head.isIdentical shouldBe true
+    }
+
+    scenario("copies in a class directory and in a jar") {
+      val conflicts = Codependency.create()
+        .includes("code.pendency.group.Base")
+        .withDirectory(ClassFile("code", "pendency", "group").getAbsolutePath)
+        .withDirectory(first)
+        .analyze().getConflicts
+      conflicts.map(_.getClassName) shouldBe Seq("code.pendency.group.BaseOne", "code.pendency.group.BaseTwo")
+      conflicts.head.getLocations.toSeq shouldBe Seq(classes, first)
+      conflicts.forall(_.isIdentical) shouldBe true
+    }
+
+    scenario("different copies") {
+      val metrics = AnalysisMetrics.create()
+      val analysis = Codependency.create().withDirectory(first).withDirectory(different).withMetrics(metrics).analyze()
+      val conflicts = analysis.getConflicts
+      conflicts.map(_.getClassName) shouldBe Seq("code.pendency.group.BaseOne", "code.pendency.group.BaseTwo")
+      conflicts.find(_.getClassName == "code.pendency.group.BaseOne").get.isIdentical shouldBe true
+      conflicts.find(_.getClassName == "code.pendency.group.BaseTwo").get.isIdentical shouldBe false
+      conflicts.find(_.getClassName == "code.pendency.group.BaseTwo").get.getVersions shouldBe 2
+    }
+
+    scenario("different copies in class directories") {
+      val copy = Files.createTempDirectory("copy").toFile
+      val file = new File(copy, "code/pendency/group/BaseTwo.class")
+      file.getParentFile.mkdirs()
+      Files.write(file.toPath, bytes("BaseTwo.class") :+ 0.toByte)
+      val conflicts = Codependency.create()
+        .withDirectory(ClassFile("code", "pendency", "group").getAbsolutePath)
+        .withDirectory(copy.getAbsolutePath)
+        .analyze().getConflicts
+      conflicts should have size 1
+      conflicts.head.getLocations.toSeq shouldBe Seq(classes, copy.getAbsolutePath)
+      conflicts.head.isIdentical shouldBe false
+    }
+
+    scenario("the first copy of the classpath is analyzed") {
+      def analyzed(analysis: Analysis): String =
+        analysis.getClasses.find(_.getClassName == "code.pendency.group.BaseTwo").get.getJarName
+      val forward = Codependency.create().withDirectory(first).withDirectory(different).analyze()
+      forward.getConflicts.find(_.getClassName == "code.pendency.group.BaseTwo").get.getLocations.toSeq shouldBe Seq(first, different)
+      analyzed(forward) shouldBe "first.jar"
+      val backward = Codependency.create().withDirectory(different).withDirectory(first).analyze()
+      backward.getConflicts.find(_.getClassName == "code.pendency.group.BaseTwo").get.getAnalyzedLocation shouldBe different
+      analyzed(backward) shouldBe "different.jar"
+      analyzed(Codependency.create().session().analyze(different, first)) shouldBe "different.jar"
+    }
+
+    scenario("conflicts in a session") {
+      val session = Codependency.create().session()
+      session.analyze(first).getConflicts shouldBe empty
+      session.analyze(first, same).getConflicts.map(_.getClassName) shouldBe Seq("code.pendency.group.BaseOne")
+    }
+
+  }
+
+}
@@ -131,6 +131,31 @@ class TestClassFileParser extends FeatureSpec with Matchers {
       efferentNames should contain ("code.pendency.sample.Annotation")
     }
 
+    scenario("Annotation names") {
+      val classFile = ClassFile("code", "pendency", "sample", "ClassWithAnnotation.class")
+      val parser = buildClassFileParser
+      val javaClass = parser.parse(asInputStream(classFile))
+      javaClass.getAnnotations.asScala.toSet shouldBe Set("code.pendency.sample.Annotation")
+      val isolated = parser.parse(asInputStream(ClassFile("code", "pendency", "sample", "IsolatedClass.class")))
+      isolated.getAnnotations shouldBe empty
+    }
+
+  }
+
+  feature("main method") {
+
+    scenario("class with main method") {
+      val classFile = ClassFile("code", "pendency", "reachability", "Main.class")
+      val parser = buildClassFileParser
+      parser.parse(asInputStream(classFile)).hasMainMethod shouldBe true
+    }
+
+    scenario("class without main method") {
+      val classFile = ClassFile("code", "pendency", "sample", "ClassWithMethodAndField.class")
+      val parser = buildClassFileParser
+      parser.parse(asInputStream(classFile)).hasMainMethod shouldBe false
+    }
+
   }
 
   feature("interface") {
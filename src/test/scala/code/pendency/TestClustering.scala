@@ -0,0 +1,83 @@
+package code.pendency
+
+import code.pendency.ClassFile.javaClass
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FeatureSpec, Matchers}
+
+import scala.collection.JavaConverters._
+
+@RunWith(classOf[JUnitRunner])
+class TestClustering extends FeatureSpec with Matchers {
+
+  // Two groups of packages depending on each other, linked by a single dependency.
+  val analysis: Analysis = Codependency.link(List(
+    javaClass("one.a.A", "one.b.B", "one.c.C", "two.x.X"),
+    javaClass("one.a.AA", "one.b.B"),
+    javaClass("one.b.B", "one.c.C"),
+    javaClass("one.c.C", "one.a.A"),
+    javaClass("two.x.X", "two.y.Y", "two.z.Z"),
+    javaClass("two.x.XX", "two.y.Y"),
+    javaClass("two.y.Y", "two.z.Z"),
+    javaClass("two.z.Z", "two.x.X")).asJava)
+
+  def members(clusters: java.util.List[Clustering.Cluster[String]]): Set[Set[String]] =
+    clusters.asScala.map(_.getMembers.asScala.toSet).toSet
+
+  feature("module suggestion") {
+
+    scenario("packages clustered by their dependencies") {
+      val clusters = Clustering.create().suggestModules(analysis)
+      members(clusters) shouldBe Set(Set("one.a", "one.b", "one.c"), Set("two.x", "two.y", "two.z"))
+    }
+
+    scenario("edges between the clusters") {
+      val clusters = Clustering.create().suggestModules(analysis).asScala
+      val one = clusters.find(_.getMembers.contains("one.a")).get
+      val two = clusters.find(_.getMembers.contains("two.x")).get
+      one.getEdgesTo(two) shouldBe 1
+      two.getEdgesTo(one) shouldBe 0
+      one.getOutgoingEdges shouldBe 1
+      two.getIncomingEdges shouldBe 1
+      one.getInternalEdges shouldBe 5
+      two.getInternalEdges shouldBe 5
+    }
+
+    scenario("same clusters with one or more threads") {
+      members(Clustering.create().withThreads(1).suggestModules(analysis)) shouldBe
+        members(Clustering.create().withThreads(8).suggestModules(analysis))
+    }
+
+    scenario("no passes") {
+      Clustering.create().withMaxPasses(0).suggestModules(analysis) should have size 6
+    }
+
+    scenario("clusters of jars") {
+      val clusters = Clustering.create().cluster(analysis, Analysis.BY_JAR).asScala
+      clusters.map(_.getMembers.asScala.toSet).toSet shouldBe Set(Set("library.jar"))
+    }
+
+    scenario("only the packages with parsed classes") {
+      val analysis = Codependency.create().withDirectory(ClassFile().getAbsolutePath).analyze()
+      val parsed = analysis.getClasses.asScala.filterNot(_.isReferenceOnly).map(_.getPackageName).toSet
+      val clustered = Clustering.create().suggestModules(analysis).asScala.flatMap(_.getMembers.asScala)
+      clustered should contain theSameElementsAs parsed
+      clustered should not contain "java.lang"
+      val all = Clustering.create().includesExternalGroups().suggestModules(analysis).asScala.flatMap(_.getMembers.asScala)
+      all should contain ("java.lang")
+      all.size should be > clustered.size
+    }
+
+    scenario("external packages don't merge the packages of a library") {
+      val jar = new java.io.File(classOf[FeatureSpec].getProtectionDomain.getCodeSource.getLocation.toURI)
+      val analysis = Codependency.create().withDirectory(jar.getAbsolutePath).analyze()
+      val packages = analysis.getClasses.asScala.filterNot(_.isReferenceOnly).map(_.getPackageName).toSet
+      val clusters = Clustering.create().suggestModules(analysis).asScala
+      clusters.flatMap(_.getMembers.asScala).toSet shouldBe packages
+      clusters.size should be > 5
+      clusters.head.getMembers.size should be < packages.size * 2 / 3
+    }
+
+  }
+
+}
@@ -0,0 +1,151 @@
+package code.pendency
+
+import java.io.InputStream
+import java.util
+
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FeatureSpec, Matchers}
+
+import scala.collection.JavaConverters._
+
+@RunWith(classOf[JUnitRunner])
+class TestCodeUsages extends FeatureSpec with Matchers {
+
+  val directory: String = ClassFile("code", "pendency", "usage").getAbsolutePath
+
+  val usages: Analysis = Codependency.create().withDirectory(directory)
+    .withDependencyKinds(DependencyKind.INVOKE, DependencyKind.INSTANTIATE, DependencyKind.CAST, DependencyKind.FIELD_ACCESS)
+    .analyze()
+
+  def classOf(analysis: Analysis, name: String): JavaClass =
+    analysis.getClasses.asScala.find(_.getClassName == name).get
+
+  def names(classes: util.Collection[JavaClass]): Set[String] = classes.asScala.map(_.getClassName).toSet
+
+  def kinds(javaClass: JavaClass, efferent: String): Set[DependencyKind] =
+    javaClass.getDependencyKinds(javaClass.getEfferents.asScala.find(_.getClassName == efferent).get).asScala.toSet
+
+  def jdkClass(parser: ClassFileParser, name: String): JavaClass = {
+    val is: InputStream = ClassLoader.getSystemResourceAsStream(name.replace('.', '/') + ".class")
+    try parser.parse(is) finally is.close()
+  }
+
+  feature("usages in the method bodies") {
+
+    scenario("kinds of the usages") {
+      val javaClass = classOf(usages, "code.pendency.usage.ClassWithCode")
+      kinds(javaClass, "java.lang.StringBuilder") shouldBe Set(DependencyKind.INSTANTIATE, DependencyKind.INVOKE)
+      kinds(javaClass, "java.lang.Math") shouldBe Set(DependencyKind.INVOKE)
+      kinds(javaClass, "java.lang.Number") shouldBe Set(DependencyKind.CAST)
+      kinds(javaClass, "java.lang.Comparable") should contain (DependencyKind.CAST)
+      kinds(javaClass, "java.util.concurrent.TimeUnit") shouldBe Set(DependencyKind.FIELD_ACCESS)
+      kinds(javaClass, "java.lang.Thread") shouldBe Set(DependencyKind.INSTANTIATE)
+    }
+
+    scenario("types only in the signatures are not used") {
+      val javaClass = classOf(usages, "code.pendency.usage.ClassWithCode")
+      names(javaClass.getEfferents) should not contain "java.lang.String"
+      names(javaClass.getEfferentsOfKind(DependencyKind.FIELD_ACCESS)) shouldBe Set("java.util.concurrent.TimeUnit")
+    }
+
+    scenario("the method bodies are not scanned by default") {
+      val analysis = Codependency.create().withDirectory(directory).analyze()
+      val javaClass = classOf(analysis, "code.pendency.usage.ClassWithCode")
+      kinds(javaClass, "java.lang.Math") shouldBe Set(DependencyKind.CONSTANT)
+    }
+
+    scenario("declared and usage kinds together") {
+      val analysis = Codependency.create().withDirectory(directory).withUsages().analyze()
+      val javaClass = classOf(analysis, "code.pendency.usage.ClassWithCode")
+      kinds(javaClass, "java.lang.Math") shouldBe Set(DependencyKind.CONSTANT, DependencyKind.INVOKE)
+      kinds(javaClass, "java.lang.StringBuilder") shouldBe Set(DependencyKind.CONSTANT, DependencyKind.INSTANTIATE, DependencyKind.INVOKE)
+    }
+
+    scenario("bootstrap methods of the lambdas") {
+      val filter = new Filter(true, List[String]().asJava, List[String]().asJava)
+      val parser = new ClassFileParser(filter, List[ParserListener]().asJava, util.EnumSet.of(DependencyKind.BOOTSTRAP))
+      val javaClass = jdkClass(parser, "java.util.stream.Collectors")
+      javaClass.getEfferentIds.asScala should contain allOf ("java.lang.invoke.LambdaMetafactory", "java.util.ArrayList")
+    }
+
+    scenario("instructions with a variable length") {
+      val filter = new Filter(true, List[String]().asJava, List[String]().asJava)
+      val parser = new ClassFileParser(filter, List[ParserListener]().asJava, DependencyKind.USAGES)
+      val javaClass = jdkClass(parser, "java.util.regex.Pattern")
+      javaClass.getEfferentIds.asScala should contain ("java.lang.Character")
+    }
+
+    // A class with a static method m()V with the given code.
+    def classWithCode(code: Int*): java.io.InputStream = {
+      val bytes = new java.io.ByteArrayOutputStream()
+      val out = new java.io.DataOutputStream(bytes)
+      out.writeInt(0xCAFEBABE)
+      out.writeShort(0)
+      out.writeShort(50)
+      out.writeShort(8)
+      for ((value, index) <- Seq("Bad", "java/lang/Object", "m", "()V", "Code").zipWithIndex) {
+        out.writeByte(1)
+        out.writeUTF(value)
+        if (index < 2) {
+          out.writeByte(7)
+          out.writeShort(index * 2 + 1)
+        }
+      }
+      out.writeShort(0x0021)
+      out.writeShort(2)
+      out.writeShort(4)
+      out.writeShort(0)
+      out.writeShort(0)
+      out.writeShort(1)
+      out.writeShort(0x0009)
+      out.writeShort(5)
+      out.writeShort(6)
+      out.writeShort(1)
+      out.writeShort(7)
+      out.writeInt(12 + code.size)
+      out.writeShort(1)
+      out.writeShort(0)
+      out.writeInt(code.size)
+      code.foreach(out.writeByte)
+      out.writeShort(0)
+      out.writeShort(0)
+      out.writeShort(0)
+      new java.io.ByteArrayInputStream(bytes.toByteArray)
+    }
+
+    scenario("malformed switches") {
+      val filter = new Filter(true, List[String]().asJava, List[String]().asJava)
+      val parser = new ClassFileParser(filter, List[ParserListener]().asJava, DependencyKind.USAGES)
+      def int(value: Int) = Seq(value >>> 24, value >>> 16, value >>> 8, value).map(_ & 0xFF)
+      // tableswitch with high < low, a length of 0 would never advance
+      val tableswitch = Seq(0xaa, 0, 0, 0) ++ int(0) ++ int(0) ++ int(-5)
+      the [java.io.IOException] thrownBy parser.parse(classWithCode(tableswitch: _*)) should have message
+        "Invalid Code attribute: instruction length 0 at 0"
+      // lookupswitch with negative pairs, going backwards
+      val lookupswitch = Seq(0xab, 0, 0, 0) ++ int(0) ++ int(-2)
+      the [java.io.IOException] thrownBy parser.parse(classWithCode(lookupswitch: _*)) should have message
+        "Invalid Code attribute: instruction length -4 at 0"
+      // tableswitch past the end of the code
+      val overflow = Seq(0xaa, 0, 0, 0) ++ int(0) ++ int(Int.MinValue) ++ int(Int.MaxValue)
+      an [java.io.IOException] should be thrownBy parser.parse(classWithCode(overflow: _*))
+    }
+
+  }
+
+  feature("kinds stored in the snapshot") {
+
+    scenario("usage kinds are kept") {
+      val file = java.io.File.createTempFile("usages", ".snapshot")
+      file.deleteOnExit()
+      AnalysisSnapshot.save(usages, file)
+      Seq(AnalysisSnapshot.load(file), AnalysisSnapshot.map(file)).foreach { analysis =>
+        val javaClass = classOf(analysis, "code.pendency.usage.ClassWithCode")
+        kinds(javaClass, "java.lang.StringBuilder") shouldBe Set(DependencyKind.INSTANTIATE, DependencyKind.INVOKE)
+        kinds(javaClass, "java.util.concurrent.TimeUnit") shouldBe Set(DependencyKind.FIELD_ACCESS)
+      }
+    }
+
+  }
+
+}
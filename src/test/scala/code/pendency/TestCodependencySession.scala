@@ -0,0 +1,59 @@
+package code.pendency
+
+import java.util.concurrent.atomic.AtomicInteger
+
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FeatureSpec, Matchers}
+
+import scala.collection.JavaConversions._
+
+@RunWith(classOf[JUnitRunner])
+class TestCodependencySession extends FeatureSpec with Matchers {
+
+  val group: String = ClassFile("code", "pendency", "group").getAbsolutePath
+  val manager: String = ClassFile("code", "pendency", "manager").getAbsolutePath
+  val sample: String = ClassFile("code", "pendency", "sample").getAbsolutePath
+  val jar: String = ClassFile("data", "test.jar").getAbsolutePath
+
+  feature("modules sharing the same directories and archives") {
+
+    scenario("every directory is parsed once") {
+      val parsed = new AtomicInteger()
+      val session = Codependency.create().withListener(new ParserListener {
+        override def onParsedJavaClass(parsedClass: JavaClass): Unit = parsed.incrementAndGet()
+      }).session()
+      session.analyze(group, manager, jar)
+      val classes = parsed.get()
+      session.analyze(group, sample, jar)
+      session.analyze(group, manager)
+      session.getParsedInputs shouldBe 4
+      session.getCachedInputs shouldBe 4
+      parsed.get() should be > classes
+      val again = parsed.get()
+      session.analyze(group, manager, sample, jar)
+      parsed.get() shouldBe again
+    }
+
+    scenario("every module has its own analysis") {
+      val session = Codependency.create().session()
+      val first = session.analyze(group, manager)
+      val second = session.analyze(group, sample)
+      first.query().withPrefix("code.pendency.manager").count() shouldBe 4
+      first.query().withPrefix("code.pendency.sample").count() shouldBe 0
+      second.query().withPrefix("code.pendency.manager").count() shouldBe 0
+      second.query().withPrefix("code.pendency.sample").count() should be > 0
+    }
+
+    scenario("same result of a single analysis") {
+      val codependency = Codependency.create().excludesInnerClasses()
+      val analysis = codependency.withDirectory(group).withDirectory(jar).analyze()
+      val shared = codependency.session().analyze(group, jar)
+      shared.getClasses.map(_.getClassName).toSet shouldBe analysis.getClasses.map(_.getClassName).toSet
+      val baseOne = shared.graph().id("code.pendency.group.BaseOne")
+      shared.graph().afferentCoupling(baseOne) shouldBe analysis.graph().afferentCoupling(analysis.graph().id("code.pendency.group.BaseOne"))
+    }
+
+  }
+
+}
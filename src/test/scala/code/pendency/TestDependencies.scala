@@ -1,5 +1,7 @@
 package code.pendency
 
+import java.io.File
+
 import code.pendency.dependencies.{DependOnSimpleClass, SimpleClass}
 import code.pendency.dependencies.SimpleClass
 import org.junit.runner.RunWith
@@ -148,6 +150,49 @@ class TestDependencies extends FeatureSpec with Matchers {
     javaObject.getEfferents should have size 0
   }
 
+  feature("linked classes") {
+
+    scenario("the efferents are the linked classes of the analysis") {
+      val analysis = Codependency.create().withDirectory(ClassFile("code", "pendency", "group").getAbsolutePath).analyze()
+      val classes = analysis.getClasses.asScala
+      val baseTwo = classes.find(_.getClassName == "code.pendency.group.BaseTwo").get
+      val baseOne = baseTwo.getEfferents.asScala.find(_.getClassName == "code.pendency.group.BaseOne").get
+      classes.exists(_ eq baseOne) shouldBe true
+      baseOne.getAfferents.asScala.exists(_ eq baseTwo) shouldBe true
+      baseOne.getEfferents.asScala.head.getAfferents should not be empty
+    }
+
+    scenario("the names repeated by the classes are shared") {
+      val analysis = Codependency.create().withDirectory(ClassFile("code", "pendency", "group").getAbsolutePath).analyze()
+      val classes = analysis.getClasses.asScala.filter(_.getPackageName == "code.pendency.group").toList
+      classes.size should be > 1
+      classes.forall(_.getPackageName eq classes.head.getPackageName) shouldBe true
+      classes.forall(_.getJarName eq classes.head.getJarName) shouldBe true
+    }
+
+    scenario("the small and the large dependency sets") {
+      val synthetic = SyntheticClasses(classes = 100, packages = 2, density = 30)
+      val directory = new File(System.getProperty("user.dir"), "target" + File.separator + "synthetic" + File.separator + "dense")
+      val analysis = Codependency.create().withDirectory(synthetic.writeDirectory(directory).getAbsolutePath).analyze()
+      val byName = analysis.getClasses.asScala.map(javaClass => javaClass.getClassName -> javaClass).toMap
+      val javaObject = byName("java.lang.Object")
+      for (id <- 0 until 100) {
+        val javaClass = byName(synthetic.className(id))
+        val efferents = javaClass.getEfferents
+        val names = synthetic.dependencies(id).map(synthetic.className).toSet + "java.lang.Object"
+        efferents.size shouldBe names.size
+        efferents.asScala.map(_.getClassName).toSet shouldBe names
+        names.forall(name => efferents.contains(byName(name))) shouldBe true
+        efferents.contains(javaClass) shouldBe false
+        efferents shouldBe new java.util.HashSet(efferents)
+        javaObject.getAfferents.contains(javaClass) shouldBe true
+      }
+      javaObject.getAfferents should have size 100
+      javaObject.getAfferents should be theSameInstanceAs javaObject.getAfferents
+    }
+
+  }
+
   feature("test the equality of a dependency") {
 
     scenario("same object") {
@@ -0,0 +1,97 @@
+package code.pendency
+
+import java.io.{ByteArrayInputStream, ByteArrayOutputStream}
+import java.util
+
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FeatureSpec, Matchers}
+
+import scala.collection.JavaConverters._
+
+@RunWith(classOf[JUnitRunner])
+class TestDependencyKinds extends FeatureSpec with Matchers {
+
+  val directory: String = ClassFile("code", "pendency", "sample").getAbsolutePath
+
+  def classOf(analysis: Analysis, name: String): JavaClass =
+    analysis.getClasses.asScala.find(_.getClassName == name).get
+
+  def names(classes: util.Collection[JavaClass]): Set[String] = classes.asScala.map(_.getClassName).toSet
+
+  feature("parse only some kinds") {
+
+    scenario("inheritance only") {
+      val analysis = Codependency.create().withDirectory(directory)
+        .withDependencyKinds(DependencyKind.SUPERCLASS, DependencyKind.INTERFACE)
+        .analyze()
+      names(classOf(analysis, "code.pendency.sample.ClassWithInterface").getEfferents) shouldBe Set(
+        "java.lang.Object", "code.pendency.sample.InterfaceClass")
+      names(classOf(analysis, "code.pendency.sample.ClassWithMethodAndField").getEfferents) shouldBe Set("java.lang.Object")
+    }
+
+    scenario("annotations only") {
+      val analysis = Codependency.create().withDirectory(directory)
+        .withDependencyKinds(DependencyKind.ANNOTATION)
+        .analyze()
+      val javaClass = classOf(analysis, "code.pendency.sample.ClassWithAnnotation")
+      names(javaClass.getEfferents) shouldBe Set("code.pendency.sample.Annotation", "java.lang.String")
+      javaClass.getAnnotations.asScala.toSet shouldBe Set("code.pendency.sample.Annotation")
+    }
+
+    scenario("annotation names without the annotation kind") {
+      val analysis = Codependency.create().withDirectory(directory)
+        .withDependencyKinds(DependencyKind.SUPERCLASS)
+        .analyze()
+      val javaClass = classOf(analysis, "code.pendency.sample.ClassWithAnnotation")
+      javaClass.getAnnotations.asScala.toSet shouldBe Set("code.pendency.sample.Annotation")
+      names(javaClass.getEfferents) shouldBe Set("java.lang.Object")
+    }
+
+    scenario("same annotation names with the values skipped") {
+      // The test classes have annotations with values of every tag (e.g. RunWith, ScalaSignature), only the parsed
+      // classes are compared: the annotation dependencies add the annotations as classes
+      val testClasses = new java.io.File(getClass.getProtectionDomain.getCodeSource.getLocation.toURI).getAbsolutePath
+      def annotations(first: DependencyKind, others: DependencyKind*): Map[String, Set[String]] =
+        Codependency.create().withDirectory(testClasses).withDependencyKinds(first, others: _*).analyze()
+          .getClasses.asScala.filter(_.getClassName.startsWith("code.pendency."))
+          .map(javaClass => javaClass.getClassName -> javaClass.getAnnotations.asScala.toSet).toMap
+      val decoded = annotations(DependencyKind.SUPERCLASS, DependencyKind.ANNOTATION)
+      decoded.values.exists(_.contains("org.junit.runner.RunWith")) shouldBe true
+      annotations(DependencyKind.SUPERCLASS) shouldBe decoded
+    }
+
+  }
+
+  feature("kinds of the edges") {
+
+    val analysis = Codependency.create().withDirectory(directory).analyze()
+
+    scenario("field and method types") {
+      val javaClass = classOf(analysis, "code.pendency.sample.ClassWithMethodAndField")
+      val integer = javaClass.getEfferents.asScala.find(_.getClassName == "java.lang.Integer").get
+      javaClass.getDependencyKinds(integer).asScala should contain (DependencyKind.FIELD)
+      val string = javaClass.getEfferents.asScala.find(_.getClassName == "java.lang.String").get
+      javaClass.getDependencyKinds(string).asScala should contain (DependencyKind.METHOD)
+      javaClass.getDependencyKinds(string).asScala should not contain DependencyKind.FIELD
+      names(javaClass.getEfferentsOfKind(DependencyKind.SUPERCLASS)) shouldBe Set("java.lang.Object")
+    }
+
+    scenario("filter an analysis") {
+      val inheritance = analysis.withDependencyKinds(DependencyKind.SUPERCLASS, DependencyKind.INTERFACE)
+      names(classOf(inheritance, "code.pendency.sample.ClassWithInterface").getEfferents) shouldBe Set(
+        "java.lang.Object", "code.pendency.sample.InterfaceClass")
+      inheritance.getClasses.asScala.map(_.getClassName) should not contain "java.lang.Integer"
+    }
+
+    scenario("kinds are stored in the snapshot") {
+      val os = new ByteArrayOutputStream()
+      AnalysisSnapshot.write(analysis, os)
+      val loaded = AnalysisSnapshot.read(new ByteArrayInputStream(os.toByteArray))
+      val javaClass = classOf(loaded, "code.pendency.sample.ClassWithInterface")
+      names(javaClass.getEfferentsOfKind(DependencyKind.INTERFACE)) shouldBe Set("code.pendency.sample.InterfaceClass")
+    }
+
+  }
+
+}
@@ -0,0 +1,80 @@
+package code.pendency
+
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FeatureSpec, Matchers}
+
+import scala.collection.JavaConverters._
+
+@RunWith(classOf[JUnitRunner])
+class TestDependencyPaths extends FeatureSpec with Matchers {
+
+  val analysis: Analysis = Codependency.create()
+      .withDirectory(ClassFile("code", "pendency", "group").getAbsolutePath)
+      .analyze()
+
+  val baseOne = "code.pendency.group.BaseOne"
+  val baseTwo = "code.pendency.group.BaseTwo"
+  val sub1 = "code.pendency.group.sub1.Sub1"
+  val sub2 = "code.pendency.group.sub2.Sub2"
+
+  def names(path: java.util.List[JavaClass]): Seq[String] = path.asScala.map(_.getClassName)
+
+  feature("shortest path between classes") {
+
+    scenario("direct dependency") {
+      names(analysis.paths().shortestPath(baseOne, sub1)) shouldBe Seq(baseOne, sub1)
+    }
+
+    scenario("transitive dependency") {
+      val path = names(analysis.paths().shortestPath(baseTwo, sub1))
+      path should have size 3
+      path.head shouldBe baseTwo
+      path.last shouldBe sub1
+    }
+
+    scenario("no dependency") {
+      analysis.paths().shortestPath(sub1, baseTwo) shouldBe empty
+      analysis.paths().shortestPath("not.Existing", sub1) shouldBe empty
+    }
+
+    scenario("same class") {
+      names(analysis.paths().shortestPath(sub1, sub1)) shouldBe Seq(sub1)
+    }
+
+  }
+
+  feature("k shortest paths") {
+
+    scenario("all the paths") {
+      val paths = analysis.paths().shortestPaths(baseTwo, sub1, 5).asScala.map(names)
+      paths should contain theSameElementsAs Seq(Seq(baseTwo, baseOne, sub1), Seq(baseTwo, sub2, sub1))
+    }
+
+    scenario("sorted by length") {
+      val paths = analysis.paths().shortestPaths(baseTwo, "java.lang.Object", 10).asScala.map(names)
+      paths.head shouldBe Seq(baseTwo, "java.lang.Object")
+      paths.map(_.size) shouldBe paths.map(_.size).sorted
+      paths should have size 5
+    }
+
+  }
+
+  feature("shortest path between groups") {
+
+    scenario("packages") {
+      val paths = analysis.paths()
+      names(paths.shortestPath(Analysis.BY_PACKAGE, "code.pendency.group", "code.pendency.group.sub1")) shouldBe Seq(baseOne, sub1)
+      paths.shortestPath(Analysis.BY_PACKAGE, "code.pendency.group.sub1", "code.pendency.group") shouldBe empty
+      paths.shortestPath(Analysis.BY_PACKAGE, "not.existing", "code.pendency.group") shouldBe empty
+    }
+
+    scenario("k paths between packages") {
+      val paths = analysis.paths().shortestPaths(Analysis.BY_PACKAGE, "code.pendency.group", "code.pendency.group.sub1", 3).asScala.map(names)
+      paths should contain theSameElementsAs Seq(Seq(baseOne, sub1), Seq(baseTwo, baseOne, sub1), Seq(baseTwo, sub2, sub1))
+      paths.head shouldBe Seq(baseOne, sub1)
+    }
+
+  }
+
+}
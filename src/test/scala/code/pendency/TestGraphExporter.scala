@@ -0,0 +1,116 @@
+package code.pendency
+
+import java.io.{ByteArrayInputStream, ByteArrayOutputStream}
+import java.util.zip.GZIPInputStream
+import javax.xml.parsers.DocumentBuilderFactory
+
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FeatureSpec, Matchers}
+
+import scala.collection.JavaConverters._
+import scala.io.Source
+
+@RunWith(classOf[JUnitRunner])
+class TestGraphExporter extends FeatureSpec with Matchers {
+
+  val analysis: Analysis = Codependency.create()
+      .withDirectory(ClassFile("code", "pendency", "group").getAbsolutePath)
+      .analyze()
+
+  def export(format: GraphExporter.Format): String = {
+    val out = new ByteArrayOutputStream()
+    GraphExporter.create(format).export(analysis, out)
+    new String(out.toByteArray, "UTF-8")
+  }
+
+  def parseXml(content: String) =
+    DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(content.getBytes("UTF-8")))
+
+  feature("export the classes") {
+
+    scenario("GEXF") {
+      val document = parseXml(export(GraphExporter.Format.GEXF))
+      document.getElementsByTagName("node").getLength shouldBe 5
+      document.getElementsByTagName("edge").getLength shouldBe 8
+    }
+
+    scenario("GraphML") {
+      val document = parseXml(export(GraphExporter.Format.GRAPHML))
+      document.getElementsByTagName("node").getLength shouldBe 5
+      document.getElementsByTagName("edge").getLength shouldBe 8
+    }
+
+    scenario("DOT") {
+      val content = export(GraphExporter.Format.DOT)
+      content should startWith ("digraph")
+      content should include ("\"code.pendency.group.BaseOne\" -> \"code.pendency.group.sub1.Sub1\"")
+      content.split("\n").count(_.contains("->")) shouldBe 8
+    }
+
+    scenario("CSV") {
+      val lines = export(GraphExporter.Format.CSV).split("\n")
+      lines.head shouldBe "source,target,weight"
+      lines.tail should have size 8
+      lines should contain ("code.pendency.group.sub2.Sub2,code.pendency.group.sub1.Sub1,1")
+    }
+
+    scenario("compressed") {
+      val out = new ByteArrayOutputStream()
+      GraphExporter.create(GraphExporter.Format.CSV).compressed().export(analysis, out)
+      val content = Source.fromInputStream(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray)), "UTF-8").mkString
+      content shouldBe export(GraphExporter.Format.CSV)
+    }
+
+  }
+
+  feature("export the groups") {
+
+    scenario("packages") {
+      val out = new ByteArrayOutputStream()
+      GraphExporter.create(GraphExporter.Format.GEXF).export(analysis, Analysis.BY_PACKAGE, out)
+      val document = parseXml(new String(out.toByteArray, "UTF-8"))
+      document.getElementsByTagName("node").getLength shouldBe 4
+      document.getElementsByTagName("edge").getLength shouldBe 6
+    }
+
+    scenario("weighted by the class dependencies") {
+      val out = new ByteArrayOutputStream()
+      GraphExporter.create(GraphExporter.Format.CSV).export(analysis, Analysis.BY_PACKAGE, out)
+      val lines = new String(out.toByteArray, "UTF-8").split("\n").tail
+      val weights = for {
+        group <- analysis.group(Analysis.BY_PACKAGE).asScala
+        dependency <- group.getEfferentDependencies.asScala
+      } yield s"${dependency.getSource},${dependency.getTarget},${dependency.getClassDependencies}"
+      lines.toSet shouldBe weights.toSet
+      weights.exists(!_.endsWith(",1")) shouldBe true
+    }
+
+    scenario("the output is closed after a failure") {
+      var flushed = false
+      val out = new ByteArrayOutputStream() {
+        override def flush(): Unit = flushed = true
+      }
+      val failing = new Analysis.GroupById[String] {
+        def extract(javaClass: JavaClass): String = throw new IllegalStateException("failing group")
+      }
+      val analysis = Codependency.create().withDirectory(ClassFile("code", "pendency", "group").getAbsolutePath).analyze()
+      the [IllegalStateException] thrownBy {
+        GraphExporter.create(GraphExporter.Format.GEXF).compressed().export(analysis, failing, out)
+      } should have message "failing group"
+      flushed shouldBe true
+    }
+
+    scenario("escaped names") {
+      val out = new ByteArrayOutputStream()
+      val extractor = new Analysis.GroupById[String] {
+        def extract(javaClass: JavaClass): String = "<" + javaClass.getPackageName + "> & \"'"
+      }
+      GraphExporter.create(GraphExporter.Format.GRAPHML).export(analysis, extractor, out)
+      val document = parseXml(new String(out.toByteArray, "UTF-8"))
+      document.getElementsByTagName("node").item(0).getAttributes.getNamedItem("id").getNodeValue should startWith ("<")
+    }
+
+  }
+
+}
@@ -37,6 +37,170 @@ class TestGroupBy extends FeatureSpec with Matchers {
       sub2.getCount shouldBe 1
     }
 
+    scenario("the groups are computed once") {
+      val analysis = Codependency.create().withDirectory(ClassFile("code", "pendency", "group").getAbsolutePath).analyze()
+      analysis.group(Analysis.BY_PACKAGE) should be theSameInstanceAs analysis.group(Analysis.BY_PACKAGE)
+      analysis.group(Analysis.BY_JAR) should not be theSameInstanceAs (analysis.group(Analysis.BY_PACKAGE))
+    }
+
+    scenario("the afferents are computed once by many threads") {
+      val analysis = Codependency.create().withDirectory(ClassFile("code", "pendency", "group").getAbsolutePath).analyze()
+      val classes = analysis.getClasses.asScala.toList
+      val couplings = (1 to 8).par.map(_ => classes.map(_.afferentCoupling())).toList
+      couplings.distinct should have size 1
+      couplings.head.sum shouldBe classes.map(_.efferentCoupling()).sum
+    }
+
+  }
+
+  feature("weighted group dependencies") {
+
+    scenario("number of class dependencies") {
+      val analysis = Codependency.create().withDirectory(ClassFile("code", "pendency", "group").getAbsolutePath).analyze()
+      val groupBy = analysis.group(Analysis.BY_PACKAGE).asScala
+      val parent = groupBy.find(_.getName == "code.pendency.group").get
+      val dependencies = parent.getEfferentDependencies.asScala.map(d => d.getTarget -> d.getClassDependencies).toMap
+      dependencies.keySet shouldBe parent.getEfferents.asScala.map(_.getName).toSet
+      val classDependencies = analysis.getClasses.asScala.filter(_.getPackageName == "code.pendency.group")
+        .flatMap(_.getEfferents.asScala).count(_.getPackageName != "code.pendency.group")
+      dependencies.values.sum shouldBe classDependencies
+      val javaLang = groupBy.find(_.getName == "java.lang").get
+      javaLang.getAfferentDependencies.asScala.map(_.getSource).toSet shouldBe javaLang.getAfferents.asScala.map(_.getName).toSet
+      javaLang.getAfferentDependencies.asScala.find(_.getSource == "code.pendency.group").get shouldBe
+        parent.getEfferentDependencies.asScala.find(_.getTarget == "java.lang").get
+    }
+
+    scenario("number of source and target classes") {
+      val analysis = Codependency.create()
+        .withDirectory(ClassFile("code", "pendency", "group").getAbsolutePath)
+        .withDirectory(ClassFile("code", "pendency", "sample").getAbsolutePath)
+        .analyze()
+      val edges = for {
+        source <- analysis.getClasses.asScala.toList
+        target <- source.getEfferents.asScala if target.getPackageName != source.getPackageName
+      } yield (source, target)
+      for (group <- analysis.group(Analysis.BY_PACKAGE).asScala; dependency <- group.getEfferentDependencies.asScala) {
+        val between = edges.filter { case (source, target) =>
+          source.getPackageName == dependency.getSource && target.getPackageName == dependency.getTarget
+        }
+        dependency.getClassDependencies shouldBe between.size
+        dependency.getSourceClasses shouldBe between.map(_._1.getClassName).distinct.size
+        dependency.getTargetClasses shouldBe between.map(_._2.getClassName).distinct.size
+      }
+      val parent = analysis.group(Analysis.BY_PACKAGE).asScala.find(_.getName == "code.pendency.group").get
+      val javaLang = parent.getEfferentDependencies.asScala.find(_.getTarget == "java.lang").get
+      javaLang.getSourceClasses shouldBe 2
+      javaLang.getTargetClasses shouldBe 1
+    }
+
+    scenario("same weights of the loaded and mapped snapshots") {
+      val analysis = Codependency.create().withDirectory(ClassFile().getAbsolutePath).analyze()
+      val file = java.io.File.createTempFile("weights", ".snapshot")
+      file.deleteOnExit()
+      AnalysisSnapshot.save(analysis, file)
+      def weights(analysis: Analysis) = analysis.group(Analysis.BY_PACKAGE).asScala.flatMap(_.getEfferentDependencies.asScala)
+        .map(d => (d.getSource, d.getTarget, d.getClassDependencies, d.getSourceClasses, d.getTargetClasses)).toSet
+      val expected = weights(analysis)
+      expected.exists(d => d._5 < d._3) shouldBe true
+      weights(AnalysisSnapshot.load(file)) shouldBe expected
+      weights(AnalysisSnapshot.map(file)) shouldBe expected
+    }
+
+  }
+
+  feature("aggregate while parsing") {
+
+    def summary(groups: java.util.Collection[Analysis.GroupByItem[String]]) = groups.asScala.map { group =>
+      (group.getName, group.getCount, group.getAbstractCount, group.getEfferents.asScala.map(_.getName).toSet,
+        group.getAfferents.asScala.map(_.getName).toSet,
+        group.getEfferentDependencies.asScala.map(d => (d.getTarget, d.getClassDependencies, d.getSourceClasses,
+          d.getTargetClasses)).toSet)
+    }.toSet
+
+    scenario("same groups of the analysis") {
+      val codependency = Codependency.create()
+        .withDirectory(ClassFile("code", "pendency", "group").getAbsolutePath)
+        .withDirectory(ClassFile("code", "pendency", "sample").getAbsolutePath)
+      summary(codependency.aggregate(Analysis.BY_PACKAGE)) shouldBe summary(codependency.analyze().group(Analysis.BY_PACKAGE))
+    }
+
+    scenario("groups derived from the name or from the parsed class") {
+      val codependency = Codependency.create()
+        .withDirectory(new java.io.File(getClass.getProtectionDomain.getCodeSource.getLocation.toURI).getAbsolutePath)
+      // The same groups of BY_PACKAGE, but known only once the classes are parsed
+      val byParsedPackage = new Analysis.GroupById[String] {
+        def extract(javaClass: JavaClass): String = javaClass.getPackageName
+      }
+      val expected = summary(codependency.analyze().group(Analysis.BY_PACKAGE))
+      summary(codependency.aggregate(Analysis.BY_PACKAGE)) shouldBe expected
+      summary(codependency.aggregate(byParsedPackage)) shouldBe expected
+    }
+
+    scenario("group by jar") {
+      val codependency = Codependency.create()
+        .withDirectory(ClassFile("data", "test.jar").getAbsolutePath)
+        .withDirectory(ClassFile("code", "pendency", "group").getAbsolutePath)
+      summary(codependency.aggregate(Analysis.BY_JAR)) shouldBe summary(codependency.analyze().group(Analysis.BY_JAR))
+    }
+
+    scenario("a class defined twice is counted with its first definition") {
+      val directory = java.nio.file.Files.createTempDirectory("aggregate").toFile
+      def jar(name: String) = {
+        val file = new java.io.File(directory, name)
+        val os = new java.util.jar.JarOutputStream(new java.io.FileOutputStream(file))
+        try {
+          os.putNextEntry(new java.util.jar.JarEntry("code/pendency/group/BaseOne.class"))
+          os.write(java.nio.file.Files.readAllBytes(ClassFile("code", "pendency", "group", "BaseOne.class").toPath))
+          os.closeEntry()
+        } finally os.close()
+        file.getAbsolutePath
+      }
+      val codependency = Codependency.create().withDirectory(jar("first.jar")).withDirectory(jar("last.jar"))
+      def counts(groups: java.util.Collection[Analysis.GroupByItem[String]]) =
+        groups.asScala.filter(_.getName.endsWith(".jar")).map(group => group.getName -> group.getCount).toMap
+      // As the JVM, the first definition of the classpath
+      counts(codependency.aggregate(Analysis.BY_JAR)) shouldBe Map("first.jar" -> 1)
+      counts(codependency.analyze().group(Analysis.BY_JAR)) shouldBe Map("first.jar" -> 1)
+      val reversed = Codependency.create().withDirectory(jar("last.jar")).withDirectory(jar("first.jar"))
+      counts(reversed.aggregate(Analysis.BY_JAR)) shouldBe Map("last.jar" -> 1)
+      counts(reversed.analyze().group(Analysis.BY_JAR)) shouldBe Map("last.jar" -> 1)
+    }
+
+  }
+
+  feature("package metrics") {
+
+    scenario("abstractness, instability and distance") {
+      val file = ClassFile("code", "pendency", "group")
+      val analysis = Codependency.create()
+          .withDirectory(file.getAbsolutePath)
+          .analyze()
+      val groupBy = analysis.group(Analysis.BY_PACKAGE).asScala
+      val parent = groupBy.find(_.getName == "code.pendency.group").get
+      parent.getAbstractCount shouldBe 0
+      parent.abstractness() shouldBe 0.0
+      parent.instability() shouldBe 1.0
+      parent.distance() shouldBe 0.0
+      val sub1 = groupBy.find(_.getName == "code.pendency.group.sub1").get
+      sub1.instability() shouldBe 1.0 / 3 +- 0.0001
+      sub1.distance() shouldBe 2.0 / 3 +- 0.0001
+      val javaLang = groupBy.find(_.getName == "java.lang").get
+      javaLang.instability() shouldBe 0.0
+      javaLang.distance() shouldBe 1.0
+    }
+
+    scenario("abstract classes and interfaces") {
+      val file = ClassFile("code", "pendency", "sample")
+      val analysis = Codependency.create()
+          .excludes("java")
+          .withDirectory(file.getAbsolutePath)
+          .analyze()
+      val sample = analysis.group(Analysis.BY_PACKAGE).asScala.find(_.getName == "code.pendency.sample").get
+      val abstracts = analysis.getClasses.asScala.count(c => c.isAbstract || c.isInterface)
+      sample.getAbstractCount shouldBe abstracts
+      sample.abstractness() shouldBe abstracts.toDouble / sample.getCount +- 0.0001
+    }
+
   }
 
 }
@@ -0,0 +1,70 @@
+package code.pendency
+
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FeatureSpec, Matchers}
+
+import scala.collection.JavaConverters._
+
+@RunWith(classOf[JUnitRunner])
+class TestMemberGraph extends FeatureSpec with Matchers {
+
+  val directory: String = ClassFile("code", "pendency", "usage").getAbsolutePath
+
+  val library = "code.pendency.usage.lib.Library"
+  val service = "code.pendency.usage.app.Service"
+  val call: String = MemberGraph.key(library, "call(Ljava/lang/String;)Ljava/lang/String;")
+  val count: String = MemberGraph.key(library, "count:I")
+  val constructor: String = MemberGraph.key(library, "<init>()V")
+  val run: String = MemberGraph.key(service, "run()Ljava/lang/String;")
+
+  val members: MemberGraph = Codependency.create().withDirectory(directory).withMembers().analyze().getMembers
+
+  feature("members of the classes") {
+
+    scenario("declared members") {
+      members.getMembers(library).asScala shouldBe Seq(constructor, call, count, MemberGraph.key(library, "unused()V"))
+    }
+
+    scenario("used members") {
+      members.getEfferents(run).asScala should contain allOf (constructor, call, count)
+      members.getAfferents(call).asScala shouldBe Seq(run)
+      members.getEfferents(call).asScala should contain (MemberGraph.key("java.lang.String", "trim()Ljava/lang/String;"))
+      members.getAfferents(count).asScala should contain allOf (run, call)
+    }
+
+    scenario("unknown members") {
+      members.getEfferents(MemberGraph.key(library, "missing()V")) shouldBe empty
+      members.getMembers("code.pendency.Missing") shouldBe empty
+    }
+
+    scenario("no members by default") {
+      Codependency.create().withDirectory(directory).analyze().getMembers.numberOfMembers() shouldBe 0
+    }
+
+    scenario("members in a session") {
+      val analysis = Codependency.create().withMembers().session().analyze(directory)
+      analysis.getMembers.getAfferents(call).asScala shouldBe Seq(run)
+    }
+
+  }
+
+  feature("roll up") {
+
+    scenario("to the classes") {
+      members.getUsedMembers(service, library).asScala shouldBe Set(constructor, call, count)
+      members.getUsedMembers(library, service) shouldBe empty
+    }
+
+    scenario("to the groups") {
+      members.getUsedMembers(Analysis.BY_PACKAGE, "code.pendency.usage.app", "code.pendency.usage.lib").asScala shouldBe
+        Set(constructor, call, count)
+    }
+
+    scenario("members of a group used by the others") {
+      members.getUsedMembers(Analysis.BY_PACKAGE, "code.pendency.usage.lib").asScala shouldBe Set(constructor, call, count)
+    }
+
+  }
+
+}
@@ -0,0 +1,70 @@
+package code.pendency
+
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FeatureSpec, Matchers}
+
+import scala.collection.JavaConverters._
+
+@RunWith(classOf[JUnitRunner])
+class TestReachability extends FeatureSpec with Matchers {
+
+  val analysis: Analysis = Codependency.create()
+      .withDirectory(ClassFile("code", "pendency", "reachability").getAbsolutePath)
+      .analyze()
+
+  def names(classes: java.util.Collection[JavaClass]): Set[String] = classes.asScala.map(_.getClassName).toSet
+
+  feature("reachable classes") {
+
+    scenario("from the main classes") {
+      val reachability = Reachability.from(analysis, EntryPoints.create().mainClasses())
+      reachability.numberOfEntryPoints() shouldBe 1
+      names(reachability.getReachable) should contain allOf (
+        "code.pendency.reachability.Main",
+        "code.pendency.reachability.Used",
+        "code.pendency.reachability.Helper")
+      names(reachability.getUnreachable) shouldBe Set(
+        "code.pendency.reachability.Dead",
+        "code.pendency.reachability.Endpoint",
+        "code.pendency.reachability.sub.DeadToo")
+    }
+
+    scenario("from annotated classes and prefixes") {
+      val entryPoints = EntryPoints.create()
+          .mainClasses()
+          .annotatedWith("code.pendency.sample.Annotation")
+          .withPrefix("code.pendency.reachability.sub")
+      val reachability = Reachability.from(analysis, entryPoints)
+      reachability.numberOfEntryPoints() shouldBe 3
+      names(reachability.getUnreachable) shouldBe Set("code.pendency.reachability.Dead")
+    }
+
+    scenario("annotated classes without the annotation dependencies") {
+      val inheritance = Codependency.create().withDirectory(ClassFile("code", "pendency", "reachability").getAbsolutePath)
+        .withDependencyKinds(DependencyKind.SUPERCLASS, DependencyKind.INTERFACE)
+        .analyze()
+      val reachability = Reachability.from(inheritance, EntryPoints.create().annotatedWith("code.pendency.sample.Annotation"))
+      reachability.numberOfEntryPoints() shouldBe 1
+      names(reachability.getReachable) should contain ("code.pendency.reachability.Endpoint")
+    }
+
+    scenario("no entry points") {
+      val reachability = Reachability.from(analysis, EntryPoints.create())
+      reachability.getReachable shouldBe empty
+      // The classes only referenced (e.g. java.lang.Object) are not reported
+      names(reachability.getUnreachable) should have size 6
+    }
+
+    scenario("grouped by package and jar") {
+      val reachability = Reachability.from(analysis, EntryPoints.create().mainClasses())
+      val byPackage = reachability.getUnreachable(Analysis.BY_PACKAGE).asScala
+      byPackage.keySet shouldBe Set("code.pendency.reachability", "code.pendency.reachability.sub")
+      byPackage("code.pendency.reachability") should have size 2
+      val byJar = reachability.getUnreachable(Analysis.BY_JAR).asScala
+      byJar.keySet shouldBe Set("<sourcecode>")
+    }
+
+  }
+
+}
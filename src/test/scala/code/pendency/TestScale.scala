@@ -0,0 +1,83 @@
+package code.pendency
+
+import java.io.File
+import java.lang.management.ManagementFactory
+
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FeatureSpec, Matchers}
+
+import scala.collection.JavaConverters._
+
+/**
+ * The analysis and the grouping of synthetic jars (see SyntheticClasses) of 10k, 100k and 1M classes within time
+ * and memory budgets. Only run by the scale profile (mvn test -Pscale), the budgets can be scaled for slower
+ * machines with the system property codependency.scale.budget (e.g. 2 doubles them).
+ */
+@RunWith(classOf[JUnitRunner])
+class TestScale extends FeatureSpec with Matchers {
+
+  private val directory = new File(System.getProperty("user.dir"), "target" + File.separator + "scale")
+  private val factor = System.getProperty("codependency.scale.budget", "1").toDouble
+
+  // The time budgets in milliseconds and the memory budget of the analysis in bytes by class
+  case class Budget(analyzeMillis: Long, groupMillis: Long, bytesPerClass: Long)
+
+  feature("analysis at scale") {
+
+    scenario("10k classes") {
+      check(SyntheticClasses(classes = 10000, packages = 100, packageFanOut = 4, density = 8, cycles = 10),
+        Budget(analyzeMillis = 3000, groupMillis = 1000, bytesPerClass = 2048))
+    }
+
+    scenario("100k classes") {
+      check(SyntheticClasses(classes = 100000, packages = 1000, packageFanOut = 4, density = 8, cycles = 100),
+        Budget(analyzeMillis = 15000, groupMillis = 2000, bytesPerClass = 1024))
+    }
+
+    scenario("1M classes") {
+      check(SyntheticClasses(classes = 1000000, packages = 5000, packageFanOut = 4, density = 8, cycles = 500),
+        Budget(analyzeMillis = 100000, groupMillis = 15000, bytesPerClass = 1024))
+    }
+
+  }
+
+  private def check(synthetic: SyntheticClasses, budget: Budget): Unit = {
+    import synthetic._
+    val jar = new File(directory, s"synthetic-$classes-$packages-$packageFanOut-$density-$cycles-$seed.jar")
+    // The same parameters give the same jar
+    if (!jar.exists()) synthetic.writeJar(jar)
+    var analysis: Analysis = null
+    var groups: java.util.Collection[Analysis.GroupByItem[String]] = null
+    val analyzeMillis = millis(analysis = Codependency.create().withDirectory(jar.getAbsolutePath).analyze())
+    val groupMillis = millis(groups = analysis.group(Analysis.BY_PACKAGE))
+    // And java.lang.Object
+    analysis.numberOfClasses() shouldBe classes + 1
+    groups should have size packages + 1
+    groups.asScala.map(_.getCount).sum shouldBe classes + 1
+    // The memory retained by the analysis (and its groups) is the memory released when it is dropped
+    val used = usedHeap()
+    analysis = null
+    groups = null
+    val bytes = used - usedHeap()
+    info(s"analyze $analyzeMillis ms, group $groupMillis ms, ${bytes / classes} bytes by class")
+    analyzeMillis should be <= (budget.analyzeMillis * factor).toLong
+    groupMillis should be <= (budget.groupMillis * factor).toLong
+    // Nothing released means the measure failed (e.g. a collection during the first reading), not an empty analysis
+    bytes should be > 0L
+    bytes should be <= (budget.bytesPerClass * classes * factor).toLong
+  }
+
+  private def millis(block: => Unit): Long = {
+    val start = System.nanoTime()
+    block
+    (System.nanoTime() - start) / 1000000
+  }
+
+  // The heap used after the garbage collections.
+  private def usedHeap(): Long = {
+    for (_ <- 1 to 3) System.gc()
+    ManagementFactory.getMemoryMXBean.getHeapMemoryUsage.getUsed
+  }
+
+}
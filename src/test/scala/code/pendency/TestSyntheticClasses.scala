@@ -0,0 +1,60 @@
+package code.pendency
+
+import java.io.File
+
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{FeatureSpec, Matchers}
+
+import scala.collection.JavaConverters._
+
+@RunWith(classOf[JUnitRunner])
+class TestSyntheticClasses extends FeatureSpec with Matchers {
+
+  private val directory = new File(System.getProperty("user.dir"), "target" + File.separator + "synthetic")
+
+  feature("synthetic classes") {
+
+    scenario("same seed same classes") {
+      val synthetic = SyntheticClasses(classes = 200, cycles = 3, seed = 7)
+      (0 until 200).map(synthetic.bytes(_).toSeq) shouldBe (0 until 200).map(SyntheticClasses(classes = 200, cycles = 3, seed = 7).bytes(_).toSeq)
+      (0 until 200).map(synthetic.dependencies) should not be (0 until 200).map(synthetic.copy(seed = 8).dependencies)
+    }
+
+    scenario("classes and dependencies") {
+      val synthetic = SyntheticClasses(classes = 500, packages = 10, density = 5)
+      val analysis = Codependency.create().withDirectory(synthetic.writeDirectory(new File(directory, "classes")).getAbsolutePath).analyze()
+      // And java.lang.Object
+      analysis.numberOfClasses() shouldBe 501
+      val byName = analysis.getClasses.asScala.map(javaClass => javaClass.getClassName -> javaClass).toMap
+      for (id <- 0 until 500) {
+        val javaClass = byName(synthetic.className(id))
+        javaClass.getEfferents.asScala.map(_.getClassName).toSet shouldBe synthetic.dependencies(id).map(synthetic.className).toSet + "java.lang.Object"
+        javaClass.isAbstract shouldBe synthetic.isAbstract(id)
+      }
+    }
+
+    scenario("package fan-out and cycles") {
+      val synthetic = SyntheticClasses(classes = 2000, packages = 20, packageFanOut = 3, cycles = 4)
+      val jar = synthetic.writeJar(new File(directory, "cycles.jar"))
+      val analysis = Codependency.create().withDirectory(jar.getAbsolutePath).analyze()
+      val groups = analysis.group(Analysis.BY_PACKAGE).asScala
+      groups should have size 21
+      for (pkg <- 0 until 20) {
+        val group = groups.find(_.getName == synthetic.packageName(pkg)).get
+        group.getCount shouldBe 100
+        group.getEfferents.asScala.map(_.getName).toSet shouldBe synthetic.packageDependencies(pkg).map(synthetic.packageName).toSet + "java.lang"
+      }
+      val backwards = for {
+        pkg <- 0 until 20
+        target <- synthetic.packageDependencies(pkg) if target < pkg
+      } yield (pkg, target)
+      backwards should have size 4
+      for ((pkg, target) <- backwards) {
+        analysis.paths().shortestPath(Analysis.BY_PACKAGE, synthetic.packageName(target), synthetic.packageName(pkg)) should not be empty
+      }
+    }
+
+  }
+
+}